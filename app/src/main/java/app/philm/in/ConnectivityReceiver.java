@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in;
+
+import com.google.common.base.Preconditions;
+import com.squareup.otto.Bus;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import javax.inject.Inject;
+
+import app.philm.in.state.BaseState;
+
+/**
+ * Posts a {@link BaseState.ConnectivityRestoredEvent} when the device connects to a network, so
+ * that changes made while offline can be sent.
+ */
+public class ConnectivityReceiver extends BroadcastReceiver {
+
+    @Inject Bus mEventBus;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!ConnectivityManager.CONNECTIVITY_ACTION.equals(intent.getAction())) {
+            return;
+        }
+
+        final ConnectivityManager manager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        final NetworkInfo info = manager.getActiveNetworkInfo();
+        if (info == null || !info.isConnected()) {
+            return;
+        }
+
+        PhilmApplication.from(context).inject(this);
+        Preconditions.checkNotNull(mEventBus, "mEventBus cannot be null");
+
+        mEventBus.post(new BaseState.ConnectivityRestoredEvent());
+    }
+}
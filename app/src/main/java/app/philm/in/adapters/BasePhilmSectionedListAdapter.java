@@ -28,6 +28,7 @@ import android.widget.TextView;
 import java.util.List;
 
 import app.philm.in.model.ListItem;
+import app.philm.in.util.ListDiff;
 import app.philm.in.view.PinnedSectionListView;
 
 abstract class BasePhilmSectionedListAdapter<T> extends BaseAdapter
@@ -41,19 +42,54 @@ abstract class BasePhilmSectionedListAdapter<T> extends BaseAdapter
 
     private List<ListItem<T>> mItems;
 
+    private final ListDiff.KeyProvider<ListItem<T>> mKeyProvider;
+    private ListDiff.Snapshot mSnapshot = ListDiff.Snapshot.EMPTY;
+
     public BasePhilmSectionedListAdapter(Activity activity, int viewLayoutId,
             int pinnedViewLayoutId) {
+        this(activity, viewLayoutId, pinnedViewLayoutId, null);
+    }
+
+    /**
+     * @param keyProvider if not null, used to diff each new list of items against the last
+     *                    one, so that only what has changed needs to be refreshed
+     */
+    public BasePhilmSectionedListAdapter(Activity activity, int viewLayoutId,
+            int pinnedViewLayoutId, ListDiff.KeyProvider<ListItem<T>> keyProvider) {
         mActivity = activity;
         mLayoutInflater = activity.getLayoutInflater();
         mViewLayoutId = viewLayoutId;
         mPinnedViewLayoutId = pinnedViewLayoutId;
+        mKeyProvider = keyProvider;
     }
 
-    public void setItems(List<ListItem<T>> items) {
-        if (!Objects.equal(items, mItems)) {
-            mItems = items;
+    /**
+     * Sets the items to display. Adapters without a key provider refresh the whole list if the
+     * items are not equal, and return null.
+     * <p>
+     * Otherwise, if items have been added, removed or moved the whole list is refreshed. If not,
+     * nothing is refreshed, and the caller should rebind the views for the returned diff's
+     * changed positions.
+     */
+    public ListDiff setItems(List<ListItem<T>> items) {
+        if (mKeyProvider == null) {
+            if (!Objects.equal(items, mItems)) {
+                mItems = items;
+                notifyDataSetChanged();
+            }
+            return null;
+        }
+
+        final ListDiff.Snapshot snapshot = ListDiff.Snapshot.of(items, mKeyProvider);
+        final ListDiff diff = ListDiff.between(mSnapshot, snapshot);
+
+        mItems = items;
+        mSnapshot = snapshot;
+
+        if (diff.isStructural()) {
             notifyDataSetChanged();
         }
+        return diff;
     }
 
     @Override
@@ -68,7 +104,12 @@ abstract class BasePhilmSectionedListAdapter<T> extends BaseAdapter
 
     @Override
     public long getItemId(int position) {
-        return position;
+        return mKeyProvider != null ? mSnapshot.getId(position) : position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mKeyProvider != null;
     }
 
     @Override
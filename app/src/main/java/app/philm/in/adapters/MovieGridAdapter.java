@@ -16,8 +16,6 @@
 
 package app.philm.in.adapters;
 
-import com.google.common.base.Objects;
-
 import android.app.Activity;
 import android.graphics.Bitmap;
 import android.view.LayoutInflater;
@@ -31,6 +29,7 @@ import java.util.List;
 import app.philm.in.R;
 import app.philm.in.model.ListItem;
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.util.ListDiff;
 import app.philm.in.view.PhilmImageView;
 
 public class MovieGridAdapter extends BaseAdapter {
@@ -41,17 +40,29 @@ public class MovieGridAdapter extends BaseAdapter {
     private final LayoutInflater mLayoutInflater;
 
     private List<ListItem<PhilmMovie>> mItems;
+    private ListDiff.Snapshot mSnapshot = ListDiff.Snapshot.EMPTY;
 
     public MovieGridAdapter(Activity activity) {
         mActivity = activity;
         mLayoutInflater = mActivity.getLayoutInflater();
     }
 
-    public void setItems(List<ListItem<PhilmMovie>> items) {
-        if (!Objects.equal(items, mItems)) {
-            mItems = items;
+    /**
+     * Sets the items to display. If items have been added, removed or moved the whole list is
+     * refreshed. Otherwise nothing is refreshed, and the caller should rebind the views for the
+     * returned diff's changed positions.
+     */
+    public ListDiff setItems(List<ListItem<PhilmMovie>> items) {
+        final ListDiff.Snapshot snapshot = ListDiff.Snapshot.of(items, MovieListItemKeys.INSTANCE);
+        final ListDiff diff = ListDiff.between(mSnapshot, snapshot);
+
+        mItems = items;
+        mSnapshot = snapshot;
+
+        if (diff.isStructural()) {
             notifyDataSetChanged();
         }
+        return diff;
     }
 
     @Override
@@ -66,7 +77,12 @@ public class MovieGridAdapter extends BaseAdapter {
 
     @Override
     public long getItemId(int position) {
-        return position;
+        return mSnapshot.getId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
     }
 
     @Override
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.adapters;
+
+import app.philm.in.model.ListItem;
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.util.ListDiff;
+
+/**
+ * Keys movie list items by their movie's id, and sections by their title.
+ */
+class MovieListItemKeys implements ListDiff.KeyProvider<ListItem<PhilmMovie>> {
+
+    static final MovieListItemKeys INSTANCE = new MovieListItemKeys();
+
+    private MovieListItemKeys() {
+    }
+
+    @Override
+    public long getStableId(ListItem<PhilmMovie> item) {
+        if (item.getListType() == ListItem.TYPE_SECTION) {
+            // Movie ids are never this small
+            return Long.MIN_VALUE + item.getListSectionTitle();
+        }
+
+        final PhilmMovie movie = item.getListItem();
+        return movie.hasDbId() ? movie.getDbId() : System.identityHashCode(movie);
+    }
+
+    @Override
+    public int getVersion(ListItem<PhilmMovie> item) {
+        return item.getListType() == ListItem.TYPE_ITEM ? item.getListItem().getVersion() : 0;
+    }
+
+}
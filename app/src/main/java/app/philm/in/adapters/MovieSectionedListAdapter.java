@@ -39,7 +39,8 @@ public class MovieSectionedListAdapter extends BasePhilmSectionedListAdapter<Phi
     private final Date mDate;
 
     public MovieSectionedListAdapter(Activity activity) {
-        super(activity, R.layout.item_list_3line, R.layout.item_list_movie_section_header);
+        super(activity, R.layout.item_list_3line, R.layout.item_list_movie_section_header,
+                MovieListItemKeys.INSTANCE);
         mDate = new Date();
         PhilmApplication.from(activity).inject(this);
     }
@@ -105,8 +105,12 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
                 @Override
                 public boolean onQueryTextChange(String query) {
-                    if (TextUtils.isEmpty(query) && hasCallbacks()) {
-                        getCallbacks().clearSearch();
+                    if (hasCallbacks()) {
+                        if (TextUtils.isEmpty(query)) {
+                            getCallbacks().clearSearch();
+                        } else {
+                            getCallbacks().onSearchQueryChanged(query);
+                        }
                     }
                     return false;
                 }
@@ -137,7 +141,10 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
     private void setQuery(String query) {
         if (mSearchView != null) {
-            mSearchView.setQuery(query, false);
+            // Don't replace what the user is still typing with an older query's results
+            if (TextUtils.isEmpty(mSearchView.getQuery())) {
+                mSearchView.setQuery(query, false);
+            }
             mQueryToDisplay = null;
         } else {
             mQueryToDisplay = query;
@@ -153,11 +160,11 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
         final ArrayList<SearchCategoryItems> items = new ArrayList<>();
 
-        if (mSearchResult.movies != null && !PhilmCollections.isEmpty(mSearchResult.movies.items)) {
+        if (mSearchResult.movies != null && !mSearchResult.movies.isEmpty()) {
             items.add(SearchCategoryItems.MOVIES);
         }
 
-        if (mSearchResult.people != null && !PhilmCollections.isEmpty(mSearchResult.people.items)) {
+        if (mSearchResult.people != null && !mSearchResult.people.isEmpty()) {
             items.add(SearchCategoryItems.PEOPLE);
         }
 
@@ -320,7 +327,7 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
         public int getCount() {
             if (mSearchResult != null) {
                 if (mSearchResult.people != null) {
-                    return PhilmCollections.size(mSearchResult.people.items);
+                    return PhilmCollections.size(mSearchResult.people.getItems());
                 }
             }
             return 0;
@@ -328,7 +335,7 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
         @Override
         public PhilmPerson getItem(int position) {
-            return mSearchResult.people.items.get(position);
+            return mSearchResult.people.getItems().get(position);
         }
 
         @Override
@@ -384,7 +391,7 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
         public int getCount() {
             if (mSearchResult != null) {
                 if (mSearchResult.movies != null) {
-                    return PhilmCollections.size(mSearchResult.movies.items);
+                    return PhilmCollections.size(mSearchResult.movies.getItems());
                 }
             }
             return 0;
@@ -392,7 +399,7 @@ public class SearchFragment extends BaseDetailFragment implements MovieControlle
 
         @Override
         public PhilmMovie getItem(int position) {
-            return mSearchResult.movies.items.get(position);
+            return mSearchResult.movies.getItems().get(position);
         }
 
         @Override
@@ -21,12 +21,10 @@ import com.github.johnpersano.supertoasts.SuperToast;
 import com.github.johnpersano.supertoasts.util.Style;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
 
-import app.philm.in.Constants;
 import app.philm.in.PhilmApplication;
 import app.philm.in.R;
 import app.philm.in.controllers.MovieController;
@@ -39,8 +37,6 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
         extends ListFragment<E>
         implements MovieController.BaseMovieListUi<T>, AbsListView.OnScrollListener {
 
-    private static final String LOG_TAG = BaseMovieControllerListFragment.class.getSimpleName();
-
     private MovieController.MovieUiCallbacks mCallbacks;
 
     private SuperCardToast mToast;
@@ -48,8 +44,8 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
     private int mFirstVisiblePosition;
     private int mFirstVisiblePositionTop;
 
-    private boolean mLoadMoreIsAtBottom;
-    private int mLoadMoreRequestedItemCount;
+    private int mLastVisiblePosition = AdapterView.INVALID_POSITION;
+    private int mLastItemCount;
 
     @Override
     public void onViewCreated(View view, Bundle savedInstanceState) {
@@ -132,30 +128,22 @@ public abstract class BaseMovieControllerListFragment<E extends AbsListView, T>
 
     @Override
     public final void onScrollStateChanged(AbsListView view, int scrollState) {
-        if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE && mLoadMoreIsAtBottom) {
-            if (onScrolledToBottom()) {
-                mLoadMoreRequestedItemCount = view.getCount();
-                mLoadMoreIsAtBottom = false;
-            }
-        }
     }
 
     @Override
     public final void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
             int totalItemCount) {
-        mLoadMoreIsAtBottom = totalItemCount > mLoadMoreRequestedItemCount
-                && firstVisibleItem + visibleItemCount == totalItemCount;
-    }
+        final int lastVisiblePosition = firstVisibleItem + visibleItemCount - 1;
 
-    protected boolean onScrolledToBottom() {
-        if (Constants.DEBUG) {
-            Log.d(LOG_TAG, "onScrolledToBottom");
-        }
-        if (hasCallbacks()) {
-            getCallbacks().onScrolledToBottom();
-            return true;
+        // onScroll is called on every layout, so only report when something has moved
+        if (lastVisiblePosition != mLastVisiblePosition || totalItemCount != mLastItemCount) {
+            mLastVisiblePosition = lastVisiblePosition;
+            mLastItemCount = totalItemCount;
+
+            if (hasCallbacks()) {
+                getCallbacks().onScrolledToPosition(lastVisiblePosition, totalItemCount);
+            }
         }
-        return false;
     }
 
     protected final void cancelToast() {
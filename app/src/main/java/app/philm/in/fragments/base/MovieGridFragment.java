@@ -29,6 +29,8 @@ import app.philm.in.adapters.MovieGridAdapter;
 import app.philm.in.model.ListItem;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.util.ActivityTransitions;
+import app.philm.in.util.ListDiff;
+import app.philm.in.util.ViewUtils;
 
 public abstract class MovieGridFragment extends BasePhilmMovieListFragment<GridView> {
 
@@ -63,7 +65,10 @@ public abstract class MovieGridFragment extends BasePhilmMovieListFragment<GridV
 
     @Override
     public void setItems(List<ListItem<PhilmMovie>> items) {
-        mMovieGridAdapter.setItems(items);
+        final ListDiff diff = mMovieGridAdapter.setItems(items);
+        if (!diff.isStructural()) {
+            ViewUtils.rebindVisibleItems(getListView(), mMovieGridAdapter, diff.getChangedPositions());
+        }
         moveListViewToSavedPositions();
     }
 
@@ -30,6 +30,8 @@ import app.philm.in.adapters.MovieSectionedListAdapter;
 import app.philm.in.model.ListItem;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.util.ActivityTransitions;
+import app.philm.in.util.ListDiff;
+import app.philm.in.util.ViewUtils;
 
 public abstract class MovieListFragment extends BasePhilmMovieListFragment<ListView> {
 
@@ -56,7 +58,10 @@ public abstract class MovieListFragment extends BasePhilmMovieListFragment<ListV
 
     @Override
     public void setItems(List<ListItem<PhilmMovie>> items) {
-        mMovieListAdapter.setItems(items);
+        final ListDiff diff = mMovieListAdapter.setItems(items);
+        if (!diff.isStructural()) {
+            ViewUtils.rebindVisibleItems(getListView(), mMovieListAdapter, diff.getChangedPositions());
+        }
     }
 
     @Override
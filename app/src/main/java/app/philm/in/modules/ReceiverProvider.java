@@ -17,13 +17,15 @@
 package app.philm.in.modules;
 
 import app.philm.in.AlarmReceiver;
+import app.philm.in.ConnectivityReceiver;
 import app.philm.in.modules.library.ContextProvider;
 import app.philm.in.modules.library.UtilProvider;
 import dagger.Module;
 
 @Module(
         injects = {
-                AlarmReceiver.class
+                AlarmReceiver.class,
+                ConnectivityReceiver.class
         },
         includes = {
                 ContextProvider.class,
@@ -50,6 +50,7 @@ import app.philm.in.tasks.MarkTraktMovieUnseenRunnable;
 import app.philm.in.tasks.RemoveFromTraktCollectionRunnable;
 import app.philm.in.tasks.RemoveFromTraktWatchlistRunnable;
 import app.philm.in.tasks.SubmitTraktMovieRatingRunnable;
+import app.philm.in.tasks.SyncTraktActivityRunnable;
 import dagger.Module;
 
 @Module(
@@ -76,6 +77,7 @@ import dagger.Module;
                 RemoveFromTraktCollectionRunnable.class,
                 RemoveFromTraktWatchlistRunnable.class,
                 SubmitTraktMovieRatingRunnable.class,
+                SyncTraktActivityRunnable.class,
                 FetchTmdbMovieCreditsRunnable.class,
                 FetchTmdbMovieTrailersRunnable.class,
                 FetchTraktWatchingRunnable.class,
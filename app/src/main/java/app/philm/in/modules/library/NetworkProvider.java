@@ -17,19 +17,30 @@
 package app.philm.in.modules.library;
 
 import android.content.Context;
+import android.os.Process;
+import android.util.Log;
 
 import com.jakewharton.trakt.Trakt;
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.OkHttpClient;
 import com.uwetrottmann.tmdb.Tmdb;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Singleton;
 
 import app.philm.in.Constants;
+import app.philm.in.network.HttpValidators;
+import app.philm.in.network.PhilmOkClient;
 import app.philm.in.network.PhilmTmdb;
 import app.philm.in.network.PhilmTrakt;
 import app.philm.in.qualifiers.ApplicationContext;
 import app.philm.in.qualifiers.CacheDirectory;
+import app.philm.in.qualifiers.FilesDirectory;
+import app.philm.in.util.AndroidFileManager;
 import dagger.Module;
 import dagger.Provides;
 
@@ -39,25 +50,98 @@ import dagger.Provides;
 )
 public class NetworkProvider {
 
+    private static final String TAG = "NetworkProvider";
+
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+
     @Provides @Singleton
-    public Trakt provideTraktClient(@CacheDirectory File cacheLocation) {
-        Trakt trakt = new PhilmTrakt(cacheLocation);
+    public Trakt provideTraktClient(PhilmOkClient client) {
+        Trakt trakt = new PhilmTrakt(client);
         trakt.setApiKey(Constants.TRAKT_API_KEY);
         trakt.setIsDebug(Constants.DEBUG_NETWORK);
         return trakt;
     }
 
     @Provides @Singleton
-    public Tmdb provideTmdbClient(@CacheDirectory File cacheLocation) {
-        Tmdb tmdb = new PhilmTmdb(cacheLocation);
+    public Tmdb provideTmdbClient(PhilmOkClient client) {
+        Tmdb tmdb = new PhilmTmdb(client);
         tmdb.setApiKey(Constants.TMDB_API_KEY);
         tmdb.setIsDebug(Constants.DEBUG_NETWORK);
         return tmdb;
     }
 
+    @Provides @Singleton
+    public PhilmOkClient provideRetrofitClient(OkHttpClient okHttpClient,
+            HttpValidators httpValidators) {
+        return new PhilmOkClient(okHttpClient, httpValidators);
+    }
+
+    @Provides @Singleton
+    public HttpValidators provideHttpValidators(@FilesDirectory File filesDirectory) {
+        return new HttpValidators(new AndroidFileManager(filesDirectory),
+                Executors.newSingleThreadExecutor());
+    }
+
+    @Provides @Singleton
+    public OkHttpClient provideOkHttpClient(@CacheDirectory File cacheLocation) {
+        OkHttpClient client = new OkHttpClient();
+
+        final File httpCacheLocation = new File(cacheLocation, HTTP_CACHE_DIRECTORY);
+        if (!httpCacheLocation.exists()) {
+            // Older versions gave each client its own cache in a random directory
+            deleteOldCacheDirectories(cacheLocation);
+        }
+
+        try {
+            client.setCache(new Cache(httpCacheLocation, Constants.HTTP_CACHE_SIZE));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not use OkHttp Cache", e);
+        }
+
+        client.setConnectTimeout(Constants.CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        client.setReadTimeout(Constants.READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        return client;
+    }
+
     @Provides @Singleton @CacheDirectory
     public File provideHttpCacheLocation(@ApplicationContext Context context) {
         return context.getCacheDir();
     }
 
+    /**
+     * Deletes every directory in {@code cacheLocation} other than the shared HTTP cache, on a
+     * background thread.
+     */
+    private static void deleteOldCacheDirectories(File cacheLocation) {
+        final File[] files = cacheLocation.listFiles();
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                for (File file : files) {
+                    if (file.isDirectory() && !HTTP_CACHE_DIRECTORY.equals(file.getName())) {
+                        deleteRecursively(file);
+                    }
+                }
+            }
+        }, "DeleteOldCaches").start();
+    }
+
+    private static void deleteRecursively(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && Constants.DEBUG) {
+            Log.d(TAG, "Could not delete old cache file: " + file);
+        }
+    }
+
 }
@@ -22,6 +22,7 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
 import java.io.File;
+import java.util.concurrent.Executors;
 
 import javax.inject.Singleton;
 
@@ -32,10 +33,12 @@ import app.philm.in.state.AsyncDatabaseHelper;
 import app.philm.in.state.AsyncDatabaseHelperImpl;
 import app.philm.in.state.DatabaseHelper;
 import app.philm.in.state.PhilmSQLiteOpenHelper;
+import app.philm.in.state.TraktMutationJournal;
 import app.philm.in.util.AndroidFileManager;
 import app.philm.in.util.AndroidPhilmPreferences;
 import app.philm.in.util.BackgroundExecutor;
 import app.philm.in.util.FileManager;
+import app.philm.in.util.Logger;
 import app.philm.in.util.PhilmPreferences;
 import dagger.Module;
 import dagger.Provides;
@@ -72,4 +75,11 @@ public class PersistenceProvider {
         return new AndroidPhilmPreferences(prefs);
     }
 
+    @Provides @Singleton
+    public TraktMutationJournal provideTraktMutationJournal(FileManager fileManager,
+            Logger logger) {
+        return new TraktMutationJournal(fileManager, Executors.newSingleThreadExecutor(),
+                logger);
+    }
+
 }
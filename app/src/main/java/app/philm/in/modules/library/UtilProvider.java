@@ -25,22 +25,30 @@ import java.util.concurrent.Executors;
 import javax.inject.Singleton;
 
 import app.philm.in.AndroidStringFetcher;
+import app.philm.in.Constants;
+import app.philm.in.network.PhilmOkClient;
 import app.philm.in.qualifiers.ApplicationContext;
+import app.philm.in.qualifiers.ForComputation;
 import app.philm.in.qualifiers.ForDatabase;
 import app.philm.in.qualifiers.GeneralPurpose;
 import app.philm.in.util.AndroidCountryProvider;
 import app.philm.in.util.AndroidLogger;
+import app.philm.in.util.AndroidMainThreadScheduler;
 import app.philm.in.util.BackgroundExecutor;
 import app.philm.in.util.CountryProvider;
 import app.philm.in.util.ImageHelper;
 import app.philm.in.util.Logger;
+import app.philm.in.util.MainThreadScheduler;
 import app.philm.in.util.PhilmBackgroundExecutor;
 import app.philm.in.util.StringFetcher;
 import dagger.Module;
 import dagger.Provides;
 
 @Module(
-        includes = ContextProvider.class,
+        includes = {
+                ContextProvider.class,
+                NetworkProvider.class
+        },
         library = true
 )
 public class UtilProvider {
@@ -66,9 +74,11 @@ public class UtilProvider {
     }
 
     @Provides @Singleton @GeneralPurpose
-    public BackgroundExecutor provideMultiThreadExecutor() {
-        final int numberCores = Runtime.getRuntime().availableProcessors();
-        return new PhilmBackgroundExecutor(Executors.newFixedThreadPool(numberCores * 2 + 1));
+    public BackgroundExecutor provideMultiThreadExecutor(PhilmOkClient client) {
+        // Network concurrency is limited by the executor's scheduler, so the pool does not
+        // need to be bounded itself
+        return new PhilmBackgroundExecutor(Executors.newCachedThreadPool(),
+                Constants.MAX_RUNNING_TRAKT_CALLS, Constants.MAX_RUNNING_TMDB_CALLS, client);
     }
 
     @Provides @Singleton @ForDatabase
@@ -76,6 +86,17 @@ public class UtilProvider {
         return new PhilmBackgroundExecutor(Executors.newSingleThreadExecutor());
     }
 
+    @Provides @Singleton @ForComputation
+    public BackgroundExecutor provideComputationThreadExecutor() {
+        // A single thread, so that list builds run in the order they were requested
+        return new PhilmBackgroundExecutor(Executors.newSingleThreadExecutor());
+    }
+
+    @Provides @Singleton
+    public MainThreadScheduler provideMainThreadScheduler() {
+        return new AndroidMainThreadScheduler();
+    }
+
     @Provides @Singleton
     public StringFetcher provideStringFetcher(@ApplicationContext Context context) {
         return new AndroidStringFetcher(context);
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.network;
+
+/**
+ * A network client whose in-flight requests can be aborted from another thread.
+ */
+public interface AbortableClient {
+
+    /**
+     * Aborts the request currently being made on {@code thread}, if there is one. The aborted
+     * request will fail with an {@link java.io.IOException} on that thread.
+     */
+    public void abort(Thread thread);
+
+    /**
+     * Called once {@code thread} has finished with the request it was making, so that it can no
+     * longer be aborted.
+     */
+    public void release(Thread thread);
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.network;
+
+import android.util.Log;
+
+import com.google.common.base.Preconditions;
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.OkHttpClient;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import app.philm.in.Constants;
+import retrofit.client.Header;
+import retrofit.client.OkClient;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+/**
+ * Retrofit client shared by the Trakt and TMDb clients so that both use the same
+ * connection pool and disk cache. Requests to endpoints whose data rarely changes are allowed
+ * to be served from the cache for longer than the server says, using {@code max-stale}.
+ * <p>
+ * The connection most recently opened on each thread is tracked so that it can be aborted.
+ * Retrofit reads the response body after {@link #execute(Request)} returns, so a connection
+ * stays abortable until its thread calls {@link #release(Thread)}.
+ * <p>
+ * Requests made during a conditional call get their validators from {@link HttpValidators}.
+ */
+public class PhilmOkClient extends OkClient implements AbortableClient {
+
+    private static final String TAG = "PhilmOkClient";
+
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+
+    private static final String TMDB_URL = "https://api.themoviedb.org/3/";
+    private static final String TRAKT_URL = "https://api.trakt.tv/";
+
+    private static final FreshnessRule[] FRESHNESS_RULES = {
+            new FreshnessRule(TMDB_URL + "configuration", null, TimeUnit.DAYS.toSeconds(7)),
+            new FreshnessRule(TMDB_URL + "genre/", null, TimeUnit.DAYS.toSeconds(7)),
+            new FreshnessRule(TRAKT_URL + "genres/", null, TimeUnit.DAYS.toSeconds(7)),
+            new FreshnessRule(TMDB_URL + "movie/", "\\d+", TimeUnit.DAYS.toSeconds(1)),
+            new FreshnessRule(TMDB_URL + "movie/", "popular|now_playing|upcoming",
+                    TimeUnit.HOURS.toSeconds(1)),
+            new FreshnessRule(TRAKT_URL + "movies/trending.json/", null,
+                    TimeUnit.HOURS.toSeconds(1)),
+    };
+
+    /**
+     * In debug builds, the cache stats are logged after this many requests.
+     */
+    private static final int CACHE_STATS_LOG_INTERVAL = 50;
+
+    private final OkHttpClient mOkHttpClient;
+    private final HttpValidators mHttpValidators;
+    private final Map<Thread, HttpURLConnection> mConnections = new HashMap<>();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    public PhilmOkClient(OkHttpClient client, HttpValidators httpValidators) {
+        super(client);
+        mOkHttpClient = Preconditions.checkNotNull(client, "client cannot be null");
+        mHttpValidators = Preconditions.checkNotNull(httpValidators,
+                "httpValidators cannot be null");
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        final Response response = super.execute(
+                mHttpValidators.applyTo(applyFreshnessRule(request)));
+        mHttpValidators.onResponse(response);
+
+        if (Constants.DEBUG
+                && mRequestCount.incrementAndGet() % CACHE_STATS_LOG_INTERVAL == 0) {
+            logCacheStats();
+        }
+
+        return response;
+    }
+
+    public void logCacheStats() {
+        Log.d(TAG, "Cache stats. Requests: " + getCacheRequestCount()
+                + ", hits: " + getCacheHitCount()
+                + ", misses: " + getCacheMissCount());
+    }
+
+    @Override
+    protected HttpURLConnection openConnection(Request request) throws IOException {
+        final HttpURLConnection connection = super.openConnection(request);
+        synchronized (mConnections) {
+            mConnections.put(Thread.currentThread(), connection);
+        }
+        return connection;
+    }
+
+    @Override
+    public void abort(Thread thread) {
+        final HttpURLConnection connection;
+        synchronized (mConnections) {
+            connection = mConnections.remove(thread);
+        }
+        if (connection != null) {
+            if (Constants.DEBUG) {
+                Log.d(TAG, "Aborting request: " + connection.getURL());
+            }
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void release(Thread thread) {
+        synchronized (mConnections) {
+            mConnections.remove(thread);
+        }
+    }
+
+    public int getCacheRequestCount() {
+        final Cache cache = mOkHttpClient.getCache();
+        return cache != null ? cache.getRequestCount() : 0;
+    }
+
+    public int getCacheHitCount() {
+        final Cache cache = mOkHttpClient.getCache();
+        return cache != null ? cache.getHitCount() : 0;
+    }
+
+    public int getCacheMissCount() {
+        final Cache cache = mOkHttpClient.getCache();
+        return cache != null ? cache.getNetworkCount() : 0;
+    }
+
+    private static Request applyFreshnessRule(Request request) {
+        if (!"GET".equals(request.getMethod())) {
+            return request;
+        }
+
+        for (Header header : request.getHeaders()) {
+            if (HEADER_CACHE_CONTROL.equalsIgnoreCase(header.getName())) {
+                // Caller has specified its own cache policy
+                return request;
+            }
+        }
+
+        final String url = request.getUrl();
+        if (!url.startsWith(TMDB_URL) && !url.startsWith(TRAKT_URL)) {
+            // Only the API endpoints have rules, so don't bother checking them for images
+            return request;
+        }
+
+        for (FreshnessRule rule : FRESHNESS_RULES) {
+            if (rule.matches(url)) {
+                List<Header> headers = new ArrayList<>(request.getHeaders());
+                headers.add(new Header(HEADER_CACHE_CONTROL, "max-stale=" + rule.maxStaleSeconds));
+                return new Request(request.getMethod(), request.getUrl(), headers,
+                        request.getBody());
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * Matches URLs which start with {@code urlPrefix}, and if given, whose remainder starts with
+     * a match for {@code pathRegex}.
+     */
+    private static class FreshnessRule {
+        private final String urlPrefix;
+        private final Pattern pathPattern;
+        private final long maxStaleSeconds;
+
+        FreshnessRule(String urlPrefix, String pathRegex, long maxStaleSeconds) {
+            this.urlPrefix = urlPrefix;
+            this.pathPattern = pathRegex != null ? Pattern.compile(pathRegex) : null;
+            this.maxStaleSeconds = maxStaleSeconds;
+        }
+
+        boolean matches(String url) {
+            if (!url.startsWith(urlPrefix)) {
+                return false;
+            }
+            return pathPattern == null || pathPattern.matcher(url)
+                    .region(urlPrefix.length(), url.length()).lookingAt();
+        }
+    }
+
+}
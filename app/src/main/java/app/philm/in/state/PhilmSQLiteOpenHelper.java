@@ -20,19 +20,26 @@ import com.google.common.base.Preconditions;
 
 import com.crashlytics.android.Crashlytics;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import app.philm.in.Constants;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmUserProfile;
 import nl.qbusict.cupboard.DatabaseCompartment;
+import nl.qbusict.cupboard.EntityConverter;
 import nl.qbusict.cupboard.QueryResultIterable;
 
 import static nl.qbusict.cupboard.CupboardFactory.cupboard;
@@ -42,9 +49,65 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
     private static String LOG_TAG = PhilmSQLiteOpenHelper.class.getSimpleName();
 
     private static final String DATABASE_NAME = "philm.db";
-    private static final int DATABASE_VERSION = 29;
+    private static final int DATABASE_VERSION = 32;
     private static final int LAST_DATABASE_NUKE_VERSION = 28;
 
+    /**
+     * The columns needed to display, filter and search movies in lists. Library and watchlist
+     * loads only read these, skipping the overviews, taglines and other detail columns.
+     */
+    private static final String[] MOVIE_LIST_PROJECTION = {
+            "_id", "idType", "imdbId", "tmdbId",
+            "traktTitle", "tmdbTitle", "tmdbOriginalTitle", "traktSortTitle", "tmdbSortTitle",
+            "traktPosterUrl", "tmdbPosterUrl",
+            "traktInWatchlist", "traktInCollection", "traktWatched", "traktPlays",
+            "traktYear", "tmdbYear", "traktReleasedTime", "tmdbReleasedTime",
+            "traktUserRating", "traktUserRatingAdvanced",
+            "traktRatingPercent", "traktRatingVotes", "tmdbRatingPercent", "tmdbRatingVotes",
+            "tmdbIsAdult", "loadedFromTrakt", "loadedFromTmdb",
+            "lastFullFetchFromTraktCompleted", "lastFullFetchFromTmdbCompleted"
+    };
+
+    /**
+     * The prefixes of the columns filled in by a full fetch from Trakt and TMDb. A partially
+     * loaded movie is only ever written with the list columns, plus the columns of each source
+     * it has since had a full fetch from, so that the rest of its stored row is kept.
+     */
+    private static final String TRAKT_COLUMN_PREFIX = "trakt";
+    private static final String TMDB_COLUMN_PREFIX = "tmdb";
+
+    private static final int UPDATE_TRAKT_COLUMNS = 1;
+    private static final int UPDATE_TMDB_COLUMNS = 1 << 1;
+
+    // The flags are inlined, rather than bound, so that the partial indexes can be used
+    private static final String LIBRARY_SELECTION = "traktInCollection = 1 OR traktWatched = 1";
+    private static final String WATCHLIST_SELECTION = "traktInWatchlist = 1";
+
+    /**
+     * Matches {@link PhilmMovie#getSortTitle()}, so that {@link PhilmMovie#COMPARATOR_SORT_TITLE}
+     * ordering can be done by SQLite. The _id is used to break ties so that paging is stable.
+     */
+    private static final String MOVIE_SORT_KEY
+            = "IFNULL(COALESCE(NULLIF(tmdbSortTitle, ''), traktSortTitle), '')";
+    private static final String MOVIE_SORT_ORDER = MOVIE_SORT_KEY + ", _id";
+    private static final String MOVIE_SORT_AFTER = "(" + MOVIE_SORT_KEY + " > ? OR ("
+            + MOVIE_SORT_KEY + " = ? AND _id > ?))";
+
+    private static final String[] MOVIE_INDEXED_FLAGS = {
+            "traktInCollection", "traktWatched", "traktInWatchlist"
+    };
+
+    /**
+     * The columns {@link #getMovie(String)} looks movies up by. Each side of its OR is answered
+     * from its own index, rather than by scanning the table.
+     */
+    private static final String[] MOVIE_INDEXED_IDS = {"imdbId", "tmdbId"};
+
+    /**
+     * Partial indexes were added in SQLite 3.8.0 (Android 5.0).
+     */
+    private static final int[] PARTIAL_INDEX_MIN_SQLITE_VERSION = {3, 8, 0};
+
     private static final Class[] ENTITIES = new Class[]{PhilmMovie.class, PhilmUserProfile.class};
 
     static {
@@ -56,6 +119,15 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
 
     private boolean mIsClosed;
 
+    private List<EntityConverter.Column> mMovieColumns;
+    private String mMovieInsertSql;
+    private String mMovieDeleteSql;
+    /**
+     * The columns and SQL of the partial updates, indexed by {@code UPDATE_*} flags.
+     */
+    private String[][] mMovieUpdateColumns;
+    private String[] mMovieUpdateSql;
+
     public PhilmSQLiteOpenHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -65,7 +137,7 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         // this will ensure that all tables are created
         cupboard().withDatabase(db).createTables();
 
-        // TODO: add indexes and other database tweaks
+        createIndexes(db);
     }
 
     @Override
@@ -80,42 +152,58 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
             // this will upgrade tables, adding columns and new tables.
             // Note that existing columns will not be converted
             cupboard().withDatabase(db).upgradeTables();
+
+            createIndexes(db);
         }
     }
 
     @Override
     public List<PhilmMovie> getLibrary() {
-        return queryMovies("traktInCollection = ? OR traktWatched = ?", "1", "1");
+        return queryMovieListItems(LIBRARY_SELECTION, null, 0);
+    }
+
+    @Override
+    public List<PhilmMovie> getLibrary(PhilmMovie after, int limit) {
+        return queryMovieListPage(LIBRARY_SELECTION, after, limit);
     }
 
     @Override
     public List<PhilmMovie> getWatchlist() {
-        return queryMovies("traktInWatchlist = ?", "1");
+        return queryMovieListItems(WATCHLIST_SELECTION, null, 0);
     }
 
     @Override
-    public void put(PhilmMovie movie) {
+    public List<PhilmMovie> getWatchlist(PhilmMovie after, int limit) {
+        return queryMovieListPage(WATCHLIST_SELECTION, after, limit);
+    }
+
+    @Override
+    public PhilmMovie getMovie(String id) {
         assetNotClosed();
 
         try {
-            cupboard().withDatabase(getWritableDatabase()).put(movie);
+            return cupboard().withDatabase(getReadableDatabase())
+                    .query(PhilmMovie.class)
+                    .withSelection("imdbId = ? OR tmdbId = ?", id, id)
+                    .get();
         } catch (Exception e) {
             Crashlytics.logException(e);
+            return null;
         }
     }
 
+    @Override
+    public void put(PhilmMovie movie) {
+        put(Collections.singletonList(movie), Collections.<PhilmMovie>emptyList());
+    }
+
     @Override
     public void put(Collection<PhilmMovie> movies) {
-        assetNotClosed();
-        try {
-            cupboard().withDatabase(getWritableDatabase()).put(movies);
-        } catch (Exception e) {
-            Crashlytics.logException(e);
-        }
+        put(movies, Collections.<PhilmMovie>emptyList());
     }
 
     @Override
-    public void delete(Collection<PhilmMovie> movies) {
+    public void put(Collection<PhilmMovie> movies, Collection<PhilmMovie> deleted) {
         assetNotClosed();
 
         SQLiteDatabase db = null;
@@ -123,9 +211,11 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         try {
             db = getWritableDatabase();
             db.beginTransaction();
-            final DatabaseCompartment dbc = cupboard().withDatabase(db);
-            for (PhilmMovie movie : movies) {
-                dbc.delete(movie);
+            if (!deleted.isEmpty()) {
+                deleteMovies(db, deleted);
+            }
+            if (!movies.isEmpty()) {
+                putMovies(db, movies);
             }
             db.setTransactionSuccessful();
         } catch (Exception e) {
@@ -137,6 +227,11 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         }
     }
 
+    @Override
+    public void delete(Collection<PhilmMovie> movies) {
+        put(Collections.<PhilmMovie>emptyList(), movies);
+    }
+
     @Override
     public PhilmUserProfile getUserProfile(String username) {
         assetNotClosed();
@@ -200,25 +295,262 @@ public class PhilmSQLiteOpenHelper extends SQLiteOpenHelper implements DatabaseH
         }
     }
 
+    /**
+     * Writes {@code movies} using a single compiled {@code INSERT OR REPLACE} statement, rather
+     * than letting Cupboard build a new query for each movie. Must be called within a transaction.
+     */
+    private void putMovies(SQLiteDatabase db, Collection<PhilmMovie> movies) {
+        final EntityConverter<PhilmMovie> converter
+                = cupboard().getEntityConverter(PhilmMovie.class);
+        prepareMovieStatements(converter);
+
+        final List<EntityConverter.Column> columns = mMovieColumns;
+        final ContentValues values = new ContentValues(columns.size());
+        final SQLiteStatement statement = db.compileStatement(mMovieInsertSql);
+        final SQLiteStatement[] updateStatements = new SQLiteStatement[mMovieUpdateSql.length];
+
+        try {
+            for (PhilmMovie movie : movies) {
+                values.clear();
+                converter.toValues(movie, values);
+
+                if (movie.isPartiallyLoaded() && movie.hasDbId()) {
+                    // Only update the columns we have, so we do not lose the other detail columns
+                    int update = 0;
+                    if (movie.isTraktDetailsLoaded()) {
+                        update |= UPDATE_TRAKT_COLUMNS;
+                    }
+                    if (movie.isTmdbDetailsLoaded()) {
+                        update |= UPDATE_TMDB_COLUMNS;
+                    }
+                    if (updateStatements[update] == null) {
+                        updateStatements[update] = db.compileStatement(mMovieUpdateSql[update]);
+                    }
+                    final SQLiteStatement updateStatement = updateStatements[update];
+                    final String[] updateColumns = mMovieUpdateColumns[update];
+
+                    updateStatement.clearBindings();
+                    final int z = updateColumns.length;
+                    for (int i = 0; i < z; i++) {
+                        bindValue(updateStatement, i + 1, values.get(updateColumns[i]));
+                    }
+                    updateStatement.bindLong(z + 1, movie.getDbId());
+
+                    // If the row has since gone, there is nothing to keep so insert it instead
+                    if (updateStatement.executeUpdateDelete() > 0) {
+                        continue;
+                    }
+                }
+
+                statement.clearBindings();
+                for (int i = 0, z = columns.size(); i < z; i++) {
+                    bindValue(statement, i + 1, values.get(columns.get(i).name));
+                }
+
+                final long id = statement.executeInsert();
+                if (id != -1 && !movie.hasDbId()) {
+                    converter.setId(id, movie);
+                }
+            }
+        } finally {
+            statement.close();
+            for (SQLiteStatement updateStatement : updateStatements) {
+                if (updateStatement != null) {
+                    updateStatement.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called within a transaction.
+     */
+    private void deleteMovies(SQLiteDatabase db, Collection<PhilmMovie> movies) {
+        prepareMovieStatements(cupboard().getEntityConverter(PhilmMovie.class));
+
+        final SQLiteStatement statement = db.compileStatement(mMovieDeleteSql);
+        try {
+            for (PhilmMovie movie : movies) {
+                if (movie.hasDbId()) {
+                    statement.bindLong(1, movie.getDbId());
+                    statement.executeUpdateDelete();
+                }
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    private synchronized void prepareMovieStatements(EntityConverter<PhilmMovie> converter) {
+        if (mMovieInsertSql != null) {
+            return;
+        }
+
+        final List<EntityConverter.Column> columns = converter.getColumns();
+        final String table = converter.getTable();
+
+        final StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ")
+                .append(table).append(" (");
+        for (int i = 0, z = columns.size(); i < z; i++) {
+            sql.append(i > 0 ? "," : "").append(columns.get(i).name);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0, z = columns.size(); i < z; i++) {
+            sql.append(i > 0 ? ",?" : "?");
+        }
+        sql.append(')');
+
+        final int updates = (UPDATE_TRAKT_COLUMNS | UPDATE_TMDB_COLUMNS) + 1;
+        final String[][] updateColumns = new String[updates][];
+        final String[] updateSql = new String[updates];
+        for (int update = 0; update < updates; update++) {
+            final Set<String> updateColumnSet = new LinkedHashSet<>();
+            Collections.addAll(updateColumnSet, MOVIE_LIST_PROJECTION);
+            for (int i = 0, z = columns.size(); i < z; i++) {
+                final String name = columns.get(i).name;
+                if (((update & UPDATE_TRAKT_COLUMNS) != 0 && name.startsWith(TRAKT_COLUMN_PREFIX))
+                        || ((update & UPDATE_TMDB_COLUMNS) != 0
+                        && name.startsWith(TMDB_COLUMN_PREFIX))) {
+                    updateColumnSet.add(name);
+                }
+            }
+            updateColumns[update] = updateColumnSet.toArray(new String[updateColumnSet.size()]);
+            updateSql[update] = buildMovieUpdateSql(table, updateColumns[update]);
+        }
+
+        mMovieColumns = columns;
+        mMovieDeleteSql = "DELETE FROM " + table + " WHERE _id = ?";
+        mMovieUpdateColumns = updateColumns;
+        mMovieUpdateSql = updateSql;
+        mMovieInsertSql = sql.toString();
+    }
+
+    private static String buildMovieUpdateSql(String table, String[] columns) {
+        final StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 0, z = columns.length; i < z; i++) {
+            sql.append(i > 0 ? "," : "").append(columns[i]).append("=?");
+        }
+        return sql.append(" WHERE _id = ?").toString();
+    }
+
+    private static void createIndexes(SQLiteDatabase db) {
+        final String table = cupboard().getEntityConverter(PhilmMovie.class).getTable();
+        final boolean partial = isSqliteVersionAtLeast(db, PARTIAL_INDEX_MIN_SQLITE_VERSION);
+
+        for (String column : MOVIE_INDEXED_FLAGS) {
+            final StringBuilder sql = new StringBuilder("CREATE INDEX IF NOT EXISTS ")
+                    .append(table).append('_').append(column)
+                    .append(" ON ").append(table).append(" (").append(column).append(')');
+            if (partial) {
+                // Only the flagged rows are ever queried, so there is no need to index the rest
+                sql.append(" WHERE ").append(column).append(" = 1");
+            }
+            db.execSQL(sql.toString());
+        }
+
+        for (String column : MOVIE_INDEXED_IDS) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + table + '_' + column
+                    + " ON " + table + " (" + column + ')');
+        }
+    }
+
+    private static boolean isSqliteVersionAtLeast(SQLiteDatabase db, int[] minVersion) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT sqlite_version()", null);
+            if (!cursor.moveToFirst()) {
+                return false;
+            }
+
+            final String[] version = cursor.getString(0).split("\\.");
+            for (int i = 0; i < minVersion.length; i++) {
+                final int part = i < version.length ? Integer.parseInt(version[i]) : 0;
+                if (part != minVersion[i]) {
+                    return part > minVersion[i];
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            Crashlytics.logException(e);
+            return false;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static void bindValue(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof String) {
+            statement.bindString(index, (String) value);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, ((Boolean) value) ? 1 : 0);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
     private void assetNotClosed() {
         Preconditions.checkState(!mIsClosed, "Database is closed");
     }
 
-    private List<PhilmMovie> queryMovies(String selection, String... selectionArgs) {
+    private List<PhilmMovie> queryMovieListPage(String selection, PhilmMovie after, int limit) {
+        if (after == null) {
+            return queryMovieListItems(selection, MOVIE_SORT_ORDER, limit);
+        }
+
+        final String sortTitle = after.getSortTitle() != null ? after.getSortTitle() : "";
+        return queryMovieListItems("(" + selection + ") AND " + MOVIE_SORT_AFTER,
+                MOVIE_SORT_ORDER, limit,
+                sortTitle, sortTitle, String.valueOf(after.getDbId()));
+    }
+
+    /**
+     * @param orderBy order to return the rows in, or null for any order
+     * @param limit maximum number of rows to return, or 0 for no limit
+     */
+    private List<PhilmMovie> queryMovieListItems(String selection, String orderBy, int limit,
+            String... selectionArgs) {
         assetNotClosed();
         QueryResultIterable<PhilmMovie> itr = null;
 
         try {
-            itr = cupboard().withDatabase(getReadableDatabase()).query(PhilmMovie.class)
-                    .withSelection(selection, selectionArgs)
-                    .query();
+            DatabaseCompartment.QueryBuilder<PhilmMovie> query
+                    = cupboard().withDatabase(getReadableDatabase()).query(PhilmMovie.class)
+                    .withProjection(MOVIE_LIST_PROJECTION)
+                    .withSelection(selection, selectionArgs);
+            if (orderBy != null) {
+                query = query.orderBy(orderBy);
+            }
+            if (limit > 0) {
+                query = query.limit(limit);
+            }
+            itr = query.query();
+
+            // Iterate through the cursor rather than using list(), so that we can mark each
+            // movie as we go
+            final List<PhilmMovie> movies = new ArrayList<>(limit > 0 ? limit : 64);
+            for (PhilmMovie movie : itr) {
+                movie.markPartiallyLoaded();
+                movies.add(movie);
+            }
+            return movies;
+        } catch (Exception e) {
+            Crashlytics.logException(e);
+            return null;
         } finally {
             if (itr != null) {
                 itr.close();
-                itr = null;
             }
         }
-
-        return itr != null ? itr.list() : null;
     }
 }
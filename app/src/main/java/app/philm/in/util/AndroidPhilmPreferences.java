@@ -24,6 +24,8 @@ public class AndroidPhilmPreferences implements PhilmPreferences {
 
     private static final String KEY_REMOVE_WATCHLIST_ON_WATCHED = "remove_watchlist_on_watched";
     private static final String KEY_SHOWN_TRAKT_LOGIN_PROMPT = "shown_trakt_login_prompt";
+    private static final String KEY_LIBRARY_SYNC_CURSOR = "library_sync_cursor_";
+    private static final String KEY_WATCHLIST_SYNC_CURSOR = "watchlist_sync_cursor_";
 
     private final SharedPreferences mPrefs;
 
@@ -50,4 +52,24 @@ public class AndroidPhilmPreferences implements PhilmPreferences {
     public void setShownTraktLoginPrompt() {
         mPrefs.edit().putBoolean(KEY_SHOWN_TRAKT_LOGIN_PROMPT, true).apply();
     }
+
+    @Override
+    public long getLibrarySyncCursor(String username) {
+        return mPrefs.getLong(KEY_LIBRARY_SYNC_CURSOR + username, 0);
+    }
+
+    @Override
+    public void setLibrarySyncCursor(String username, long cursor) {
+        mPrefs.edit().putLong(KEY_LIBRARY_SYNC_CURSOR + username, cursor).apply();
+    }
+
+    @Override
+    public long getWatchlistSyncCursor(String username) {
+        return mPrefs.getLong(KEY_WATCHLIST_SYNC_CURSOR + username, 0);
+    }
+
+    @Override
+    public void setWatchlistSyncCursor(String username, long cursor) {
+        mPrefs.edit().putLong(KEY_WATCHLIST_SYNC_CURSOR + username, cursor).apply();
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import app.philm.in.Constants;
+import app.philm.in.network.NetworkError;
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+
+/**
+ * Decides when failed network calls are retried, and keeps a circuit breaker for each API.
+ * <p>
+ * Calls which fail because of the network or a server error are retried with a capped,
+ * exponentially growing delay. The delay is jittered so that calls which failed together do not
+ * retry together. Once an API has failed {@link Constants#CIRCUIT_BREAKER_FAILURE_THRESHOLD}
+ * times in a row its breaker opens, and calls to it fail straight away. After
+ * {@link Constants#CIRCUIT_BREAKER_OPEN_MILLIS} a single trial call is let through, which
+ * closes the breaker again if it succeeds.
+ */
+class NetworkRetryPolicy {
+
+    private static final int NUMBER_SOURCES = 2;
+
+    private static final int STATE_CLOSED = 0;
+    private static final int STATE_OPEN = 1;
+    private static final int STATE_HALF_OPEN = 2;
+
+    private final Random mRandom = new Random();
+    private final int[] mState = new int[NUMBER_SOURCES];
+    private final int[] mConsecutiveFailures = new int[NUMBER_SOURCES];
+    private final long[] mOpenedAt = new long[NUMBER_SOURCES];
+
+    /**
+     * @return true if a call to {@code source} can be made. False if its breaker is open, in
+     * which case the call should fail without being made.
+     */
+    synchronized boolean tryAcquire(int source) {
+        switch (mState[source]) {
+            case STATE_OPEN:
+                if (SystemClock.elapsedRealtime() - mOpenedAt[source]
+                        < Constants.CIRCUIT_BREAKER_OPEN_MILLIS) {
+                    return false;
+                }
+                // Let this call through to see if the API has recovered
+                mState[source] = STATE_HALF_OPEN;
+                return true;
+            case STATE_HALF_OPEN:
+                // Wait for the trial call to finish
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Records the outcome of a call allowed by {@link #tryAcquire(int)}.
+     *
+     * @param error the call's error, or null if it succeeded
+     */
+    synchronized void onCallFinished(int source, RetrofitError error) {
+        if (error == null || !isServiceFailure(error)) {
+            // Even an error response shows that the API is up
+            mState[source] = STATE_CLOSED;
+            mConsecutiveFailures[source] = 0;
+            return;
+        }
+
+        mConsecutiveFailures[source]++;
+        if (mState[source] == STATE_HALF_OPEN
+                || mConsecutiveFailures[source] >= Constants.CIRCUIT_BREAKER_FAILURE_THRESHOLD) {
+            mState[source] = STATE_OPEN;
+            mOpenedAt[source] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * Records that a call allowed by {@link #tryAcquire(int)} was cancelled, so its outcome says
+     * nothing about the API.
+     */
+    synchronized void onCallAbandoned(int source) {
+        if (mState[source] == STATE_HALF_OPEN) {
+            // Let the next call be the trial instead
+            mState[source] = STATE_OPEN;
+        }
+    }
+
+    /**
+     * @param attempt how many attempts have been made so far, starting at 1
+     * @return true if a call which failed with {@code error} should be made again. The caller
+     * is responsible for only retrying calls which are safe to repeat.
+     */
+    synchronized boolean shouldRetry(int source, RetrofitError error, int attempt) {
+        return attempt < Constants.NETWORK_RETRY_MAX_ATTEMPTS
+                && mState[source] == STATE_CLOSED
+                && isServiceFailure(error);
+    }
+
+    /**
+     * @param attempt how many attempts have been made so far, starting at 1
+     * @return how long to wait before the next attempt
+     */
+    synchronized long getRetryDelay(int attempt) {
+        final long delay = Math.min(Constants.NETWORK_RETRY_MAX_DELAY_MILLIS,
+                Constants.NETWORK_RETRY_BASE_DELAY_MILLIS << Math.min(attempt - 1, 16));
+        // Wait for at least half of the delay, so that retries are never made straight away
+        return delay / 2 + (long) (mRandom.nextDouble() * (delay / 2));
+    }
+
+    /**
+     * @return the error given to calls which are not made because the breaker for their API is
+     * open. It is a network error, so that journaled changes are kept to be sent later.
+     */
+    static RetrofitError createCircuitOpenError(String name, int source) {
+        final String api = source == NetworkError.SOURCE_TMDB ? "TMDb" : "Trakt";
+        return RetrofitError.networkError(name,
+                new IOException(api + " is failing, so the call was not made"));
+    }
+
+    /**
+     * @return true if {@code error} is a 429 response, meaning that we are making calls faster
+     * than the API allows. The call was not processed, so it is always safe to make again.
+     */
+    static boolean isRateLimited(RetrofitError error) {
+        final Response response = error.getResponse();
+        return response != null && response.getStatus() == 429;
+    }
+
+    /**
+     * @return how long a rate limited response asked us to wait for, using its
+     * {@code Retry-After} header. The header can either be a number of seconds or a date.
+     */
+    static long getRetryAfterMillis(RetrofitError error) {
+        final Response response = error.getResponse();
+        if (response != null && response.getHeaders() != null) {
+            for (Header header : response.getHeaders()) {
+                if ("Retry-After".equalsIgnoreCase(header.getName()) && header.getValue() != null) {
+                    final long millis = parseRetryAfter(header.getValue().trim());
+                    if (millis >= 0) {
+                        return millis;
+                    }
+                }
+            }
+        }
+        return Constants.RATE_LIMITED_DEFAULT_PAUSE_MILLIS;
+    }
+
+    private static long parseRetryAfter(String value) {
+        try {
+            return Long.parseLong(value) * 1000;
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, so try a date
+        }
+
+        final SimpleDateFormat format
+                = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            final Date date = format.parse(value);
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return true if {@code error} suggests that the API, or the network to it, is failing
+     */
+    private static boolean isServiceFailure(RetrofitError error) {
+        if (error.isNetworkError()) {
+            return true;
+        }
+        final Response response = error.getResponse();
+        return response != null && response.getStatus() >= 500;
+    }
+
+}
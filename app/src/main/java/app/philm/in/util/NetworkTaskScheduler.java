@@ -0,0 +1,312 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+
+import app.philm.in.Constants;
+import app.philm.in.network.NetworkCallRunnable;
+import app.philm.in.network.NetworkError;
+
+/**
+ * Schedules network tasks in priority lanes (interactive, prefetch and sync), with a separate
+ * concurrency limit for each API. Queued interactive tasks always start before queued prefetch
+ * or sync tasks, and the lower priority lanes can not use every slot, so there is always room
+ * for an interactive task to start promptly.
+ * <p>
+ * Each lane's queue is bounded. When a lane is full, its oldest queued task is dropped.
+ * <p>
+ * Each API also has a {@link TokenBucket}, which smooths out bursts of calls so that we stay
+ * within its rate limit. Tasks wait in their queue for a token, so the highest priority task
+ * always gets the next one.
+ */
+class NetworkTaskScheduler {
+
+    private static final String TAG = "NetworkTaskScheduler";
+
+    private static final int NUMBER_SOURCES = 2;
+    private static final int NUMBER_PRIORITIES = 3;
+
+    private static final int[] QUEUE_CAPACITY = {32, 16, 16};
+
+    interface Task extends Runnable {
+        /**
+         * @return one of {@link NetworkError#SOURCE_TRAKT} or {@link NetworkError#SOURCE_TMDB}
+         */
+        int getSource();
+
+        /**
+         * @return one of the {@code NetworkCallRunnable.PRIORITY_*} constants
+         */
+        int getPriority();
+
+        /**
+         * @return true if the task may be dropped when its queue is full. Only idempotent reads,
+         * which will be made again when next needed, should be dropped.
+         */
+        boolean isDroppable();
+
+        /**
+         * Called if the task is dropped from its queue without being run.
+         */
+        void onDropped();
+    }
+
+    private final ExecutorService mExecutorService;
+    private final int[] mMaxRunning = new int[NUMBER_SOURCES];
+    private final int[] mRunning = new int[NUMBER_SOURCES];
+    private final ArrayDeque<Task>[][] mQueues;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final TokenBucket[] mRateLimiters = new TokenBucket[NUMBER_SOURCES];
+    private final Runnable[] mDispatchRunnables = new Runnable[NUMBER_SOURCES];
+    private final boolean[] mDispatchPosted = new boolean[NUMBER_SOURCES];
+
+    /**
+     * When each API's rate limiter started holding back a task, or 0 if it is not. Used to
+     * measure how long tasks wait for the limiter.
+     */
+    private final long[] mLimitedSince = new long[NUMBER_SOURCES];
+    private final long[] mLimitedCount = new long[NUMBER_SOURCES];
+    private final long[] mLimitedTotalMillis = new long[NUMBER_SOURCES];
+    private final long[] mLimitedMaxMillis = new long[NUMBER_SOURCES];
+
+    @SuppressWarnings("unchecked")
+    NetworkTaskScheduler(ExecutorService executorService, int maxRunningTrakt,
+            int maxRunningTmdb) {
+        mExecutorService = Preconditions.checkNotNull(executorService,
+                "executorService cannot be null");
+        Preconditions.checkArgument(maxRunningTrakt > 0, "maxRunningTrakt must be > 0");
+        Preconditions.checkArgument(maxRunningTmdb > 0, "maxRunningTmdb must be > 0");
+
+        mMaxRunning[NetworkError.SOURCE_TRAKT] = maxRunningTrakt;
+        mMaxRunning[NetworkError.SOURCE_TMDB] = maxRunningTmdb;
+
+        mQueues = new ArrayDeque[NUMBER_SOURCES][NUMBER_PRIORITIES];
+        for (int source = 0; source < NUMBER_SOURCES; source++) {
+            for (int priority = 0; priority < NUMBER_PRIORITIES; priority++) {
+                mQueues[source][priority] = new ArrayDeque<>();
+            }
+
+            final int dispatchSource = source;
+            mDispatchRunnables[source] = new Runnable() {
+                @Override
+                public void run() {
+                    onDispatchDue(dispatchSource);
+                }
+            };
+        }
+
+        mRateLimiters[NetworkError.SOURCE_TRAKT] = new TokenBucket(
+                Constants.TRAKT_RATE_LIMIT_BURST, Constants.TRAKT_RATE_LIMIT_PER_SECOND);
+        mRateLimiters[NetworkError.SOURCE_TMDB] = new TokenBucket(
+                Constants.TMDB_RATE_LIMIT_BURST, Constants.TMDB_RATE_LIMIT_PER_SECOND);
+    }
+
+    void schedule(Task task) {
+        Task dropped = null;
+
+        synchronized (this) {
+            final ArrayDeque<Task> queue = getQueue(task.getSource(), task.getPriority());
+            if (queue.size() >= QUEUE_CAPACITY[task.getPriority()]) {
+                dropped = removeOldestDroppable(queue);
+            }
+            // If nothing could be dropped the queue goes over capacity, rather than losing writes
+            queue.addLast(task);
+            dispatchLocked(task.getSource());
+        }
+
+        if (dropped != null) {
+            if (Constants.DEBUG) {
+                Log.d(TAG, "Queue full, dropping task: " + dropped);
+            }
+            dropped.onDropped();
+        }
+    }
+
+    private static Task removeOldestDroppable(ArrayDeque<Task> queue) {
+        for (Iterator<Task> i = queue.iterator(); i.hasNext(); ) {
+            final Task task = i.next();
+            if (task.isDroppable()) {
+                i.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes {@code task} if it is still queued.
+     *
+     * @return true if the task was removed, false if it has already started
+     */
+    synchronized boolean remove(Task task) {
+        for (int priority = 0; priority < NUMBER_PRIORITIES; priority++) {
+            if (getQueue(task.getSource(), priority).remove(task)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves {@code task} to the lane for its current priority, if it is still queued. Used when
+     * a task's priority has been raised since it was scheduled.
+     */
+    synchronized void reprioritize(Task task) {
+        final int source = task.getSource();
+        final ArrayDeque<Task> target = getQueue(source, task.getPriority());
+
+        for (int priority = 0; priority < NUMBER_PRIORITIES; priority++) {
+            final ArrayDeque<Task> queue = getQueue(source, priority);
+            if (queue != target && queue.remove(task)) {
+                target.addLast(task);
+                dispatchLocked(source);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops any tasks for {@code source} starting for {@code millis}, as the API has told us that
+     * we are making too many calls.
+     */
+    synchronized void pause(int source, long millis) {
+        if (Constants.DEBUG) {
+            Log.d(TAG, "Pausing source " + source + " for " + millis + "ms");
+        }
+        mRateLimiters[source].pauseUntil(SystemClock.elapsedRealtime() + millis);
+    }
+
+    /**
+     * @return how often tasks for {@code source} have been held back by its rate limiter, and
+     * for how long.
+     */
+    synchronized PhilmBackgroundExecutor.RateLimiterStats getRateLimiterStats(int source) {
+        return new PhilmBackgroundExecutor.RateLimiterStats(mLimitedCount[source],
+                mLimitedTotalMillis[source], mLimitedMaxMillis[source]);
+    }
+
+    private void dispatchLocked(int source) {
+        for (int priority = 0; priority < NUMBER_PRIORITIES; priority++) {
+            final ArrayDeque<Task> queue = mQueues[source][priority];
+            final int limit = getRunningLimit(source, priority);
+
+            while (!queue.isEmpty() && mRunning[source] < limit) {
+                final long now = SystemClock.elapsedRealtime();
+                final long wait = mRateLimiters[source].tryAcquire(now);
+                if (wait > 0) {
+                    if (mLimitedSince[source] == 0) {
+                        mLimitedSince[source] = now;
+                    }
+                    postDispatchLocked(source, wait);
+                    return;
+                }
+                if (mLimitedSince[source] != 0) {
+                    recordLimitedLocked(source, now - mLimitedSince[source]);
+                    mLimitedSince[source] = 0;
+                }
+
+                mRunning[source]++;
+                mExecutorService.execute(new SlotRunner(queue.pollFirst()));
+            }
+
+            if (!queue.isEmpty()) {
+                // Lower priority lanes can not start before this one has drained
+                return;
+            }
+        }
+
+        // Nothing is waiting, for example because queued tasks were cancelled
+        mLimitedSince[source] = 0;
+    }
+
+    private synchronized void onTaskFinished(int source) {
+        mRunning[source]--;
+        dispatchLocked(source);
+    }
+
+    private synchronized void onDispatchDue(int source) {
+        mDispatchPosted[source] = false;
+        dispatchLocked(source);
+    }
+
+    private void postDispatchLocked(int source, long delay) {
+        if (!mDispatchPosted[source]) {
+            mDispatchPosted[source] = true;
+            mHandler.postDelayed(mDispatchRunnables[source], delay);
+        }
+    }
+
+    private void recordLimitedLocked(int source, long waitMillis) {
+        mLimitedCount[source]++;
+        mLimitedTotalMillis[source] += waitMillis;
+        mLimitedMaxMillis[source] = Math.max(mLimitedMaxMillis[source], waitMillis);
+
+        if (Constants.DEBUG) {
+            Log.d(TAG, "Rate limiter held source " + source + " for " + waitMillis + "ms. "
+                    + getRateLimiterStats(source));
+        }
+    }
+
+    /**
+     * Interactive tasks can use every slot. Prefetch tasks leave one free, and sync tasks can
+     * use at most half of them.
+     */
+    private int getRunningLimit(int source, int priority) {
+        final int max = mMaxRunning[source];
+        switch (priority) {
+            case NetworkCallRunnable.PRIORITY_PREFETCH:
+                return Math.max(1, max - 1);
+            case NetworkCallRunnable.PRIORITY_SYNC:
+                return Math.max(1, max / 2);
+            default:
+                return max;
+        }
+    }
+
+    private ArrayDeque<Task> getQueue(int source, int priority) {
+        return mQueues[source][priority];
+    }
+
+    private class SlotRunner implements Runnable {
+        private final Task mTask;
+
+        SlotRunner(Task task) {
+            mTask = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mTask.run();
+            } finally {
+                onTaskFinished(mTask.getSource());
+            }
+        }
+    }
+
+}
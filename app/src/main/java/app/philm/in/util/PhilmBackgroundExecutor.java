@@ -23,36 +23,167 @@ import android.util.Log;
 
 import com.google.common.base.Preconditions;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import app.philm.in.Constants;
+import app.philm.in.network.AbortableClient;
 import app.philm.in.network.BackgroundCallRunnable;
 import app.philm.in.network.NetworkCallRunnable;
 import retrofit.RetrofitError;
 
 public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
+    private static final String TAG = "PhilmBackgroundExecutor";
+
     private static final Handler sHandler = new Handler(Looper.getMainLooper());
 
     private final ExecutorService mExecutorService;
-
+    private final NetworkTaskScheduler mScheduler;
+    private final NetworkRetryPolicy mRetryPolicy;
+    private final AbortableClient mAbortableClient;
+    private final Map<String, TraktNetworkRunner<?>> mInFlightRunners = new HashMap<>();
+    private final Set<TraktNetworkRunner<?>> mActiveRunners = new LinkedHashSet<>();
+
+    /**
+     * Creates an executor which runs every task on {@code executorService}, in the order they
+     * are executed.
+     */
     public PhilmBackgroundExecutor(ExecutorService executorService) {
         mExecutorService = Preconditions.checkNotNull(executorService,
                 "executorService cannot be null");
+        mScheduler = null;
+        mRetryPolicy = null;
+        mAbortableClient = null;
+    }
+
+    /**
+     * Creates an executor which schedules network calls by priority, running at most
+     * {@code maxRunningTrakt} Trakt calls and {@code maxRunningTmdb} TMDb calls at once. Calls
+     * which are cancelled while running are aborted using {@code abortableClient}. Calls which
+     * fail are retried using a {@link NetworkRetryPolicy}.
+     */
+    public PhilmBackgroundExecutor(ExecutorService executorService, int maxRunningTrakt,
+            int maxRunningTmdb, AbortableClient abortableClient) {
+        mExecutorService = Preconditions.checkNotNull(executorService,
+                "executorService cannot be null");
+        mAbortableClient = Preconditions.checkNotNull(abortableClient,
+                "abortableClient cannot be null");
+        mScheduler = new NetworkTaskScheduler(executorService, maxRunningTrakt, maxRunningTmdb);
+        mRetryPolicy = new NetworkRetryPolicy();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> TaskHandle execute(NetworkCallRunnable<R> runnable) {
+        final String requestKey = runnable.getRequestKey();
+
+        TraktNetworkRunner<R> runner;
+        if (requestKey != null) {
+            synchronized (mInFlightRunners) {
+                runner = (TraktNetworkRunner<R>) mInFlightRunners.get(requestKey);
+                if (runner != null) {
+                    final int priority = runner.getPriority();
+                    final Subscriber<R> subscriber = runner.addRunnable(runnable);
+                    if (subscriber != null) {
+                        if (Constants.DEBUG) {
+                            Log.d(TAG, "Sharing in-flight request: " + requestKey);
+                        }
+                        if (runner.getPriority() < priority && mScheduler != null) {
+                            mScheduler.reprioritize(runner);
+                        }
+                        return subscriber;
+                    }
+                    // The in-flight call has been cancelled, so start a new one
+                }
+
+                runner = new TraktNetworkRunner<>(runnable, requestKey);
+                mInFlightRunners.put(requestKey, runner);
+            }
+        } else {
+            runner = new TraktNetworkRunner<>(runnable, null);
+        }
+
+        schedule(runner);
+        return runner.mFirstSubscriber;
     }
 
+    /**
+     * Cancels every network call made for {@code callingId}, whether it is queued or running.
+     * Only calls which have a request key (which are reads) are cancelled; writes are always
+     * run so that their results reach the app's state.
+     */
     @Override
-    public <R> void execute(NetworkCallRunnable<R> runnable) {
-        mExecutorService.execute(new TraktNetworkRunner<>(runnable));
+    public void cancelAll(int callingId) {
+        if (callingId == 0) {
+            return;
+        }
+
+        final List<TraktNetworkRunner<?>> runners;
+        synchronized (mActiveRunners) {
+            runners = new ArrayList<>(mActiveRunners);
+        }
+
+        for (TraktNetworkRunner<?> runner : runners) {
+            if (runner.mRequestKey != null) {
+                runner.cancelCallingId(callingId);
+            }
+        }
+    }
+
+    private void schedule(TraktNetworkRunner<?> runner) {
+        synchronized (mActiveRunners) {
+            mActiveRunners.add(runner);
+        }
+        if (mScheduler != null) {
+            mScheduler.schedule(runner);
+        } else {
+            mExecutorService.execute(runner);
+        }
+    }
+
+    private void removeRunner(TraktNetworkRunner<?> runner) {
+        synchronized (mActiveRunners) {
+            mActiveRunners.remove(runner);
+        }
+        removeInFlightRunner(runner);
+    }
+
+    private void removeInFlightRunner(TraktNetworkRunner<?> runner) {
+        if (runner.mRequestKey != null) {
+            synchronized (mInFlightRunners) {
+                if (mInFlightRunners.get(runner.mRequestKey) == runner) {
+                    mInFlightRunners.remove(runner.mRequestKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return how often calls to {@code source} have been held back to stay within its rate
+     * limit, or null if this executor does not limit calls.
+     */
+    public RateLimiterStats getRateLimiterStats(int source) {
+        return mScheduler != null ? mScheduler.getRateLimiterStats(source) : null;
     }
 
     @Override
-    public <R> void execute(BackgroundCallRunnable<R> runnable) {
-        mExecutorService.execute(new BackgroundCallRunner<>(runnable));
+    public <R> TaskHandle execute(BackgroundCallRunnable<R> runnable) {
+        final BackgroundCallRunner<R> runner = new BackgroundCallRunner<>(runnable);
+        mExecutorService.execute(runner);
+        return runner;
     }
 
-    private class BackgroundCallRunner<R> implements Runnable {
+    private class BackgroundCallRunner<R> implements Runnable, TaskHandle {
         private final BackgroundCallRunnable<R> mBackgroundRunnable;
+        private volatile boolean mCancelled;
+        private volatile boolean mFinished;
 
         BackgroundCallRunner(BackgroundCallRunnable<R> runnable) {
             mBackgroundRunnable = runnable;
@@ -60,12 +191,19 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
         @Override
         public final void run() {
+            if (mCancelled) {
+                mFinished = true;
+                return;
+            }
+
             Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
 
             sHandler.post(new Runnable() {
                 @Override
                 public void run() {
-                    mBackgroundRunnable.preExecute();
+                    if (!mCancelled) {
+                        mBackgroundRunnable.preExecute();
+                    }
                 }
             });
 
@@ -74,6 +212,21 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
             sHandler.post(new ResultCallback(result));
         }
 
+        @Override
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return mFinished;
+        }
+
         private class ResultCallback implements Runnable {
             private final R mResult;
 
@@ -83,45 +236,277 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
             @Override
             public void run() {
-                mBackgroundRunnable.postExecute(mResult);
+                mFinished = true;
+                if (!mCancelled) {
+                    mBackgroundRunnable.postExecute(mResult);
+                }
             }
         }
     }
 
-    class TraktNetworkRunner<R> implements Runnable {
+    class TraktNetworkRunner<R> implements NetworkTaskScheduler.Task {
 
-        private final NetworkCallRunnable<R> mBackgroundRunnable;
+        private final String mRequestKey;
+        private final Subscriber<R> mFirstSubscriber;
+        private final List<Subscriber<R>> mSubscribers = new ArrayList<>();
+        private final String mName;
+        private final int mSource;
+        private boolean mStarted;
 
-        TraktNetworkRunner(NetworkCallRunnable<R> runnable) {
-            mBackgroundRunnable = runnable;
+        /**
+         * How many attempts have been made, and the error from the last one. Only changed on the
+         * thread running the call.
+         */
+        private int mAttempts;
+        private int mRateLimitedRequeues;
+        private volatile RetrofitError mLastError;
+
+        private final Runnable mRetryRunnable = new Runnable() {
+            @Override
+            public void run() {
+                schedule(TraktNetworkRunner.this);
+            }
+        };
+
+        /**
+         * Set once every subscriber has been cancelled. Guarded by this runner's lock.
+         */
+        private boolean mCancelled;
+
+        /**
+         * The thread this runner is running on, while it is running. Guarded by this runner's
+         * lock, so that we never abort a call on a thread which has moved on to something else.
+         */
+        private Thread mThread;
+
+        /**
+         * The highest priority of any subscriber. Volatile so that the scheduler can read it
+         * without taking this runner's lock.
+         */
+        private volatile int mPriority;
+
+        TraktNetworkRunner(NetworkCallRunnable<R> runnable, String requestKey) {
+            mRequestKey = requestKey;
+            mName = requestKey != null ? requestKey : runnable.getClass().getSimpleName();
+            mSource = runnable.getSource();
+            mPriority = runnable.getPriority();
+            mFirstSubscriber = new Subscriber<>(this, runnable);
+            mSubscribers.add(mFirstSubscriber);
+        }
+
+        /**
+         * @return the new subscriber, or null if this runner has been cancelled and so can not
+         * be shared
+         */
+        synchronized Subscriber<R> addRunnable(NetworkCallRunnable<R> runnable) {
+            if (mCancelled) {
+                return null;
+            }
+
+            final Subscriber<R> subscriber = new Subscriber<>(this, runnable);
+            mSubscribers.add(subscriber);
+
+            if (mStarted) {
+                sHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        subscriber.preCall();
+                    }
+                });
+            } else if (runnable.getPriority() < mPriority) {
+                mPriority = runnable.getPriority();
+            }
+            return subscriber;
+        }
+
+        void cancelCallingId(int callingId) {
+            final List<Subscriber<R>> subscribers;
+            synchronized (this) {
+                subscribers = new ArrayList<>(mSubscribers);
+            }
+            for (Subscriber<R> subscriber : subscribers) {
+                if (subscriber.runnable.getCallingId() == callingId) {
+                    subscriber.cancel();
+                }
+            }
+        }
+
+        /**
+         * Called when one of our subscribers has been cancelled. Once they all have, the call is
+         * removed from the queue if it has not started, or aborted if it has.
+         */
+        void onSubscriberCancelled() {
+            synchronized (this) {
+                if (mCancelled) {
+                    return;
+                }
+                for (Subscriber<R> subscriber : mSubscribers) {
+                    if (!subscriber.isCancelled()) {
+                        return;
+                    }
+                }
+                mCancelled = true;
+            }
+
+            // Make sure that no new requests share this call
+            removeInFlightRunner(this);
+
+            if (mScheduler != null && mScheduler.remove(this)) {
+                onDropped();
+                return;
+            }
+
+            synchronized (this) {
+                if (mThread != null && mAbortableClient != null) {
+                    if (Constants.DEBUG) {
+                        Log.d(TAG, "Aborting cancelled request: " + mName);
+                    }
+                    mAbortableClient.abort(mThread);
+                }
+            }
+        }
+
+        @Override
+        public int getSource() {
+            return mSource;
+        }
+
+        @Override
+        public int getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * Only shared reads may be dropped, and only if every runnable sharing them agrees.
+         */
+        @Override
+        public synchronized boolean isDroppable() {
+            if (mRequestKey == null) {
+                return false;
+            }
+            for (Subscriber<R> subscriber : mSubscribers) {
+                if (!subscriber.runnable.isDroppable()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void onDropped() {
+            synchronized (this) {
+                // Make sure that no new requests share a call which will never be made
+                mCancelled = true;
+            }
+            removeInFlightRunner(this);
+
+            // Subscribers which have seen an attempt start get the error from it, the rest are
+            // told that they have been cancelled
+            sHandler.post(new ResultCallback(null, mLastError));
         }
 
         @Override
         public final void run() {
             Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
 
+            final List<Subscriber<R>> subscribers;
+            synchronized (this) {
+                mStarted = true;
+                if (!mCancelled) {
+                    mThread = Thread.currentThread();
+                }
+                subscribers = new ArrayList<>(mSubscribers);
+            }
+
+            if (mThread == null) {
+                // Every subscriber was cancelled while we were waiting to start
+                onDropped();
+                return;
+            }
+
             sHandler.post(new Runnable() {
                 @Override
                 public void run() {
-                    mBackgroundRunnable.onPreTraktCall();
+                    for (Subscriber<R> subscriber : subscribers) {
+                        subscriber.preCall();
+                    }
                 }
             });
 
+            final NetworkCallRunnable<R> runnable = subscribers.get(0).runnable;
             R result = null;
             RetrofitError retrofitError = null;
 
-            try {
-                result = mBackgroundRunnable.doBackgroundCall();
-            } catch (RetrofitError re) {
-                retrofitError = re;
+            if (mRetryPolicy != null && !mRetryPolicy.tryAcquire(mSource)) {
+                // The API is failing, so fail now rather than waiting for the call to time out
+                retrofitError = NetworkRetryPolicy.createCircuitOpenError(mName, mSource);
+                synchronized (this) {
+                    mThread = null;
+                }
+            } else {
+                mAttempts++;
+                try {
+                    result = runnable.doBackgroundCall();
+                } catch (RetrofitError re) {
+                    retrofitError = re;
+                    if (Constants.DEBUG) {
+                        Log.d(((Object) this).getClass().getSimpleName(), "Error while completing network call", re);
+                    }
+                } finally {
+                    synchronized (this) {
+                        if (mAbortableClient != null) {
+                            mAbortableClient.release(mThread);
+                        }
+                        mThread = null;
+                    }
+                }
+
+                if (mRetryPolicy != null) {
+                    if (isCancelled()) {
+                        mRetryPolicy.onCallAbandoned(mSource);
+                    } else {
+                        mRetryPolicy.onCallFinished(mSource, retrofitError);
+                    }
+                }
+            }
+
+            if (retrofitError != null && mScheduler != null && !isCancelled()
+                    && NetworkRetryPolicy.isRateLimited(retrofitError)) {
+                mScheduler.pause(mSource, NetworkRetryPolicy.getRetryAfterMillis(retrofitError));
+                if (mRateLimitedRequeues < Constants.RATE_LIMITED_MAX_REQUEUES) {
+                    // Wait in the queue until the API is ready for us, rather than failing
+                    mRateLimitedRequeues++;
+                    mAttempts--;
+                    mLastError = retrofitError;
+                    schedule(this);
+                    return;
+                }
+            }
+
+            if (retrofitError != null && mRetryPolicy != null && !isCancelled()
+                    && runnable.isRetryable()
+                    && mRetryPolicy.shouldRetry(mSource, retrofitError, mAttempts)) {
+                final long delay = mRetryPolicy.getRetryDelay(mAttempts);
                 if (Constants.DEBUG) {
-                    Log.d(((Object) this).getClass().getSimpleName(), "Error while completing network call", re);
+                    Log.d(TAG, "Retrying " + mName + " in " + delay + "ms");
                 }
+                mLastError = retrofitError;
+                sHandler.postDelayed(mRetryRunnable, delay);
+                return;
             }
 
             sHandler.post(new ResultCallback(result, retrofitError));
         }
 
+        private synchronized boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+
         private class ResultCallback implements Runnable {
             private final R mResult;
             private final RetrofitError mRetrofitError;
@@ -133,15 +518,130 @@ public class PhilmBackgroundExecutor implements BackgroundExecutor {
 
             @Override
             public void run() {
-                if (mResult != null) {
-                    mBackgroundRunnable.onSuccess(mResult);
-                } else if (mRetrofitError != null) {
-                    mBackgroundRunnable.onError(mRetrofitError);
+                removeRunner(TraktNetworkRunner.this);
+
+                final List<Subscriber<R>> subscribers;
+                synchronized (TraktNetworkRunner.this) {
+                    subscribers = new ArrayList<>(mSubscribers);
+                }
+
+                // Results are shared with every later subscriber, errors only with those for a
+                // calling id which has already been told of the error
+                boolean delivered = false;
+                final Set<Integer> errorCallingIds = new HashSet<>();
+                for (Subscriber<R> subscriber : subscribers) {
+                    final int callingId = subscriber.runnable.getCallingId();
+                    final boolean shared = mResult != null
+                            ? delivered : errorCallingIds.contains(callingId);
+                    if (subscriber.deliver(mResult, mRetrofitError, shared)) {
+                        delivered = true;
+                        errorCallingIds.add(callingId);
+                    }
                 }
-                mBackgroundRunnable.onFinished();
             }
         }
     }
 
+    public static class RateLimiterStats {
+        public final long delayedCount;
+        public final long totalWaitMillis;
+        public final long maxWaitMillis;
+
+        RateLimiterStats(long delayedCount, long totalWaitMillis, long maxWaitMillis) {
+            this.delayedCount = delayedCount;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "RateLimiterStats{delayed=" + delayedCount + ", totalWait="
+                    + totalWaitMillis + "ms, maxWait=" + maxWaitMillis + "ms}";
+        }
+    }
+
+    /**
+     * Tracks the callbacks made to a runnable which may be sharing a network call, and is the
+     * handle returned for that runnable. Callbacks are only made from the main thread.
+     */
+    private static class Subscriber<R> implements TaskHandle {
+        final NetworkCallRunnable<R> runnable;
+        private final TraktNetworkRunner<R> mRunner;
+        private boolean mPreCalled;
+        private volatile boolean mCancelled;
+        private volatile boolean mFinished;
+
+        Subscriber(TraktNetworkRunner<R> runner, NetworkCallRunnable<R> runnable) {
+            mRunner = runner;
+            this.runnable = runnable;
+        }
+
+        void preCall() {
+            if (!mPreCalled && !mCancelled) {
+                mPreCalled = true;
+                runnable.onPreTraktCall();
+            }
+        }
+
+        /**
+         * Delivers the call's result, or {@code onCancelled()} if there is neither a result nor
+         * an error because the call was dropped. Cancelled subscribers only get
+         * {@code onCancelled()}, and {@code onFinished()} if they have seen
+         * {@code onPreTraktCall()}, so that the two always pair up. If {@code shared} is true,
+         * the result or error has already been delivered to another subscriber.
+         *
+         * @return true if the result was delivered
+         */
+        boolean deliver(R result, RetrofitError retrofitError, boolean shared) {
+            mFinished = true;
+
+            if (mCancelled) {
+                runnable.onCancelled();
+                if (mPreCalled) {
+                    runnable.onFinished();
+                }
+                return false;
+            }
+
+            // Make sure the runnable always sees onPreTraktCall() before its result
+            preCall();
+
+            if (result != null) {
+                if (shared) {
+                    runnable.onSharedSuccess(result);
+                } else {
+                    runnable.onSuccess(result);
+                }
+            } else if (retrofitError != null) {
+                if (shared) {
+                    runnable.onSharedError(retrofitError);
+                } else {
+                    runnable.onError(retrofitError);
+                }
+            } else {
+                runnable.onCancelled();
+            }
+            runnable.onFinished();
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            if (!mCancelled && !mFinished) {
+                mCancelled = true;
+                mRunner.onSubscriberCancelled();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return mFinished;
+        }
+    }
 
 }
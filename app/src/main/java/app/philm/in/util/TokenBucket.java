@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A token bucket, which lets through bursts of up to {@code capacity} calls and then limits
+ * calls to a steady rate. Times are passed in, so that callers can use any monotonic clock.
+ * Not thread safe.
+ */
+class TokenBucket {
+
+    private final int mCapacity;
+    private final double mTokensPerMilli;
+
+    private double mTokens;
+    private long mLastRefillTime;
+    private long mPausedUntil;
+
+    TokenBucket(int capacity, double tokensPerSecond) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be > 0");
+        Preconditions.checkArgument(tokensPerSecond > 0, "tokensPerSecond must be > 0");
+        mCapacity = capacity;
+        mTokensPerMilli = tokensPerSecond / 1000;
+        mTokens = capacity;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise how many milliseconds until one will be
+     */
+    long tryAcquire(long now) {
+        if (now < mPausedUntil) {
+            return mPausedUntil - now;
+        }
+
+        if (now > mLastRefillTime) {
+            mTokens = Math.min(mCapacity, mTokens + (now - mLastRefillTime) * mTokensPerMilli);
+            mLastRefillTime = now;
+        }
+
+        if (mTokens >= 1) {
+            mTokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - mTokens) / mTokensPerMilli));
+    }
+
+    /**
+     * Stops any tokens being taken until {@code time}, after which the bucket refills from
+     * empty. Used when the server has asked us to back off.
+     */
+    void pauseUntil(long time) {
+        if (time > mPausedUntil) {
+            mPausedUntil = time;
+            mTokens = 0;
+            mLastRefillTime = time;
+        }
+    }
+
+}
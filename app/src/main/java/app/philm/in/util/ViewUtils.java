@@ -18,6 +18,9 @@ package app.philm.in.util;
 
 import com.google.common.base.Preconditions;
 
+import android.widget.AbsListView;
+import android.widget.Adapter;
+import android.widget.ListView;
 import android.widget.TextView;
 
 public class ViewUtils {
@@ -27,4 +30,30 @@ public class ViewUtils {
         return TextUtils.isEmpty(textView.getText());
     }
 
+    /**
+     * Rebinds the currently visible views for the given adapter positions, without the
+     * full relayout which {@code notifyDataSetChanged()} causes.
+     */
+    public static void rebindVisibleItems(AbsListView listView, Adapter adapter, int[] positions) {
+        Preconditions.checkNotNull(adapter, "adapter cannot be null");
+        Preconditions.checkNotNull(positions, "positions cannot be null");
+
+        if (listView == null || positions.length == 0) {
+            return;
+        }
+
+        int firstVisible = listView.getFirstVisiblePosition();
+        if (listView instanceof ListView) {
+            firstVisible -= ((ListView) listView).getHeaderViewsCount();
+        }
+        final int childCount = listView.getChildCount();
+
+        for (int i = 0; i < positions.length; i++) {
+            final int index = positions[i] - firstVisible;
+            if (index >= 0 && index < childCount) {
+                adapter.getView(positions[i], listView.getChildAt(index), listView);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in;
+
+import com.jakewharton.trakt.entities.Images;
+import com.jakewharton.trakt.entities.Ratings;
+import com.uwetrottmann.tmdb.entities.Genre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * Generates synthetic Trakt and TMDb entities for the benchmarks, so that they never need the
+ * network. Every fixture is generated from a fixed seed, so runs are repeatable.
+ */
+public final class Fixtures {
+
+    private static final long SEED = 42;
+
+    private static final String[] TITLE_WORDS = {
+            "The", "Last", "Night", "Return", "of", "Dark", "City", "Lost", "Empire", "Star",
+            "A", "Man", "Called", "Summer", "Ghost", "River", "King", "Secret", "War", "Love"
+    };
+
+    private static final String[] GENRES = {
+            "Action", "Adventure", "Comedy", "Drama", "Horror", "Science Fiction", "Thriller"
+    };
+
+    private static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private Fixtures() {
+    }
+
+    public static List<com.uwetrottmann.tmdb.entities.Movie> tmdbMovies(int count) {
+        final Random random = new Random(SEED);
+        final List<com.uwetrottmann.tmdb.entities.Movie> movies = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            com.uwetrottmann.tmdb.entities.Movie movie = new com.uwetrottmann.tmdb.entities.Movie();
+            movie.id = tmdbId(i);
+            movie.imdb_id = imdbId(i);
+            movie.title = title(random);
+            movie.overview = "Overview for " + movie.title;
+            movie.tagline = "Tagline for " + movie.title;
+            movie.adult = random.nextInt(50) == 0;
+            movie.release_date = new Date(releasedTime(random));
+            movie.vote_average = random.nextInt(100) / 10d;
+            movie.vote_count = random.nextInt(5000);
+            movie.budget = random.nextInt(200) * 1000000;
+            movie.runtime = 80 + random.nextInt(80);
+            movie.poster_path = "/poster" + i + ".jpg";
+            movie.backdrop_path = "/backdrop" + i + ".jpg";
+            movie.genres = tmdbGenres(random);
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    public static List<com.jakewharton.trakt.entities.Movie> traktMovies(int count) {
+        final Random random = new Random(SEED);
+        final List<com.jakewharton.trakt.entities.Movie> movies = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            com.jakewharton.trakt.entities.Movie movie = new com.jakewharton.trakt.entities.Movie();
+            movie.tmdbId = tmdbId(i);
+            movie.imdb_id = imdbId(i);
+            movie.title = title(random);
+            movie.overview = "Overview for " + movie.title;
+            movie.tagline = "Tagline for " + movie.title;
+            movie.released = new Date(releasedTime(random));
+            movie.year = 1980 + random.nextInt(40);
+            movie.runtime = 80 + random.nextInt(80);
+            movie.inCollection = random.nextInt(3) == 0;
+            movie.inWatchlist = random.nextInt(3) == 0;
+            movie.watched = random.nextBoolean();
+            movie.plays = movie.watched ? 1 + random.nextInt(3) : 0;
+            movie.genres = Arrays.asList(GENRES[random.nextInt(GENRES.length)]);
+
+            movie.ratings = new Ratings();
+            movie.ratings.percentage = random.nextInt(101);
+            movie.ratings.votes = random.nextInt(5000);
+
+            movie.images = new Images();
+            movie.images.poster = "http://slurm.trakt.us/images/posters/" + i + ".jpg";
+            movie.images.fanart = "http://slurm.trakt.us/images/fanart/" + i + ".jpg";
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    /**
+     * @return movies which have been loaded from both Trakt and TMDb, as they would be in the
+     * user's library or watchlist
+     */
+    public static List<PhilmMovie> philmMovies(int count) {
+        final List<com.uwetrottmann.tmdb.entities.Movie> tmdbMovies = tmdbMovies(count);
+        final List<com.jakewharton.trakt.entities.Movie> traktMovies = traktMovies(count);
+
+        final List<PhilmMovie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PhilmMovie movie = new PhilmMovie();
+            movie.setFromMovie(traktMovies.get(i));
+            movie.setFromMovie(tmdbMovies.get(i));
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    private static int tmdbId(int i) {
+        return 10000 + i * 7;
+    }
+
+    private static String imdbId(int i) {
+        return String.format("tt%07d", 100000 + i * 3);
+    }
+
+    private static String title(Random random) {
+        final int words = 1 + random.nextInt(4);
+        final StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    /**
+     * @return a release time within two years either side of now, so that every watchlist
+     * section gets some movies
+     */
+    private static long releasedTime(Random random) {
+        return System.currentTimeMillis() + (random.nextInt(4 * 365) - 2 * 365) * DAY_IN_MILLIS;
+    }
+
+    private static List<Genre> tmdbGenres(Random random) {
+        final int count = 1 + random.nextInt(3);
+        final List<Genre> genres = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Genre genre = new Genre();
+            genre.id = random.nextInt(GENRES.length);
+            genre.name = GENRES[genre.id];
+            genres.add(genre);
+        }
+        return genres;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Constants;
+import app.philm.in.Fixtures;
+import app.philm.in.model.MovieAttributes;
+import app.philm.in.model.PhilmMovie;
+
+import static app.philm.in.util.TimeUtils.isAfterThreshold;
+import static app.philm.in.util.TimeUtils.isBeforeThreshold;
+import static app.philm.in.util.TimeUtils.isInFuture;
+import static app.philm.in.util.TimeUtils.isInPast;
+
+/**
+ * Compares {@link MovieController#filterMovies(List, Set)}, which uses cached
+ * {@link MovieAttributes} bitmasks, against the per filter evaluation it
+ * replaced. The {@code cold} benchmark changes every movie first, so that no attributes are
+ * cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieFilterBenchmark {
+
+    @Param({"500", "2000"})
+    int size;
+
+    private List<PhilmMovie> mMovies;
+    private Set<MovieController.MovieFilter> mFilters;
+
+    @Setup
+    public void setup() {
+        mMovies = Fixtures.philmMovies(size);
+
+        // As MovieController does before building a list
+        final long now = System.currentTimeMillis();
+        for (int i = 0, z = mMovies.size(); i < z; i++) {
+            MovieAttributes.update(mMovies.get(i), now);
+        }
+        mFilters = EnumSet.of(MovieController.MovieFilter.SEEN,
+                MovieController.MovieFilter.NOT_RELEASED,
+                MovieController.MovieFilter.HIGHLY_RATED);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> bitmask_warm() {
+        return MovieController.filterMovies(mMovies, mFilters);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> bitmask_cold() {
+        for (int i = 0, z = mMovies.size(); i < z; i++) {
+            final PhilmMovie movie = mMovies.get(i);
+            final boolean watched = movie.isWatched();
+            movie.setWatched(!watched);
+            movie.setWatched(watched);
+        }
+        return MovieController.filterMovies(mMovies, mFilters);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> perFilter() {
+        ArrayList<PhilmMovie> filteredMovies = new ArrayList<>(mMovies.size());
+        for (PhilmMovie movie : mMovies) {
+            boolean included = true;
+            for (MovieController.MovieFilter filter : mFilters) {
+                if (isFiltered(filter, movie)) {
+                    included = false;
+                    break;
+                }
+            }
+            if (included && movie.isAdult()) {
+                included = false;
+            }
+            if (included) {
+                filteredMovies.add(movie);
+            }
+        }
+        return filteredMovies;
+    }
+
+    /**
+     * The previous implementation of {@code MovieFilter.isFiltered()}. {@link MovieFilterTest}
+     * checks the bitmask filtering against it.
+     */
+    static boolean isFiltered(MovieController.MovieFilter filter, PhilmMovie movie) {
+        switch (filter) {
+            case COLLECTION:
+                return movie.inCollection();
+            case SEEN:
+                return movie.isWatched();
+            case UNSEEN:
+                return !movie.isWatched();
+            case NOT_RELEASED:
+                return isInFuture(movie.getReleasedTime());
+            case UPCOMING:
+                return isAfterThreshold(movie.getReleasedTime(),
+                        Constants.FUTURE_SOON_THRESHOLD);
+            case SOON:
+                return isInFuture(movie.getReleasedTime()) && isBeforeThreshold(
+                        movie.getReleasedTime(), Constants.FUTURE_SOON_THRESHOLD);
+            case RELEASED:
+                return isInPast(movie.getReleasedTime());
+            case HIGHLY_RATED:
+                return Math.max(movie.getTraktRatingPercent(), movie.getUserRating() * 10)
+                        >= Constants.FILTER_HIGHLY_RATED;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Fixtures;
+import app.philm.in.model.ListItem;
+import app.philm.in.model.MovieAttributes;
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * Measures the list population which {@link MovieController} does each time a movie list is
+ * shown or changes. The {@code sectioner} benchmarks show the cost of a watchlist repaint when
+ * the previous result can be reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieListBenchmark {
+
+    private static final int CHANGE_SETS = 16;
+    private static final int CHANGES_PER_UPDATE = 3;
+
+    @Param({"100", "500", "2000"})
+    int size;
+
+    private List<PhilmMovie> mMovies;
+    private Set<MovieController.MovieFilter> mFilters;
+    private List<MovieController.MovieFilter> mSections;
+    private List<MovieController.MovieFilter> mSectionsProcessingOrder;
+
+    private ListSectioner<PhilmMovie, MovieController.MovieFilter> mSectioner;
+    private List<List<PhilmMovie>> mChangedMovies;
+    private int mChangedIndex;
+
+    @Setup
+    public void setup() {
+        mMovies = Fixtures.philmMovies(size);
+
+        // As MovieController does before building a list
+        final long now = System.currentTimeMillis();
+        for (int i = 0, z = mMovies.size(); i < z; i++) {
+            MovieAttributes.update(mMovies.get(i), now);
+        }
+        mFilters = EnumSet.of(MovieController.MovieFilter.SEEN,
+                MovieController.MovieFilter.HIGHLY_RATED);
+        mSections = MovieController.MovieQueryType.WATCHLIST.getSections();
+        mSectionsProcessingOrder = MovieController.MovieQueryType.WATCHLIST
+                .getSectionsProcessingOrder();
+
+        mSectioner = new ListSectioner<>(mSections, mSectionsProcessingOrder, Long.MAX_VALUE);
+        mSectioner.section(mMovies);
+
+        final Random random = new Random(42);
+        mChangedMovies = new ArrayList<>(CHANGE_SETS);
+        for (int i = 0; i < CHANGE_SETS; i++) {
+            final List<PhilmMovie> changed = new ArrayList<>(CHANGES_PER_UPDATE);
+            for (int j = 0; j < CHANGES_PER_UPDATE; j++) {
+                changed.add(mMovies.get(random.nextInt(size)));
+            }
+            mChangedMovies.add(changed);
+        }
+    }
+
+    @Benchmark
+    public List<PhilmMovie> filterMovies_noFilters() {
+        return MovieController.filterMovies(mMovies, null);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> filterMovies_twoFilters() {
+        return MovieController.filterMovies(mMovies, mFilters);
+    }
+
+    @Benchmark
+    public List<ListItem<PhilmMovie>> createSectionedListItemList_watchlist() {
+        return MovieController.createSectionedListItemList(mMovies, mSections,
+                mSectionsProcessingOrder);
+    }
+
+    /**
+     * A repaint where nothing has changed, so the cached result can be returned.
+     */
+    @Benchmark
+    public List<ListItem<PhilmMovie>> sectioner_unchanged() {
+        return mSectioner.section(mMovies);
+    }
+
+    /**
+     * A repaint after a few movies have been marked as seen.
+     */
+    @Benchmark
+    public List<ListItem<PhilmMovie>> sectioner_flagsUpdated() {
+        final List<PhilmMovie> changed = mChangedMovies.get(mChangedIndex);
+        mChangedIndex = (mChangedIndex + 1) % mChangedMovies.size();
+
+        for (PhilmMovie movie : changed) {
+            movie.setWatched(!movie.isWatched());
+        }
+        mSectioner.invalidate(changed);
+        return mSectioner.section(mMovies);
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Fixtures;
+
+/**
+ * Measures {@link PhilmMovie#setFromMovie}, which is called for every movie in every page of
+ * results from Trakt or TMDb.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhilmMovieBenchmark {
+
+    private static final int MOVIES = 64;
+
+    private List<com.uwetrottmann.tmdb.entities.Movie> mTmdbMovies;
+    private List<com.jakewharton.trakt.entities.Movie> mTraktMovies;
+    private PhilmMovie mMovie;
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        mTmdbMovies = Fixtures.tmdbMovies(MOVIES);
+        mTraktMovies = Fixtures.traktMovies(MOVIES);
+        mMovie = new PhilmMovie();
+    }
+
+    @Benchmark
+    public PhilmMovie setFromTmdbMovie() {
+        mMovie.setFromMovie(mTmdbMovies.get(nextIndex()));
+        return mMovie;
+    }
+
+    @Benchmark
+    public PhilmMovie setFromTraktMovie() {
+        mMovie.setFromMovie(mTraktMovies.get(nextIndex()));
+        return mMovie;
+    }
+
+    private int nextIndex() {
+        mIndex = (mIndex + 1) % MOVIES;
+        return mIndex;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.squareup.otto.Bus;
+import com.squareup.otto.ThreadEnforcer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Constants;
+import app.philm.in.Fixtures;
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * Measures searching the movies held by {@link ApplicationState}, which needs to be fast enough
+ * to run on every key press.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalSearchBenchmark {
+
+    @Param({"1000", "50000"})
+    int size;
+
+    /**
+     * A short prefix, a full word, a multi-word prefix and a query with no matches.
+     */
+    @Param({"s", "empire", "ret of the", "dark zebra"})
+    String query;
+
+    private ApplicationState mState;
+    private List<PhilmMovie> mMovies;
+
+    @Setup
+    public void setup() {
+        mMovies = Fixtures.philmMovies(size);
+        mState = new ApplicationState(new Bus(ThreadEnforcer.ANY), size, size);
+        for (PhilmMovie movie : mMovies) {
+            mState.putMovie(movie);
+        }
+    }
+
+    @Benchmark
+    public List<PhilmMovie> search() {
+        return mState.searchMovies(query, Constants.MAX_LOCAL_SEARCH_RESULTS);
+    }
+
+    @Benchmark
+    public ApplicationState putAll() {
+        ApplicationState state = new ApplicationState(new Bus(ThreadEnforcer.ANY), size, size);
+        for (PhilmMovie movie : mMovies) {
+            state.putMovie(movie);
+        }
+        return state;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.squareup.otto.Bus;
+import com.squareup.otto.ThreadEnforcer;
+import com.uwetrottmann.tmdb.entities.Movie;
+
+import android.support.v4.util.ArrayMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * Compares movie lookups through {@link ApplicationState} against the String keyed
+ * {@link ArrayMap}s it previously used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieLookupBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"200", "5000", "50000"})
+    int size;
+
+    private PhilmMovie[] mMovies;
+    private int[] mTmdbIds;
+    private String[] mImdbIds;
+
+    private ApplicationState mState;
+    private Map<String, PhilmMovie> mTmdbIdArrayMap;
+    private Map<String, PhilmMovie> mImdbIdArrayMap;
+
+    @Setup
+    public void setup() {
+        mMovies = new PhilmMovie[size];
+        for (int i = 0; i < size; i++) {
+            Movie movie = new Movie();
+            movie.id = 10000 + i * 7;
+            movie.imdb_id = String.format("tt%07d", 100000 + i * 3);
+            mMovies[i] = new PhilmMovie();
+            mMovies[i].setFromMovie(movie);
+        }
+
+        final Random random = new Random(42);
+        mTmdbIds = new int[LOOKUPS];
+        mImdbIds = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            PhilmMovie movie = mMovies[random.nextInt(size)];
+            mTmdbIds[i] = movie.getTmdbId();
+            mImdbIds[i] = movie.getImdbId();
+        }
+
+        mState = new ApplicationState(new Bus(ThreadEnforcer.ANY));
+        mTmdbIdArrayMap = new ArrayMap<>(200);
+        mImdbIdArrayMap = new ArrayMap<>(200);
+        for (PhilmMovie movie : mMovies) {
+            mState.putMovie(movie);
+            putInArrayMaps(movie, mTmdbIdArrayMap, mImdbIdArrayMap);
+        }
+    }
+
+    @Benchmark
+    public int getByTmdbId_index() {
+        int found = 0;
+        for (int id : mTmdbIds) {
+            if (mState.getMovie(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getByTmdbId_arrayMap() {
+        int found = 0;
+        for (int id : mTmdbIds) {
+            if (mTmdbIdArrayMap.get(String.valueOf(id)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getByImdbId_index() {
+        int found = 0;
+        for (String id : mImdbIds) {
+            if (mState.getMovie(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getByImdbId_arrayMap() {
+        int found = 0;
+        for (String id : mImdbIds) {
+            PhilmMovie movie = mTmdbIdArrayMap.get(id);
+            if (movie == null) {
+                movie = mImdbIdArrayMap.get(id);
+            }
+            if (movie != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public ApplicationState putAll_index() {
+        ApplicationState state = new ApplicationState(new Bus(ThreadEnforcer.ANY));
+        for (PhilmMovie movie : mMovies) {
+            state.putMovie(movie);
+        }
+        return state;
+    }
+
+    @Benchmark
+    public Map<String, PhilmMovie> putAll_arrayMap() {
+        Map<String, PhilmMovie> tmdbIdMap = new ArrayMap<>(200);
+        Map<String, PhilmMovie> imdbIdMap = new ArrayMap<>(200);
+        for (PhilmMovie movie : mMovies) {
+            putInArrayMaps(movie, tmdbIdMap, imdbIdMap);
+        }
+        return tmdbIdMap;
+    }
+
+    private static void putInArrayMaps(PhilmMovie movie, Map<String, PhilmMovie> tmdbIdMap,
+            Map<String, PhilmMovie> imdbIdMap) {
+        imdbIdMap.put(movie.getImdbId(), movie);
+        tmdbIdMap.put(String.valueOf(movie.getTmdbId()), movie);
+    }
+
+}
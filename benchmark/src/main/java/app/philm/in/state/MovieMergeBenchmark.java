@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.uwetrottmann.tmdb.entities.Movie;
+
+import android.support.v4.util.ArrayMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmUserProfile;
+
+/**
+ * Compares the library merge in {@link AsyncDatabaseHelperImpl} against the ArrayMap based merge
+ * it replaced. SQLite is not available off-device, so the writes go to a {@link DatabaseHelper}
+ * which only counts statements and transactions; this measures the diffing cost, and the number
+ * of transactions each approach needs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieMergeBenchmark {
+
+    @Param({"5000"})
+    int size;
+
+    private List<PhilmMovie> mDatabaseItems;
+    private List<PhilmMovie> mNewItems;
+
+    @Setup
+    public void setup() {
+        mDatabaseItems = new ArrayList<>(size);
+        mNewItems = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            Movie movie = new Movie();
+            movie.id = 10000 + i;
+            movie.imdb_id = String.format("tt%07d", 100000 + i);
+
+            PhilmMovie philmMovie = new PhilmMovie();
+            philmMovie.setFromMovie(movie);
+
+            mDatabaseItems.add(philmMovie);
+            // Drop every tenth movie from the new list, so that there is something to delete
+            if (i % 10 != 0) {
+                mNewItems.add(philmMovie);
+            }
+        }
+    }
+
+    @Benchmark
+    public CountingDatabaseHelper merge() {
+        CountingDatabaseHelper dbHelper = new CountingDatabaseHelper();
+        AsyncDatabaseHelperImpl.merge(dbHelper, mDatabaseItems, mNewItems);
+        return dbHelper;
+    }
+
+    @Benchmark
+    public CountingDatabaseHelper merge_arrayMap() {
+        CountingDatabaseHelper dbHelper = new CountingDatabaseHelper();
+
+        Map<Long, PhilmMovie> dbItemsMap = new ArrayMap<>();
+        for (PhilmMovie movie : mDatabaseItems) {
+            dbItemsMap.put(movie.getDbId(), movie);
+        }
+        for (PhilmMovie movie : mNewItems) {
+            dbItemsMap.remove(movie.getDbId());
+        }
+        if (!dbItemsMap.isEmpty()) {
+            dbHelper.delete(dbItemsMap.values());
+        }
+        // Previously each movie was written by Cupboard outside of a transaction
+        for (PhilmMovie movie : mNewItems) {
+            dbHelper.put(movie);
+        }
+        return dbHelper;
+    }
+
+    static class CountingDatabaseHelper implements DatabaseHelper {
+        int transactions;
+        int statements;
+
+        @Override
+        public List<PhilmMovie> getLibrary() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<PhilmMovie> getLibrary(PhilmMovie after, int limit) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<PhilmMovie> getWatchlist() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<PhilmMovie> getWatchlist(PhilmMovie after, int limit) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public PhilmMovie getMovie(String id) {
+            return null;
+        }
+
+        @Override
+        public void put(PhilmMovie movie) {
+            transactions++;
+            statements++;
+        }
+
+        @Override
+        public void put(Collection<PhilmMovie> movies) {
+            transactions++;
+            statements += movies.size();
+        }
+
+        @Override
+        public void put(Collection<PhilmMovie> movies, Collection<PhilmMovie> deleted) {
+            transactions++;
+            statements += movies.size() + deleted.size();
+        }
+
+        @Override
+        public void delete(Collection<PhilmMovie> movies) {
+            transactions++;
+            statements += movies.size();
+        }
+
+        @Override
+        public PhilmUserProfile getUserProfile(String username) {
+            return null;
+        }
+
+        @Override
+        public void put(PhilmUserProfile profile) {
+        }
+
+        @Override
+        public void delete(PhilmUserProfile profile) {
+        }
+
+        @Override
+        public void deleteAllPhilmMovies() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+
+}
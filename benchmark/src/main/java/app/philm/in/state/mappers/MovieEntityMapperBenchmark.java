@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state.mappers;
+
+import com.squareup.otto.Bus;
+import com.squareup.otto.ThreadEnforcer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Fixtures;
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.state.ApplicationState;
+
+/**
+ * Measures mapping a page of Trakt or TMDb results into {@link PhilmMovie}s. The {@code cold}
+ * benchmarks map into an empty state, so every movie is created, and the {@code warm}
+ * benchmarks map into a state which already has every movie, so every movie is updated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieEntityMapperBenchmark {
+
+    @Param({"20", "100", "500"})
+    int pageSize;
+
+    private List<com.uwetrottmann.tmdb.entities.Movie> mTmdbMovies;
+    private List<com.jakewharton.trakt.entities.Movie> mTraktMovies;
+
+    private TmdbMovieEntityMapper mWarmTmdbMapper;
+    private TraktMovieEntityMapper mWarmTraktMapper;
+
+    @Setup
+    public void setup() {
+        mTmdbMovies = Fixtures.tmdbMovies(pageSize);
+        mTraktMovies = Fixtures.traktMovies(pageSize);
+
+        ApplicationState state = createState();
+        mWarmTmdbMapper = new TmdbMovieEntityMapper(state);
+        mWarmTraktMapper = new TraktMovieEntityMapper(state);
+        mWarmTmdbMapper.mapAll(mTmdbMovies);
+        mWarmTraktMapper.mapAll(mTraktMovies);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> tmdbMapAll_cold() {
+        return new TmdbMovieEntityMapper(createState()).mapAll(mTmdbMovies);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> tmdbMapAll_warm() {
+        return mWarmTmdbMapper.mapAll(mTmdbMovies);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> traktMapAll_cold() {
+        return new TraktMovieEntityMapper(createState()).mapAll(mTraktMovies);
+    }
+
+    @Benchmark
+    public List<PhilmMovie> traktMapAll_warm() {
+        return mWarmTraktMapper.mapAll(mTraktMovies);
+    }
+
+    private static ApplicationState createState() {
+        return new ApplicationState(new Bus(ThreadEnforcer.ANY));
+    }
+
+}
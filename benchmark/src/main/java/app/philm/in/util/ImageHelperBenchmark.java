@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Fixtures;
+import app.philm.in.model.PhilmMovie;
+
+/**
+ * Measures building poster URLs with {@link ImageHelper}, which is done for every movie bound in
+ * a list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageHelperBenchmark {
+
+    private static final int MOVIES = 100;
+
+    /**
+     * The poster sizes TMDb currently returns in its configuration.
+     */
+    private static final int[] TMDB_POSTER_SIZES = {92, 154, 185, 342, 500, 780};
+
+    private static final int[] WIDTHS = {120, 240, 360, 480, 720, 1080};
+
+    private ImageHelper mImageHelper;
+    private List<PhilmMovie> mTmdbMovies;
+    private List<PhilmMovie> mTraktMovies;
+
+    @Setup
+    public void setup() {
+        mImageHelper = new ImageHelper();
+        mImageHelper.setTmdbBaseUrl("http://image.tmdb.org/t/p/");
+        mImageHelper.setTmdbPosterSizes(TMDB_POSTER_SIZES);
+
+        mTmdbMovies = Fixtures.philmMovies(MOVIES);
+
+        // Trakt only movies do not have a TMDb poster, so the Trakt URL is used
+        mTraktMovies = new ArrayList<>(MOVIES);
+        for (com.jakewharton.trakt.entities.Movie entity : Fixtures.traktMovies(MOVIES)) {
+            PhilmMovie movie = new PhilmMovie();
+            movie.setFromMovie(entity);
+            mTraktMovies.add(movie);
+        }
+    }
+
+    @Benchmark
+    public void getPosterUrl_tmdb(Blackhole blackhole) {
+        for (int i = 0, z = mTmdbMovies.size(); i < z; i++) {
+            blackhole.consume(mImageHelper.getPosterUrl(mTmdbMovies.get(i),
+                    WIDTHS[i % WIDTHS.length], 0));
+        }
+    }
+
+    @Benchmark
+    public void getPosterUrl_trakt(Blackhole blackhole) {
+        for (int i = 0, z = mTraktMovies.size(); i < z; i++) {
+            blackhole.consume(mImageHelper.getPosterUrl(mTraktMovies.get(i),
+                    WIDTHS[i % WIDTHS.length], 0));
+        }
+    }
+
+    @Benchmark
+    public int selectSize() {
+        int result = 0;
+        for (int width : WIDTHS) {
+            result += ImageHelper.selectSize(width, TMDB_POSTER_SIZES, false);
+        }
+        return result;
+    }
+
+}
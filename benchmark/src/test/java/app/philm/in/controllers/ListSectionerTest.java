@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.philm.in.Fixtures;
+import app.philm.in.model.ListItem;
+import app.philm.in.model.PhilmMovie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link ListSectioner} gives the same sections as the multi-pass sectioning which
+ * {@code MovieController} used to do, both when building from scratch and when reusing its last
+ * result.
+ */
+public class ListSectionerTest {
+
+    private static final int MOVIE_COUNT = 500;
+
+    private List<PhilmMovie> mMovies;
+    private List<MovieController.MovieFilter> mSections;
+    private List<MovieController.MovieFilter> mProcessingOrder;
+
+    @Before
+    public void setUp() {
+        mMovies = Fixtures.philmMovies(MOVIE_COUNT);
+        mSections = MovieController.MovieQueryType.WATCHLIST.getSections();
+        mProcessingOrder = MovieController.MovieQueryType.WATCHLIST.getSectionsProcessingOrder();
+    }
+
+    @Test
+    public void matchesMultiPassSectioning() {
+        assertSameSections(sectionMultiPass(mMovies),
+                MovieController.createSectionedListItemList(mMovies, mSections,
+                        mProcessingOrder));
+    }
+
+    @Test
+    public void matchesMultiPassSectioningWithoutProcessingOrder() {
+        final List<MovieController.MovieFilter> sections = Arrays.asList(
+                MovieController.MovieFilter.SEEN, MovieController.MovieFilter.UNSEEN);
+        assertSameSections(sectionMultiPass(mMovies, sections, sections),
+                MovieController.createSectionedListItemList(mMovies, sections, null));
+    }
+
+    @Test
+    public void unchangedListReusesResult() {
+        final ListSectioner<PhilmMovie, MovieController.MovieFilter> sectioner
+                = createSectioner();
+        final List<ListItem<PhilmMovie>> result = sectioner.section(mMovies);
+        assertSame(result, sectioner.section(new ArrayList<>(mMovies)));
+    }
+
+    @Test
+    public void invalidatedMoviesAreSectionedAgain() {
+        final ListSectioner<PhilmMovie, MovieController.MovieFilter> sectioner
+                = createSectioner();
+        sectioner.section(mMovies);
+
+        final List<PhilmMovie> changed = Arrays.asList(mMovies.get(0), mMovies.get(10),
+                mMovies.get(20));
+        for (PhilmMovie movie : changed) {
+            movie.setWatched(!movie.isWatched());
+        }
+        sectioner.invalidate(changed);
+
+        assertSameSections(sectionMultiPass(mMovies), sectioner.section(mMovies));
+    }
+
+    @Test
+    public void addedAndRemovedMoviesAreSectioned() {
+        final ListSectioner<PhilmMovie, MovieController.MovieFilter> sectioner
+                = createSectioner();
+        final List<PhilmMovie> movies = new ArrayList<>(mMovies.subList(0, MOVIE_COUNT - 5));
+        sectioner.section(movies);
+
+        // Small enough a change to be applied incrementally
+        movies.remove(3);
+        movies.remove(7);
+        movies.addAll(mMovies.subList(MOVIE_COUNT - 5, MOVIE_COUNT));
+
+        assertSameSections(sectionMultiPass(movies), sectioner.section(movies));
+    }
+
+    @Test
+    public void largeChangeIsRebuilt() {
+        final ListSectioner<PhilmMovie, MovieController.MovieFilter> sectioner
+                = createSectioner();
+        sectioner.section(mMovies.subList(0, MOVIE_COUNT / 2));
+
+        final List<PhilmMovie> movies = mMovies.subList(MOVIE_COUNT / 2, MOVIE_COUNT);
+        assertSameSections(sectionMultiPass(movies), sectioner.section(movies));
+    }
+
+    private ListSectioner<PhilmMovie, MovieController.MovieFilter> createSectioner() {
+        return new ListSectioner<>(mSections, mProcessingOrder, Long.MAX_VALUE);
+    }
+
+    private List<ListItem<PhilmMovie>> sectionMultiPass(List<PhilmMovie> movies) {
+        return sectionMultiPass(movies, mSections, mProcessingOrder);
+    }
+
+    /**
+     * The previous implementation of {@code MovieController.createSectionedListItemList()}, which
+     * made a pass over the remaining items for each section.
+     */
+    private static List<ListItem<PhilmMovie>> sectionMultiPass(List<PhilmMovie> items,
+            List<MovieController.MovieFilter> sections,
+            List<MovieController.MovieFilter> processingOrder) {
+        final List<ListItem<PhilmMovie>> result = new ArrayList<>(items.size());
+        final Set<PhilmMovie> movies = new HashSet<>(items);
+        final Map<MovieController.MovieFilter, List<ListItem<PhilmMovie>>> sectionItemLists
+                = new HashMap<>();
+
+        for (MovieController.MovieFilter filter : processingOrder) {
+            List<ListItem<PhilmMovie>> sectionItems = null;
+            for (Iterator<PhilmMovie> i = movies.iterator(); i.hasNext(); ) {
+                final PhilmMovie item = i.next();
+                if (item != null && filter.isFiltered(item)) {
+                    if (sectionItems == null) {
+                        sectionItems = new ArrayList<>();
+                        sectionItems.add(filter);
+                    }
+                    sectionItems.add(item);
+                    i.remove();
+                }
+            }
+            if (sectionItems != null) {
+                filter.sortListItems(sectionItems);
+                sectionItemLists.put(filter, sectionItems);
+            }
+        }
+
+        for (MovieController.MovieFilter filter : sections) {
+            if (sectionItemLists.containsKey(filter)) {
+                result.addAll(sectionItemLists.get(filter));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Items which sort equally may be in any order within their section, so each section is
+     * compared as a set, and checked to be sorted.
+     */
+    private static void assertSameSections(List<ListItem<PhilmMovie>> expected,
+            List<ListItem<PhilmMovie>> actual) {
+        final Map<ListItem<PhilmMovie>, Set<ListItem<PhilmMovie>>> expectedSections
+                = splitSections(expected);
+        final Map<ListItem<PhilmMovie>, Set<ListItem<PhilmMovie>>> actualSections
+                = splitSections(actual);
+
+        assertEquals(new ArrayList<>(expectedSections.keySet()),
+                new ArrayList<>(actualSections.keySet()));
+        assertEquals(expectedSections, actualSections);
+
+        for (int i = 1, z = actual.size(); i < z; i++) {
+            if (actual.get(i).getListType() == ListItem.TYPE_ITEM
+                    && actual.get(i - 1).getListType() == ListItem.TYPE_ITEM) {
+                assertTrue("Section not sorted at " + i, PhilmMovie.COMPARATOR_LIST_ITEM_DATE_ASC
+                        .compare(actual.get(i - 1), actual.get(i)) <= 0);
+            }
+        }
+    }
+
+    private static Map<ListItem<PhilmMovie>, Set<ListItem<PhilmMovie>>> splitSections(
+            List<ListItem<PhilmMovie>> items) {
+        final Map<ListItem<PhilmMovie>, Set<ListItem<PhilmMovie>>> sections
+                = new LinkedHashMap<>();
+        Set<ListItem<PhilmMovie>> section = null;
+        for (ListItem<PhilmMovie> item : items) {
+            if (item.getListType() == ListItem.TYPE_SECTION) {
+                section = new HashSet<>();
+                sections.put(item, section);
+            } else {
+                section.add(item);
+            }
+        }
+        return sections;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import app.philm.in.Fixtures;
+import app.philm.in.model.MovieAttributes;
+import app.philm.in.model.PhilmMovie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link MovieController#filterMovies(List, Set)}, which filters on
+ * {@link MovieAttributes} bitmasks, gives the same result as the per filter evaluation it
+ * replaced.
+ */
+public class MovieFilterTest {
+
+    private static final int MOVIE_COUNT = 500;
+
+    private List<PhilmMovie> mMovies;
+
+    @Before
+    public void setUp() {
+        mMovies = Fixtures.philmMovies(MOVIE_COUNT);
+    }
+
+    @Test
+    public void everyFilterCombinationMatchesPerFilter() {
+        for (Set<MovieController.MovieFilter> filters : allFilterCombinations()) {
+            assertEquals(filters.toString(), filterPerFilter(mMovies, filters),
+                    MovieController.filterMovies(mMovies, filters));
+        }
+    }
+
+    @Test
+    public void everyFilterCombinationMatchesPerFilterWithCachedAttributes() {
+        final long now = System.currentTimeMillis();
+        for (PhilmMovie movie : mMovies) {
+            MovieAttributes.update(movie, now);
+        }
+
+        for (Set<MovieController.MovieFilter> filters : allFilterCombinations()) {
+            assertEquals(filters.toString(), filterPerFilter(mMovies, filters),
+                    MovieController.filterMovies(mMovies, filters));
+        }
+    }
+
+    @Test
+    public void noFiltersOnlyRemovesAdultMovies() {
+        final List<PhilmMovie> filtered = MovieController.filterMovies(mMovies, null);
+
+        int adult = 0;
+        for (PhilmMovie movie : mMovies) {
+            if (movie.isAdult()) {
+                adult++;
+                assertFalse(filtered.contains(movie));
+            }
+        }
+        assertTrue("Fixtures should include adult movies", adult > 0);
+        assertEquals(mMovies.size() - adult, filtered.size());
+    }
+
+    @Test
+    public void changedMovieIsFilteredAgain() {
+        final Set<MovieController.MovieFilter> filters
+                = EnumSet.of(MovieController.MovieFilter.SEEN);
+        final long now = System.currentTimeMillis();
+        for (PhilmMovie movie : mMovies) {
+            MovieAttributes.update(movie, now);
+        }
+
+        final List<PhilmMovie> unseen = MovieController.filterMovies(mMovies, filters);
+        final PhilmMovie movie = unseen.get(0);
+        movie.setWatched(true);
+
+        assertFalse(MovieController.filterMovies(mMovies, filters).contains(movie));
+        assertEquals(filterPerFilter(mMovies, filters),
+                MovieController.filterMovies(mMovies, filters));
+    }
+
+    private static List<Set<MovieController.MovieFilter>> allFilterCombinations() {
+        final MovieController.MovieFilter[] values = MovieController.MovieFilter.values();
+        final List<Set<MovieController.MovieFilter>> combinations = new ArrayList<>();
+        for (int mask = 0; mask < (1 << values.length); mask++) {
+            final Set<MovieController.MovieFilter> filters
+                    = EnumSet.noneOf(MovieController.MovieFilter.class);
+            for (int i = 0; i < values.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    filters.add(values[i]);
+                }
+            }
+            combinations.add(filters);
+        }
+        return combinations;
+    }
+
+    /**
+     * The previous implementation of {@code MovieController.filterMovies()}.
+     */
+    private static List<PhilmMovie> filterPerFilter(List<PhilmMovie> movies,
+            Set<MovieController.MovieFilter> filters) {
+        final List<PhilmMovie> filteredMovies = new ArrayList<>(movies.size());
+        for (PhilmMovie movie : movies) {
+            boolean included = !movie.isAdult();
+            for (MovieController.MovieFilter filter : filters) {
+                if (included && MovieFilterBenchmark.isFiltered(filter, movie)) {
+                    included = false;
+                }
+            }
+            if (included) {
+                filteredMovies.add(movie);
+            }
+        }
+        return filteredMovies;
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import com.jakewharton.trakt.entities.Ratings;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import app.philm.in.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MovieAttributesTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final int RELEASE_FLAGS = MovieAttributes.FLAG_RELEASED
+            | MovieAttributes.FLAG_NOT_RELEASED | MovieAttributes.FLAG_SOON
+            | MovieAttributes.FLAG_UPCOMING;
+
+    @Test
+    public void releasedMovie() {
+        final PhilmMovie movie = createMovie(NOW - DAY_IN_MILLIS);
+        assertEquals(MovieAttributes.FLAG_RELEASED,
+                MovieAttributes.get(movie, NOW) & RELEASE_FLAGS);
+    }
+
+    @Test
+    public void movieReleasedSoon() {
+        final PhilmMovie movie = createMovie(NOW + DAY_IN_MILLIS);
+        assertEquals(MovieAttributes.FLAG_NOT_RELEASED | MovieAttributes.FLAG_SOON,
+                MovieAttributes.get(movie, NOW) & RELEASE_FLAGS);
+    }
+
+    @Test
+    public void upcomingMovie() {
+        final PhilmMovie movie = createMovie(NOW + Constants.FUTURE_SOON_THRESHOLD
+                + DAY_IN_MILLIS);
+        assertEquals(MovieAttributes.FLAG_NOT_RELEASED | MovieAttributes.FLAG_UPCOMING,
+                MovieAttributes.get(movie, NOW) & RELEASE_FLAGS);
+    }
+
+    @Test
+    public void userFlags() {
+        final PhilmMovie movie = createMovie(NOW);
+        assertEquals(MovieAttributes.FLAG_UNSEEN, MovieAttributes.get(movie, NOW)
+                & (MovieAttributes.FLAG_SEEN | MovieAttributes.FLAG_UNSEEN
+                | MovieAttributes.FLAG_COLLECTION));
+
+        movie.setWatched(true);
+        movie.setInCollection(true);
+        assertEquals(MovieAttributes.FLAG_SEEN | MovieAttributes.FLAG_COLLECTION,
+                MovieAttributes.get(movie, NOW)
+                        & (MovieAttributes.FLAG_SEEN | MovieAttributes.FLAG_UNSEEN
+                        | MovieAttributes.FLAG_COLLECTION));
+    }
+
+    @Test
+    public void highlyRated() {
+        final com.jakewharton.trakt.entities.Movie entity = createTraktMovie(NOW);
+        entity.ratings = new Ratings();
+        entity.ratings.percentage = Constants.FILTER_HIGHLY_RATED;
+        final PhilmMovie movie = new PhilmMovie();
+        movie.setFromMovie(entity);
+        assertFlag(MovieAttributes.FLAG_HIGHLY_RATED, movie, true);
+
+        entity.ratings.percentage = Constants.FILTER_HIGHLY_RATED - 1;
+        movie.setFromMovie(entity);
+        assertFlag(MovieAttributes.FLAG_HIGHLY_RATED, movie, false);
+    }
+
+    @Test
+    public void adult() {
+        final com.uwetrottmann.tmdb.entities.Movie entity
+                = new com.uwetrottmann.tmdb.entities.Movie();
+        entity.id = 1;
+        entity.title = "Title";
+        entity.adult = true;
+        final PhilmMovie movie = new PhilmMovie();
+        movie.setFromMovie(entity);
+        assertFlag(MovieAttributes.FLAG_ADULT, movie, true);
+    }
+
+    @Test
+    public void getDoesNotCache() {
+        final PhilmMovie movie = createMovie(NOW - DAY_IN_MILLIS);
+        MovieAttributes.get(movie, NOW);
+        assertEquals(0, movie.attributesValidUntil);
+    }
+
+    @Test
+    public void updateIsInvalidatedByChange() {
+        final PhilmMovie movie = createMovie(NOW - DAY_IN_MILLIS);
+        MovieAttributes.update(movie, NOW);
+        assertFlag(MovieAttributes.FLAG_UNSEEN, movie, true);
+
+        movie.setWatched(true);
+        assertFlag(MovieAttributes.FLAG_SEEN, movie, true);
+        assertFlag(MovieAttributes.FLAG_UNSEEN, movie, false);
+    }
+
+    @Test
+    public void cachedAttributesExpireAtThresholds() {
+        final long released = NOW + Constants.FUTURE_SOON_THRESHOLD + DAY_IN_MILLIS;
+        final PhilmMovie movie = createMovie(released);
+        assertEquals(MovieAttributes.FLAG_NOT_RELEASED | MovieAttributes.FLAG_UPCOMING,
+                MovieAttributes.update(movie, NOW) & RELEASE_FLAGS);
+
+        final long soon = released - Constants.FUTURE_SOON_THRESHOLD;
+        assertEquals(MovieAttributes.FLAG_NOT_RELEASED | MovieAttributes.FLAG_SOON,
+                MovieAttributes.update(movie, soon) & RELEASE_FLAGS);
+        assertEquals(MovieAttributes.FLAG_RELEASED,
+                MovieAttributes.update(movie, released) & RELEASE_FLAGS);
+    }
+
+    private static void assertFlag(int flag, PhilmMovie movie, boolean expected) {
+        assertTrue(Integer.toBinaryString(flag),
+                ((MovieAttributes.get(movie, NOW) & flag) != 0) == expected);
+    }
+
+    private static PhilmMovie createMovie(long releasedTime) {
+        final PhilmMovie movie = new PhilmMovie();
+        movie.setFromMovie(createTraktMovie(releasedTime));
+        return movie;
+    }
+
+    private static com.jakewharton.trakt.entities.Movie createTraktMovie(long releasedTime) {
+        final com.jakewharton.trakt.entities.Movie movie
+                = new com.jakewharton.trakt.entities.Movie();
+        movie.imdb_id = "tt0000001";
+        movie.title = "Title";
+        movie.released = new Date(releasedTime);
+        return movie;
+    }
+
+}
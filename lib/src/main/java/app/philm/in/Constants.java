@@ -35,6 +35,12 @@ public class Constants {
 
     public static final int FILTER_HIGHLY_RATED = 70;
 
+    /**
+     * How long a sectioned list can be reused for. Sections such as 'Soon' depend on the current
+     * time, so they need to be worked out again every so often.
+     */
+    public static final long SECTION_CACHE_MAX_AGE = 60 * 1000; // 60 secs
+
     public static final boolean DEBUG = true;
     public static final boolean DEBUG_NETWORK = false;
 
@@ -43,4 +49,77 @@ public class Constants {
     public static final int CONNECT_TIMEOUT_MILLIS = 15 * 1000; // 15s
     public static final int READ_TIMEOUT_MILLIS = 20 * 1000; // 20s
 
+    public static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024; // 10MB
+
+    public static final int MAX_RUNNING_TRAKT_CALLS = 2;
+    public static final int MAX_RUNNING_TMDB_CALLS = 4;
+
+    /**
+     * Failed calls are retried up to this many attempts in total, waiting twice as long before
+     * each retry, up to the maximum delay.
+     */
+    public static final int NETWORK_RETRY_MAX_ATTEMPTS = 3;
+    public static final long NETWORK_RETRY_BASE_DELAY_MILLIS = 1000;
+    public static final long NETWORK_RETRY_MAX_DELAY_MILLIS = 8 * 1000;
+
+    /**
+     * How many calls to an API need to fail in a row before further calls fail straight away,
+     * and for how long.
+     */
+    public static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    public static final long CIRCUIT_BREAKER_OPEN_MILLIS = 30 * 1000; // 30s
+
+    /**
+     * How many calls can be made to each API in a burst, and how many per second after that.
+     * TMDb allows 40 calls every 10 seconds.
+     */
+    public static final int TMDB_RATE_LIMIT_BURST = 20;
+    public static final double TMDB_RATE_LIMIT_PER_SECOND = 3.5;
+    public static final int TRAKT_RATE_LIMIT_BURST = 10;
+    public static final double TRAKT_RATE_LIMIT_PER_SECOND = 2;
+
+    /**
+     * How long to stop calling an API for when it rate limits us without a Retry-After header,
+     * and how many times a rate limited call is queued again.
+     */
+    public static final long RATE_LIMITED_DEFAULT_PAUSE_MILLIS = 10 * 1000; // 10s
+    public static final int RATE_LIMITED_MAX_REQUEUES = 3;
+
+    /**
+     * How many items from the end of a paginated list the user can scroll to before the next
+     * page is fetched.
+     */
+    public static final int PAGINATION_PREFETCH_THRESHOLD = 10;
+    public static final int MAX_PREFETCH_PAGES_IN_FLIGHT = 2;
+
+    /**
+     * How many pages either side of the visible page are kept in memory. Pages further away
+     * only keep their movies' ids.
+     */
+    public static final int PAGINATION_WINDOW_RADIUS = 5;
+
+    /**
+     * How long the user needs to stop typing for before a search is made.
+     */
+    public static final long SEARCH_DEBOUNCE_MILLIS = 300;
+    public static final int SEARCH_CACHE_SIZE = 20;
+    public static final int MAX_LOCAL_SEARCH_RESULTS = 50;
+
+    /**
+     * How long Trakt seen, watchlist and collection changes are held back for, so that several
+     * changes can be sent in one call.
+     */
+    public static final long TRAKT_MUTATION_BATCH_MILLIS = 1000;
+
+    /**
+     * How long the library and watchlist can be kept up to date from the user's Trakt activity
+     * before being fetched in full again. Activity does not include movies which were only
+     * removed from a list, so this limits how long such removals are missed for.
+     */
+    public static final long TRAKT_FULL_SYNC_INTERVAL = DAY_IN_MILLIS;
+    public static final long TRAKT_SYNC_CURSOR_MARGIN = 10 * 60 * 1000; // 10 mins
+
+    public static final int MAX_CACHED_MOVIES = 1000;
+    public static final int MAX_CACHED_PEOPLE = 250;
+
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.philm.in.model.ListItem;
+
+/**
+ * Splits a list of items into sections, as {@link MovieController} does for the watchlist. Each
+ * item is put into the first section, in processing order, which filters it. Items which no
+ * section filters are left out.
+ * <p>
+ * The last result is cached. If the next list has the same items in the same order, and none of
+ * them have been {@link #invalidate(Collection) invalidated}, the cached result is returned
+ * without evaluating any filters. If only a few items have changed, just those items are moved
+ * between sections, and only the sections which changed are sorted again. Some sections depend
+ * on the current time, so a cached result is only used for {@code maxAge} milliseconds.
+ * <p>
+ * This class is not thread safe.
+ */
+class ListSectioner<T extends ListItem<T>, F extends MovieController.Filter<T>> {
+
+    /**
+     * The largest fraction of the list which can change before we rebuild from scratch.
+     */
+    private static final int INCREMENTAL_UPDATE_RATIO = 8;
+
+    private static final int NO_SECTION = -1;
+
+    private final List<F> mSections;
+    private final List<F> mProcessingOrder;
+    private final long mMaxAge;
+
+    /**
+     * Each section's items, indexed by processing order. The section itself is always the first
+     * item, so that the lists can be passed straight to {@code Filter.sortListItems()}.
+     */
+    private final List<List<ListItem<T>>> mSectionItems;
+    private final boolean[] mSectionSorted;
+
+    private final Map<T, Integer> mItemSections = new HashMap<>();
+    private final Set<T> mInvalidated = new HashSet<>();
+    private List<T> mItems;
+    private List<ListItem<T>> mResult;
+    private long mResultTime;
+
+    ListSectioner(List<F> sections, List<F> processingOrder, long maxAge) {
+        mSections = Preconditions.checkNotNull(sections, "sections cannot be null");
+
+        if (processingOrder != null) {
+            Preconditions.checkArgument(sections.size() == processingOrder.size(),
+                    "sections and processingOrder must be the same size");
+            mProcessingOrder = processingOrder;
+        } else {
+            mProcessingOrder = sections;
+        }
+
+        mMaxAge = maxAge;
+
+        mSectionItems = new ArrayList<>(mProcessingOrder.size());
+        for (F section : mProcessingOrder) {
+            List<ListItem<T>> items = new ArrayList<>();
+            items.add(section);
+            mSectionItems.add(items);
+        }
+        mSectionSorted = new boolean[mProcessingOrder.size()];
+    }
+
+    boolean hasSections(List<F> sections, List<F> processingOrder) {
+        return mSections.equals(sections)
+                && mProcessingOrder.equals(processingOrder != null ? processingOrder : sections);
+    }
+
+    /**
+     * Marks {@code items} as changed, so that they are put into a section again the next time
+     * {@link #section(List)} is called.
+     */
+    void invalidate(Collection<T> items) {
+        if (mResult != null) {
+            mInvalidated.addAll(items);
+        }
+    }
+
+    void clear() {
+        mItems = null;
+        mResult = null;
+        mItemSections.clear();
+        mInvalidated.clear();
+        for (List<ListItem<T>> items : mSectionItems) {
+            items.subList(1, items.size()).clear();
+        }
+    }
+
+    /**
+     * @return the sectioned list. The returned list may be returned again by later calls, so it
+     * must not be modified.
+     */
+    List<ListItem<T>> section(final List<T> items) {
+        Preconditions.checkNotNull(items, "items cannot be null");
+
+        final long now = System.currentTimeMillis();
+        if (mResult == null || now - mResultTime > mMaxAge) {
+            rebuild(items, now);
+        } else if (mInvalidated.isEmpty() && isSameItems(items)) {
+            return mResult;
+        } else if (!updateIncrementally(items, now)) {
+            rebuild(items, now);
+        }
+
+        mItems = new ArrayList<>(items);
+        mInvalidated.clear();
+        mResult = flatten();
+        mResultTime = now;
+        return mResult;
+    }
+
+    private boolean isSameItems(List<T> items) {
+        final List<T> previous = mItems;
+        if (previous.size() != items.size()) {
+            return false;
+        }
+        for (int i = 0, z = items.size(); i < z; i++) {
+            if (previous.get(i) != items.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rebuild(List<T> items, long now) {
+        clear();
+
+        for (int i = 0, z = items.size(); i < z; i++) {
+            final T item = items.get(i);
+            if (item != null && !mItemSections.containsKey(item)) {
+                addToSection(item, now);
+            }
+        }
+
+        for (int i = 0, z = mSectionSorted.length; i < z; i++) {
+            mSectionSorted[i] = false;
+        }
+    }
+
+    /**
+     * @return false if too much has changed, in which case nothing has been updated
+     */
+    private boolean updateIncrementally(List<T> items, long now) {
+        final int maxChanges = Math.max(1, items.size() / INCREMENTAL_UPDATE_RATIO);
+
+        final Set<T> current = new HashSet<>(items.size());
+        final List<T> added = new ArrayList<>();
+        for (int i = 0, z = items.size(); i < z; i++) {
+            final T item = items.get(i);
+            if (item != null && current.add(item) && !mItemSections.containsKey(item)) {
+                added.add(item);
+            }
+        }
+
+        final List<T> removed = new ArrayList<>();
+        for (T item : mItemSections.keySet()) {
+            if (!current.contains(item)) {
+                removed.add(item);
+            }
+        }
+
+        if (added.size() + removed.size() + mInvalidated.size() > maxChanges) {
+            return false;
+        }
+
+        for (T item : removed) {
+            removeFromSection(item);
+        }
+        for (T item : mInvalidated) {
+            if (current.contains(item) && mItemSections.containsKey(item)) {
+                removeFromSection(item);
+                addToSection(item, now);
+            }
+        }
+        for (T item : added) {
+            addToSection(item, now);
+        }
+        return true;
+    }
+
+    private void addToSection(T item, long now) {
+        final int section = findSection(item, now);
+        mItemSections.put(item, section);
+        if (section != NO_SECTION) {
+            mSectionItems.get(section).add(item);
+            mSectionSorted[section] = false;
+        }
+    }
+
+    private void removeFromSection(T item) {
+        final Integer section = mItemSections.remove(item);
+        if (section != null && section != NO_SECTION) {
+            // Removing an item does not change the order of the rest
+            mSectionItems.get(section).remove(item);
+        }
+    }
+
+    private int findSection(T item, long now) {
+        for (int i = 0, z = mProcessingOrder.size(); i < z; i++) {
+            if (mProcessingOrder.get(i).isFiltered(item, now)) {
+                return i;
+            }
+        }
+        return NO_SECTION;
+    }
+
+    private List<ListItem<T>> flatten() {
+        int size = 0;
+        for (int i = 0, z = mSectionItems.size(); i < z; i++) {
+            final List<ListItem<T>> sectionItems = mSectionItems.get(i);
+            if (!mSectionSorted[i]) {
+                mProcessingOrder.get(i).sortListItems(sectionItems);
+                mSectionSorted[i] = true;
+            }
+            if (sectionItems.size() > 1) {
+                size += sectionItems.size();
+            }
+        }
+
+        final List<ListItem<T>> result = new ArrayList<>(size);
+        for (F section : mSections) {
+            final List<ListItem<T>> sectionItems
+                    = mSectionItems.get(mProcessingOrder.indexOf(section));
+            if (sectionItems.size() > 1) {
+                result.addAll(sectionItems);
+            }
+        }
+        return result;
+    }
+
+}
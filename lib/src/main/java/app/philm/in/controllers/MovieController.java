@@ -16,20 +16,23 @@
 
 package app.philm.in.controllers;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
 
 import com.jakewharton.trakt.enumerations.Rating;
 import com.squareup.otto.Subscribe;
 
 import android.os.Bundle;
-import android.support.v4.util.ArrayMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +45,8 @@ import app.philm.in.Display;
 import app.philm.in.lib.R;
 import app.philm.in.model.ColorScheme;
 import app.philm.in.model.ListItem;
+import app.philm.in.model.MovieAttributes;
+import app.philm.in.model.PhilmAccount;
 import app.philm.in.model.PhilmModel;
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmMovieCredit;
@@ -50,11 +55,15 @@ import app.philm.in.model.PhilmPerson;
 import app.philm.in.model.PhilmPersonCredit;
 import app.philm.in.model.PhilmUserProfile;
 import app.philm.in.model.WatchingMovie;
+import app.philm.in.network.BackgroundCallRunnable;
 import app.philm.in.network.NetworkError;
+import app.philm.in.qualifiers.ForComputation;
 import app.philm.in.qualifiers.GeneralPurpose;
 import app.philm.in.state.AsyncDatabaseHelper;
 import app.philm.in.state.BaseState;
+import app.philm.in.state.MovieLists;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.TraktMutationJournal;
 import app.philm.in.state.UserState;
 import app.philm.in.tasks.AddToTraktCollectionRunnable;
 import app.philm.in.tasks.AddToTraktWatchlistRunnable;
@@ -87,23 +96,28 @@ import app.philm.in.tasks.MarkTraktMovieUnseenRunnable;
 import app.philm.in.tasks.RemoveFromTraktCollectionRunnable;
 import app.philm.in.tasks.RemoveFromTraktWatchlistRunnable;
 import app.philm.in.tasks.SubmitTraktMovieRatingRunnable;
+import app.philm.in.tasks.SyncTraktActivityRunnable;
 import app.philm.in.util.BackgroundExecutor;
 import app.philm.in.util.Injector;
+import app.philm.in.util.IntHashMap;
 import app.philm.in.util.Logger;
+import app.philm.in.util.MainThreadScheduler;
 import app.philm.in.util.PhilmCollections;
 import app.philm.in.util.PhilmPreferences;
 import app.philm.in.util.StringFetcher;
+import app.philm.in.util.TaskHandle;
 import app.philm.in.util.TextUtils;
 
-import static app.philm.in.util.TimeUtils.isAfterThreshold;
-import static app.philm.in.util.TimeUtils.isBeforeThreshold;
-import static app.philm.in.util.TimeUtils.isInFuture;
-import static app.philm.in.util.TimeUtils.isInPast;
-
 @Singleton
 public class MovieController extends BaseUiController<MovieController.MovieUi,
         MovieController.MovieUiCallbacks> {
 
+    /**
+     * The journal operation for movie ratings. Flag changes use the name of their
+     * {@link TraktMutationQueue.Action}.
+     */
+    private static final String OPERATION_RATE = "RATE";
+
     private static final String LOG_TAG = MovieController.class.getSimpleName();
 
     private static final boolean IGNORE_ADULT = true;
@@ -112,36 +126,132 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     private final MoviesState mMoviesState;
     private final BackgroundExecutor mExecutor;
+    private final BackgroundExecutor mComputationExecutor;
     private final AsyncDatabaseHelper mDbHelper;
     private final Logger mLogger;
     private final PhilmPreferences mPreferences;
     private final StringFetcher mStringFetcher;
     private final Injector mInjector;
+    private final MainThreadScheduler mMainThreadScheduler;
 
     private boolean mPopulatedLibraryFromDb = false;
     private boolean mPopulatedWatchlistFromDb = false;
 
+    /**
+     * The sectioner is used on the computation thread, and invalidated from the main thread.
+     */
+    private final Object mSectionerLock = new Object();
+    private ListSectioner<PhilmMovie, MovieFilter> mSectioner;
+
+    /**
+     * The latest list build for each UI, keyed by UI id.
+     */
+    private final IntHashMap<MovieListTask> mListTasks = new IntHashMap<>();
+    private int mListGeneration;
+
+    private final PagePrefetcher mPagePrefetcher = new PagePrefetcher(
+            Constants.PAGINATION_PREFETCH_THRESHOLD, Constants.MAX_PREFETCH_PAGES_IN_FLIGHT);
+
+    private final MoviesState.PaginatedResult.Resolver<PhilmMovie> mMovieResolver
+            = new MoviesState.PaginatedResult.Resolver<PhilmMovie>() {
+                @Override
+                public PhilmMovie get(int id) {
+                    return mMoviesState.getMovie(id);
+                }
+            };
+
+    private final PopulateCoalescer<MovieUi, MovieQueryType> mPopulateCoalescer;
+
+    private final SearchResultCache mSearchCache =
+            new SearchResultCache(Constants.SEARCH_CACHE_SIZE);
+    private final List<TaskHandle> mSearchTasks = new ArrayList<>();
+    private PendingSearch mPendingSearch;
+
+    private final TraktMutationQueue mMutationQueue;
+    private final TraktMutationJournal mMutationJournal;
+
     @Inject
     public MovieController(
             MoviesState movieState,
             @GeneralPurpose BackgroundExecutor executor,
+            @ForComputation BackgroundExecutor computationExecutor,
             AsyncDatabaseHelper dbHelper,
             Logger logger,
             PhilmPreferences preferences,
             StringFetcher stringFetcher,
-            Injector injector) {
+            Injector injector,
+            MainThreadScheduler mainThreadScheduler,
+            TraktMutationJournal mutationJournal) {
         super();
         mMoviesState = Preconditions.checkNotNull(movieState, "moviesState cannot be null");
         mExecutor = Preconditions.checkNotNull(executor, "executor cannot be null");
+        mComputationExecutor = Preconditions.checkNotNull(computationExecutor,
+                "computationExecutor cannot be null");
         mDbHelper = Preconditions.checkNotNull(dbHelper, "dbHelper cannot be null");
         mLogger = Preconditions.checkNotNull(logger, "logger cannot be null");
         mPreferences = Preconditions.checkNotNull(preferences, "preferences cannot be null");
         mStringFetcher = Preconditions.checkNotNull(stringFetcher, "stringFetcher cannot be null");
         mInjector = Preconditions.checkNotNull(injector, "injector cannot be null");
+
+        mMainThreadScheduler = Preconditions.checkNotNull(mainThreadScheduler,
+                "mainThreadScheduler cannot be null");
+        mMutationJournal = Preconditions.checkNotNull(mutationJournal,
+                "mutationJournal cannot be null");
+
+        mMutationQueue = new TraktMutationQueue(mMainThreadScheduler,
+                new TraktMutationQueue.Host() {
+                    @Override
+                    public void sendMutation(int callingId, TraktMutationQueue.Action action,
+                            String[] traktIds, long[] journalIds) {
+                        sendTraktMutation(callingId, action, traktIds, journalIds);
+                    }
+
+                    @Override
+                    public void discardMutations(long... journalIds) {
+                        mMutationJournal.remove(journalIds);
+                    }
+                }, Constants.TRAKT_MUTATION_BATCH_MILLIS);
+
+        mPopulateCoalescer = new PopulateCoalescer<>(mMainThreadScheduler,
+                new PopulateCoalescer.Host<MovieUi, MovieQueryType>() {
+                    @Override
+                    public Set<MovieUi> getUis() {
+                        return MovieController.this.getUis();
+                    }
+
+                    @Override
+                    public MovieQueryType getQueryType(MovieUi ui) {
+                        return ui.getMovieQueryType();
+                    }
+
+                    @Override
+                    public int getId(MovieUi ui) {
+                        return MovieController.this.getId(ui);
+                    }
+
+                    @Override
+                    public void populateUi(MovieUi ui) {
+                        MovieController.this.populateUi(ui);
+                    }
+                },
+                MovieQueryType.class);
+
+        mMutationJournal.runWhenLoaded(new Runnable() {
+            @Override
+            public void run() {
+                mMainThreadScheduler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onMutationJournalLoaded();
+                    }
+                });
+            }
+        });
     }
 
     @Subscribe
     public void onLibraryChanged(MoviesState.LibraryChangedEvent event) {
+        applyPendingMutations(mMoviesState.getLibrary());
         populateUiFromQueryType(MovieQueryType.LIBRARY);
     }
 
@@ -167,26 +277,40 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     @Subscribe
     public void onWatchlistChanged(MoviesState.WatchlistChangedEvent event) {
+        applyPendingMutations(mMoviesState.getWatchlist());
         populateUiFromQueryType(MovieQueryType.WATCHLIST);
     }
 
     @Subscribe
     public void onAccountChanged(UserState.AccountChangedEvent event) {
+        // Changes made by the previous account should not be sent as the new one
+        mMutationQueue.clear();
+        final PhilmAccount account = mMoviesState.getCurrentAccount();
+        mMutationJournal.setOwner(account != null ? account.getAccountName() : null);
+
         // Nuke all Movie State...
         mMoviesState.setLibrary(null);
         mMoviesState.setWatchlist(null);
         mMoviesState.setRecommended(null);
+        cancelSearch();
         mMoviesState.setSearchResult(null);
-        mMoviesState.getImdbIdMovies().clear();
-        mMoviesState.getTmdbIdMovies().clear();
+        mSearchCache.clear();
+        mMoviesState.clearMovies();
         mMoviesState.setWatchingMovie(null);
 
+        synchronized (mSectionerLock) {
+            if (mSectioner != null) {
+                mSectioner.clear();
+            }
+        }
+
         if (mDbHelper != null) {
             mDbHelper.deleteAllPhilmMovies();
         }
 
         // If we have a new account, pre-fetch library & watchlist
         if (isLoggedIn()) {
+            replayPendingMutations();
             prefetchLibraryIfNeeded();
             prefetchWatchlistIfNeeded();
         }
@@ -194,6 +318,11 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     @Subscribe
     public void onSearchResultChanged(MoviesState.SearchResultChangedEvent event) {
+        final MoviesState.SearchResult result = mMoviesState.getSearchResult();
+        if (result != null) {
+            mSearchCache.put(result);
+        }
+
         populateUisFromQueryTypes(MovieQueryType.SEARCH, MovieQueryType.SEARCH_MOVIES,
                 MovieQueryType.SEARCH_PEOPLE);
     }
@@ -205,11 +334,14 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     @Subscribe
     public void onTmdbConfigurationChanged(MoviesState.TmdbConfigurationChangedEvent event) {
-        populateUis();
+        schedulePopulateUis();
     }
 
     @Subscribe
     public void onMovieFlagsChanged(MoviesState.MovieFlagsUpdatedEvent event) {
+        applyPendingMutations(event.item);
+        invalidateSections(event.item);
+
         MovieUi ui = findUi(event.callingId);
         if (ui != null) {
             // Refetch the recommended tab if the UI if event came from recommended
@@ -217,21 +349,23 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                 fetchRecommended(event.callingId);
             }
 
-            populateUi(ui);
+            schedulePopulateUi(ui);
         } else {
-            populateUis();
+            schedulePopulateUis();
         }
     }
 
     @Subscribe
     public void onMovieDetailChanged(MoviesState.MovieInformationUpdatedEvent event) {
-        populateUiFromEvent(event);
+        applyPendingMutations(Collections.singletonList(event.item));
+        invalidateSections(Collections.singletonList(event.item));
+        schedulePopulateUi(event);
         checkDetailMovieResult(event.callingId, event.item);
     }
 
     @Subscribe
     public void onPersonCreditsChanged(MoviesState.PersonChangedEvent event) {
-        populateUiFromEvent(event);
+        schedulePopulateUi(event);
     }
 
     @Subscribe
@@ -241,7 +375,8 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     @Subscribe
     public void onMovieReleasesChanged(MoviesState.MovieReleasesUpdatedEvent event) {
-        populateUiFromEvent(event);
+        invalidateSections(Collections.singletonList(event.item));
+        schedulePopulateUi(event);
     }
 
     @Subscribe
@@ -255,7 +390,14 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     @Subscribe
     public void onMovieImagesChanged(MoviesState.MovieImagesUpdatedEvent event) {
-        populateUiFromEvent(event);
+        schedulePopulateUi(event);
+    }
+
+    @Subscribe
+    public void onConnectivityRestored(BaseState.ConnectivityRestoredEvent event) {
+        if (isLoggedIn()) {
+            replayPendingMutations();
+        }
     }
 
     @Subscribe
@@ -290,12 +432,15 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         if (isLoggedIn()) {
             fetchWatchingMovieIfNeeded();
+            replayPendingMutations();
         }
     }
 
     @Override
     protected void onSuspended() {
         super.onSuspended();
+        // Don't hold changes back while the app is in the background
+        mMutationQueue.flush();
         mMoviesState.unregisterForEvents(this);
     }
 
@@ -453,103 +598,87 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             public void toggleMovieSeen(PhilmMovie movie) {
                 Preconditions.checkNotNull(movie, "movie cannot be null");
 
-                if (movie.isWatched()) {
-                    markMoviesUnseen(getId(ui), movie.getTraktId());
-                } else {
-                    markMoviesSeen(getId(ui), movie.getTraktId());
-                }
+                setMoviesSeen(Collections.singletonList(movie), !movie.isWatched());
             }
 
             @Override
             public void toggleInWatchlist(PhilmMovie movie) {
                 Preconditions.checkNotNull(movie, "movie cannot be null");
 
-                if (movie.inWatchlist()) {
-                    removeFromWatchlist(getId(ui), movie.getTraktId());
-                } else {
-                    addToWatchlist(getId(ui), movie.getTraktId());
-                }
+                setMoviesInWatchlist(Collections.singletonList(movie), !movie.inWatchlist());
             }
 
             @Override
             public void toggleInCollection(PhilmMovie movie) {
                 Preconditions.checkNotNull(movie, "movie cannot be null");
 
-                if (movie.inCollection()) {
-                    removeFromCollection(getId(ui), movie.getTraktId());
-                } else {
-                    addToCollection(getId(ui), movie.getTraktId());
-                }
+                setMoviesInCollection(Collections.singletonList(movie), !movie.inCollection());
             }
 
             @Override
             public void setMoviesInCollection(List<PhilmMovie> movies, boolean inCollection) {
-                final ArrayList<String> ids = new ArrayList<>(movies.size());
+                final ArrayList<PhilmMovie> changed = new ArrayList<>(movies.size());
                 for (PhilmMovie movie : movies) {
                     if (inCollection != movie.inCollection()) {
-                        ids.add(movie.getTraktId());
+                        changed.add(movie);
                     }
                 }
 
-                final String[] idsArray = new String[ids.size()];
-                if (inCollection) {
-                    addToCollection(getId(ui), ids.toArray(idsArray));
-                } else {
-                    removeFromCollection(getId(ui), ids.toArray(idsArray));
-                }
+                queueTraktMutation(getId(ui), inCollection
+                        ? TraktMutationQueue.Action.ADD_TO_COLLECTION
+                        : TraktMutationQueue.Action.REMOVE_FROM_COLLECTION, changed);
             }
 
             @Override
             public void setMoviesInWatchlist(List<PhilmMovie> movies, boolean inWatchlist) {
-                final ArrayList<String> ids = new ArrayList<>(movies.size());
+                final ArrayList<PhilmMovie> changed = new ArrayList<>(movies.size());
                 for (PhilmMovie movie : movies) {
                     if (inWatchlist != movie.inWatchlist()) {
-                        ids.add(movie.getTraktId());
+                        changed.add(movie);
                     }
                 }
 
-                final String[] idsArray = new String[ids.size()];
-                if (inWatchlist) {
-                    addToWatchlist(getId(ui), ids.toArray(idsArray));
-                } else {
-                    removeFromWatchlist(getId(ui), ids.toArray(idsArray));
-                }
+                queueTraktMutation(getId(ui), inWatchlist
+                        ? TraktMutationQueue.Action.ADD_TO_WATCHLIST
+                        : TraktMutationQueue.Action.REMOVE_FROM_WATCHLIST, changed);
             }
 
             @Override
             public void setMoviesSeen(List<PhilmMovie> movies, boolean seen) {
-                final ArrayList<String> ids = new ArrayList<>(movies.size());
+                final ArrayList<PhilmMovie> changed = new ArrayList<>(movies.size());
+                final ArrayList<PhilmMovie> inWatchlist = new ArrayList<>();
                 for (PhilmMovie movie : movies) {
                     if (seen != movie.isWatched()) {
-                        ids.add(movie.getTraktId());
+                        changed.add(movie);
+                        if (seen && movie.inWatchlist()) {
+                            inWatchlist.add(movie);
+                        }
                     }
                 }
 
-                final String[] idsArray = new String[ids.size()];
-                if (seen) {
-                    markMoviesSeen(getId(ui), ids.toArray(idsArray));
-                } else {
-                    markMoviesUnseen(getId(ui), ids.toArray(idsArray));
+                queueTraktMutation(getId(ui), seen
+                        ? TraktMutationQueue.Action.MARK_SEEN
+                        : TraktMutationQueue.Action.MARK_UNSEEN, changed);
+
+                if (isLoggedIn() && mPreferences.shouldRemoveFromWatchlistOnWatched()) {
+                    queueTraktMutation(getId(ui),
+                            TraktMutationQueue.Action.REMOVE_FROM_WATCHLIST, inWatchlist);
                 }
             }
 
             @Override
             public void search(String query) {
-                switch (ui.getMovieQueryType()) {
-                    case SEARCH:
-                        fetchSearchResults(getId(ui), query);
-                        break;
-                    case SEARCH_MOVIES:
-                        fetchMovieSearchResults(getId(ui), query);
-                        break;
-                    case SEARCH_PEOPLE:
-                        fetchPeopleSearchResults(getId(ui), query);
-                        break;
-                }
+                onSearchQuery(ui, query, true);
+            }
+
+            @Override
+            public void onSearchQueryChanged(String query) {
+                onSearchQuery(ui, query, false);
             }
 
             @Override
             public void clearSearch() {
+                cancelSearch();
                 mMoviesState.setSearchResult(null);
             }
 
@@ -571,41 +700,63 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             }
 
             @Override
-            public void onScrolledToBottom() {
-                MoviesState.SearchResult searchResult;
-                MoviesState.MoviePaginatedResult result;
-
-                switch (ui.getMovieQueryType()) {
+            public void onScrolledToPosition(int lastVisiblePosition, int itemCount) {
+                final MovieQueryType queryType = ui.getMovieQueryType();
+                final MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
+                String listKey = queryType.name();
+                String query = null;
+                MoviesState.PaginatedResult<?> result;
+
+                switch (queryType) {
                     case POPULAR:
                         result = mMoviesState.getPopular();
-                        if (canFetchNextPage(result)) {
-                            fetchPopular(getId(ui), result.page + 1);
-                        }
-                        break;
-                    case SEARCH_PEOPLE:
-                        searchResult = mMoviesState.getSearchResult();
-                        if (searchResult != null && canFetchNextPage(searchResult.people)) {
-                            fetchPeopleSearchResults(
-                                    getId(ui),
-                                    searchResult.query,
-                                    searchResult.people.page + 1);
-                        }
                         break;
-                    case SEARCH_MOVIES:
-                        searchResult = mMoviesState.getSearchResult();
-                        if (searchResult != null && canFetchNextPage(searchResult.movies)) {
-                            fetchMovieSearchResults(
-                                    getId(ui),
-                                    searchResult.query,
-                                    searchResult.movies.page + 1);
-                        }
+                    case NOW_PLAYING:
+                        result = mMoviesState.getNowPlaying();
                         break;
                     case UPCOMING:
                         result = mMoviesState.getUpcoming();
-                        if (canFetchNextPage(result)) {
-                            fetchUpcoming(getId(ui), result.page + 1);
+                        break;
+                    case SEARCH_MOVIES:
+                    case SEARCH_PEOPLE:
+                        if (searchResult == null) {
+                            return;
                         }
+                        query = searchResult.query;
+                        result = queryType == MovieQueryType.SEARCH_MOVIES
+                                ? searchResult.movies
+                                : searchResult.people;
+                        listKey += '/' + query;
                         break;
+                    default:
+                        return;
+                }
+
+                if (result == null) {
+                    return;
+                }
+
+                final int callingId = getId(ui);
+
+                if (result instanceof MoviesState.MoviePaginatedResult) {
+                    final int missingPage = updatePageWindow(
+                            (MoviesState.MoviePaginatedResult) result, lastVisiblePosition);
+                    if (missingPage != PagePrefetcher.NO_PAGE
+                            && mPagePrefetcher.canRequestPage(listKey)) {
+                        mPagePrefetcher.onPageRequested(listKey,
+                                fetchPage(queryType, callingId, query, missingPage));
+                        return;
+                    }
+                }
+
+                if (!mPagePrefetcher.isNearEnd(lastVisiblePosition, itemCount)) {
+                    return;
+                }
+
+                final int page = mPagePrefetcher.getNextPage(listKey, result);
+                if (page != PagePrefetcher.NO_PAGE) {
+                    mPagePrefetcher.onPageRequested(listKey,
+                            fetchPage(queryType, callingId, query, page));
                 }
             }
 
@@ -756,13 +907,18 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                     getDisplay().setStatusBarColor(scrollPercentage);
                 }
             }
-
-            private boolean canFetchNextPage(MoviesState.PaginatedResult<?> paginatedResult) {
-                return paginatedResult != null && paginatedResult.page < paginatedResult.totalPages;
-            }
         };
     }
 
+    @Override
+    protected void onUiDetached(MovieUi ui) {
+        super.onUiDetached(ui);
+
+        // Nothing is waiting on this UI's calls now, so stop them holding up other UIs
+        mExecutor.cancelAll(getId(ui));
+        cancelListTask(getId(ui));
+    }
+
     @Override
     protected void onUiAttached(final MovieUi ui) {
         final MovieQueryType queryType = ui.getMovieQueryType();
@@ -896,14 +1052,6 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         }
     }
 
-    private void addToCollection(final int callingId, String... ids) {
-        executeTask(new AddToTraktCollectionRunnable(callingId, ids));
-    }
-
-    private void addToWatchlist(final int callingId, String... ids) {
-        executeTask(new AddToTraktWatchlistRunnable(callingId, ids));
-    }
-
     private void cancelCheckin(int callingId) {
         if (mMoviesState.getWatchingMovie() != null) {
             executeTask(new CancelCheckinTraktRunnable(callingId));
@@ -931,63 +1079,126 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         return listItems;
     }
 
-    private <T extends ListItem<T>, F extends Filter<T>> List<ListItem<T>> createSectionedListItemList(
+    @VisibleForTesting
+    static <T extends ListItem<T>, F extends Filter<T>> List<ListItem<T>> createSectionedListItemList(
             final List<T> items,
             final List<F> sections,
             List<F> sectionProcessingOrder) {
-        Preconditions.checkNotNull(items, "items cannot be null");
-        Preconditions.checkNotNull(sections, "sections cannot be null");
+        return new ListSectioner<T, F>(sections, sectionProcessingOrder, 0).section(items);
+    }
 
-        if (sectionProcessingOrder != null) {
-            Preconditions.checkArgument(sections.size() == sectionProcessingOrder.size(),
-                    "sections and sectionProcessingOrder must be the same size");
-        } else {
-            sectionProcessingOrder = sections;
+    /**
+     * Sections {@code items}, reusing as much of the last result as possible.
+     */
+    private List<ListItem<PhilmMovie>> getSectionedListItemList(List<PhilmMovie> items,
+            List<MovieFilter> sections, List<MovieFilter> sectionProcessingOrder) {
+        synchronized (mSectionerLock) {
+            if (mSectioner == null
+                    || !mSectioner.hasSections(sections, sectionProcessingOrder)) {
+                mSectioner = new ListSectioner<>(sections, sectionProcessingOrder,
+                        Constants.SECTION_CACHE_MAX_AGE);
+            }
+            return mSectioner.section(items);
+        }
+    }
+
+    private void invalidateSections(List<PhilmMovie> movies) {
+        synchronized (mSectionerLock) {
+            if (mSectioner != null && movies != null) {
+                mSectioner.invalidate(movies);
+            }
         }
+    }
+
+    /**
+     * Builds the list items for {@code ui} on the computation executor, and sets them on the UI
+     * once finished. Any build still running for the UI is superseded.
+     */
+    private void buildMovieListItems(MovieListUi ui, List<PhilmMovie> items,
+            Set<MovieFilter> filters, List<MovieFilter> sections,
+            List<MovieFilter> sectionProcessingOrder) {
+        final int uiId = getId(ui);
+        cancelListTask(uiId);
 
-        final List<ListItem<T>> result = new ArrayList<>(items.size());
-        final HashSet<T> movies = new HashSet<>(items);
+        // Work out the movies' attributes here, so that building the list only reads them
+        final long now = System.currentTimeMillis();
+        for (int i = 0, z = items.size(); i < z; i++) {
+            final PhilmMovie movie = items.get(i);
+            if (movie != null) {
+                MovieAttributes.update(movie, now);
+            }
+        }
 
-        Map<F, List<ListItem<T>>> sectionsItemLists = null;
+        // Snapshot the state, as it can change on the main thread while the list is built
+        final MovieListTask task = new MovieListTask(ui, ++mListGeneration,
+                new ArrayList<>(items),
+                filters != null ? new HashSet<>(filters) : null,
+                sections, sectionProcessingOrder);
+        mListTasks.put(uiId, task);
+        task.mHandle = mComputationExecutor.execute(task);
+    }
 
-        for (F filter : sectionProcessingOrder) {
-            List<ListItem<T>> sectionItems = null;
+    private void cancelListTask(int uiId) {
+        final MovieListTask task = mListTasks.remove(uiId);
+        if (task != null && task.mHandle != null) {
+            task.mHandle.cancel();
+        }
+    }
 
-            for (Iterator<T> i = movies.iterator(); i.hasNext(); ) {
-                T item = i.next();
-                if (item != null && filter.isFiltered(item)) {
-                    if (sectionItems == null) {
-                        sectionItems = new ArrayList<>();
-                        sectionItems.add(filter);
-                    }
-                    sectionItems.add(item);
-                    i.remove();
-                }
+    private class MovieListTask extends BackgroundCallRunnable<List<ListItem<PhilmMovie>>> {
+        private final MovieListUi mUi;
+        private final int mGeneration;
+        private final List<PhilmMovie> mItems;
+        private final Set<MovieFilter> mFilters;
+        private final List<MovieFilter> mSections;
+        private final List<MovieFilter> mSectionProcessingOrder;
+        TaskHandle mHandle;
+
+        MovieListTask(MovieListUi ui, int generation, List<PhilmMovie> items,
+                Set<MovieFilter> filters, List<MovieFilter> sections,
+                List<MovieFilter> sectionProcessingOrder) {
+            mUi = ui;
+            mGeneration = generation;
+            mItems = items;
+            mFilters = filters;
+            mSections = sections;
+            mSectionProcessingOrder = sectionProcessingOrder;
+        }
+
+        @Override
+        public List<ListItem<PhilmMovie>> runAsync() {
+            List<PhilmMovie> items = mItems;
+            if (!items.isEmpty()) {
+                // Always filter movies (for adult)
+                items = filterMovies(items, mFilters);
             }
 
-            if (!PhilmCollections.isEmpty(sectionItems)) {
-                if (sectionsItemLists == null) {
-                    sectionsItemLists = new ArrayMap<>();
-                }
-                filter.sortListItems(sectionItems);
-                sectionsItemLists.put(filter, sectionItems);
+            if (PhilmCollections.isEmpty(mSections)) {
+                return createListItemList(items);
+            } else {
+                return getSectionedListItemList(items, mSections, mSectionProcessingOrder);
             }
         }
 
-        if (sectionsItemLists != null) {
-            for (F filter : sections) {
-                if (sectionsItemLists.containsKey(filter)) {
-                    result.addAll(sectionsItemLists.get(filter));
-                }
+        @Override
+        public void postExecute(List<ListItem<PhilmMovie>> result) {
+            final int uiId = getId(mUi);
+            final MovieListTask latest = mListTasks.get(uiId);
+            if (latest == null || latest.mGeneration != mGeneration) {
+                // A newer build has been started since, so this result is stale
+                return;
             }
-        }
+            mListTasks.remove(uiId);
 
-        return result;
+            if (getUis().contains(mUi)) {
+                mUi.setItems(result);
+            }
+        }
     }
 
-    private <R> void executeTask(BaseMovieRunnable<R> task) {
+    private <R> TaskHandle executeTask(BaseMovieRunnable<R> task) {
         mInjector.inject(task);
-        mExecutor.execute(task);
+        return mExecutor.execute(task);
     }
 
     private void fetchDetailMovie(final int callingId, String id) {
@@ -997,11 +1208,36 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         if (movie != null) {
             fetchDetailMovieIfNeeded(callingId, movie, true);
         } else {
-            // TODO Try and parse id to guess type
-            fetchDetailMovieFromTrakt(callingId, id);
+            fetchDetailMovieFromDb(callingId, id, true);
         }
     }
 
+    /**
+     * The movie may have been evicted from {@link MoviesState}, so check whether we have it
+     * persisted before going to the network.
+     */
+    private void fetchDetailMovieFromDb(final int callingId, final String id,
+            final boolean force) {
+        mDbHelper.getMovie(id, new AsyncDatabaseHelper.Callback<PhilmMovie>() {
+            @Override
+            public void onFinished(PhilmMovie result) {
+                PhilmMovie movie = mMoviesState.getMovie(id);
+                if (movie == null && result != null) {
+                    mMoviesState.putMovie(result);
+                    movie = result;
+                    populateUiFromQueryType(MovieQueryType.MOVIE_DETAIL);
+                }
+
+                if (movie != null) {
+                    fetchDetailMovieIfNeeded(callingId, movie, force);
+                } else {
+                    // TODO Try and parse id to guess type
+                    fetchDetailMovieFromTrakt(callingId, id);
+                }
+            }
+        });
+    }
+
     private void fetchDetailMovieFromTmdb(final int callingId, int id) {
         Preconditions.checkNotNull(id, "id cannot be null");
 
@@ -1029,7 +1265,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         PhilmMovie cached = mMoviesState.getMovie(id);
         if (cached == null) {
-            fetchDetailMovie(callingId, id);
+            fetchDetailMovieFromDb(callingId, id, false);
         } else {
             fetchDetailMovieIfNeeded(callingId, cached, false);
         }
@@ -1100,13 +1336,66 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     private void fetchLibrary(final int callingId) {
         if (isLoggedIn()) {
-            executeTask(new FetchTraktLibraryRunnable(callingId, mMoviesState.getUsername()));
+            if (canSyncLibrary()) {
+                syncTraktActivity(callingId);
+            } else {
+                executeTask(new FetchTraktLibraryRunnable(callingId, mMoviesState.getUsername()));
+            }
         }
     }
 
     private void fetchLibraryIfNeeded(final int callingId) {
-        if (mPopulatedLibraryFromDb && PhilmCollections.isEmpty(mMoviesState.getLibrary())) {
-            fetchLibrary(callingId);
+        if (mPopulatedLibraryFromDb) {
+            if (PhilmCollections.isEmpty(mMoviesState.getLibrary())) {
+                fetchLibrary(callingId);
+            } else if (isLoggedIn() && canSyncLibrary()) {
+                // Cheap enough to catch up on every start
+                syncTraktActivity(callingId);
+            }
+        }
+    }
+
+    private boolean canSyncLibrary() {
+        return !PhilmCollections.isEmpty(mMoviesState.getLibrary())
+                && isSyncCursorValid(mPreferences.getLibrarySyncCursor(
+                        mMoviesState.getUsername()));
+    }
+
+    private boolean canSyncWatchlist() {
+        return !PhilmCollections.isEmpty(mMoviesState.getWatchlist())
+                && isSyncCursorValid(mPreferences.getWatchlistSyncCursor(
+                        mMoviesState.getUsername()));
+    }
+
+    /**
+     * A cursor is lost if it was never set, or if it is too old to trust, in which case the list
+     * needs to be fetched in full.
+     */
+    private static boolean isSyncCursorValid(long cursor) {
+        return cursor > 0 && System.currentTimeMillis() - cursor * 1000
+                < Constants.TRAKT_FULL_SYNC_INTERVAL;
+    }
+
+    /**
+     * Applies the user's Trakt activity since the oldest valid sync cursor to the library and
+     * watchlist, for whichever of them can be synced this way.
+     */
+    private void syncTraktActivity(final int callingId) {
+        final String username = mMoviesState.getUsername();
+        final boolean syncLibrary = canSyncLibrary();
+        final boolean syncWatchlist = canSyncWatchlist();
+
+        long since = Long.MAX_VALUE;
+        if (syncLibrary) {
+            since = Math.min(since, mPreferences.getLibrarySyncCursor(username));
+        }
+        if (syncWatchlist) {
+            since = Math.min(since, mPreferences.getWatchlistSyncCursor(username));
+        }
+
+        if (since != Long.MAX_VALUE) {
+            executeTask(new SyncTraktActivityRunnable(callingId, username, since, syncLibrary,
+                    syncWatchlist));
         }
     }
 
@@ -1119,13 +1408,54 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         fetchNowPlaying(callingId, TMDB_FIRST_PAGE);
     }
 
-    private void fetchNowPlaying(final int callingId, final int page) {
-        executeTask(new FetchTmdbNowPlayingRunnable(callingId, page));
+    private TaskHandle fetchPage(MovieQueryType queryType, int callingId, String query,
+            int page) {
+        switch (queryType) {
+            case POPULAR:
+                return fetchPopular(callingId, page);
+            case NOW_PLAYING:
+                return fetchNowPlaying(callingId, page);
+            case UPCOMING:
+                return fetchUpcoming(callingId, page);
+            case SEARCH_MOVIES:
+                return fetchMovieSearchResults(callingId, query, page);
+            case SEARCH_PEOPLE:
+                return fetchPeopleSearchResults(callingId, query, page);
+        }
+        return null;
+    }
+
+    /**
+     * Drops the pages of {@code result} which are far from {@code position}, and restores any
+     * dropped pages near it from the movie cache. Movies on dropped pages are still shown if
+     * they are in the cache, so restoring a page does not change what the UI displays.
+     *
+     * @return a page near {@code position} which could not be restored, and so needs to be
+     * fetched again, or {@link PagePrefetcher#NO_PAGE}
+     */
+    private int updatePageWindow(MoviesState.MoviePaginatedResult result, int position) {
+        final int radius = Constants.PAGINATION_WINDOW_RADIUS;
+        final int centerPage = result.getPageForPosition(position);
+
+        result.trimToWindow(centerPage, radius);
+
+        int missingPage = PagePrefetcher.NO_PAGE;
+        for (int page = Math.max(1, centerPage - radius); page <= centerPage + radius; page++) {
+            if (result.isPageDropped(page) && !result.restorePage(page, mMovieResolver)
+                    && missingPage == PagePrefetcher.NO_PAGE) {
+                missingPage = page;
+            }
+        }
+        return missingPage;
+    }
+
+    private TaskHandle fetchNowPlaying(final int callingId, final int page) {
+        return executeTask(new FetchTmdbNowPlayingRunnable(callingId, page));
     }
 
     private void fetchNowPlayingIfNeeded(final int callingId) {
         MoviesState.MoviePaginatedResult nowPlaying = mMoviesState.getNowPlaying();
-        if (nowPlaying == null || PhilmCollections.isEmpty(nowPlaying.items)) {
+        if (nowPlaying == null || nowPlaying.isEmpty()) {
             fetchNowPlaying(callingId, TMDB_FIRST_PAGE);
         }
     }
@@ -1135,13 +1465,13 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         fetchPopular(callingId, TMDB_FIRST_PAGE);
     }
 
-    private void fetchPopular(final int callingId, final int page) {
-        executeTask(new FetchTmdbPopularRunnable(callingId, page));
+    private TaskHandle fetchPopular(final int callingId, final int page) {
+        return executeTask(new FetchTmdbPopularRunnable(callingId, page));
     }
 
     private void fetchPopularIfNeeded(final int callingId) {
         MoviesState.MoviePaginatedResult popular = mMoviesState.getPopular();
-        if (popular == null || PhilmCollections.isEmpty(popular.items)) {
+        if (popular == null || popular.isEmpty()) {
             fetchPopular(callingId, TMDB_FIRST_PAGE);
         }
     }
@@ -1203,28 +1533,162 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         executeTask(new FetchTmdbPersonRunnable(callingId, id));
     }
 
-    private void fetchSearchResults(final int callingId, String query) {
-        mMoviesState.setSearchResult(new MoviesState.SearchResult(query));
-        fetchMovieSearchResults(callingId, query, TMDB_FIRST_PAGE);
-        fetchPeopleSearchResults(callingId, query, TMDB_FIRST_PAGE);
+    /**
+     * Shows results for {@code query}, from the search cache if possible. Otherwise the search
+     * is made on the network, straight away if {@code immediate} is true, or once the user has
+     * stopped typing if not.
+     */
+    private void onSearchQuery(MovieUi ui, String query, boolean immediate) {
+        final MovieQueryType queryType = ui.getMovieQueryType();
+
+        if (TextUtils.isEmpty(TextUtils.normaliseForSearch(query))) {
+            return;
+        }
+
+        final MoviesState.SearchResult current = mMoviesState.getSearchResult();
+        if (current != null && !current.local && query.equals(current.query)
+                && hasSearchResults(current, queryType)) {
+            // Already showing these results
+            return;
+        }
+
+        cancelSearch();
+
+        final MoviesState.SearchResult cached = mSearchCache.get(query);
+        if (hasSearchResults(cached, queryType)) {
+            final MoviesState.SearchResult result = new MoviesState.SearchResult(query);
+            result.movies = cached.movies;
+            result.people = cached.people;
+            mMoviesState.setSearchResult(result);
+            return;
+        }
+
+        // Show what we already have locally while the network search is made
+        final MoviesState.SearchResult filtered = mSearchCache.filterFromPrefix(query);
+        mMoviesState.setSearchResult(getLocalSearchResult(query, filtered));
+
+        mPendingSearch = new PendingSearch(getId(ui), queryType, query);
+        if (immediate) {
+            mPendingSearch.run();
+        } else {
+            mMainThreadScheduler.postDelayed(mPendingSearch, Constants.SEARCH_DEBOUNCE_MILLIS);
+        }
+    }
+
+    /**
+     * @return the results for {@code query} which can be found without going to the network:
+     * any {@code filtered} results from a shorter query, followed by matches from the movies and
+     * people held in memory.
+     */
+    private MoviesState.SearchResult getLocalSearchResult(String query,
+            MoviesState.SearchResult filtered) {
+        final MoviesState.SearchResult result = new MoviesState.SearchResult(query, true);
+
+        final List<PhilmMovie> movies = new ArrayList<>();
+        if (filtered != null && filtered.movies != null) {
+            movies.addAll(filtered.movies.getItems());
+        }
+        for (PhilmMovie movie
+                : mMoviesState.searchMovies(query, Constants.MAX_LOCAL_SEARCH_RESULTS)) {
+            // Search results are paged by TMDb id
+            if (movie.getTmdbId() != null) {
+                movies.add(movie);
+            }
+        }
+        if (!movies.isEmpty()) {
+            result.movies = new MoviesState.MoviePaginatedResult();
+            result.movies.putPage(TMDB_FIRST_PAGE, movies);
+            result.movies.totalPages = TMDB_FIRST_PAGE;
+        }
+
+        final List<PhilmPerson> people = new ArrayList<>();
+        if (filtered != null && filtered.people != null) {
+            people.addAll(filtered.people.getItems());
+        }
+        people.addAll(mMoviesState.searchPeople(query, Constants.MAX_LOCAL_SEARCH_RESULTS));
+        if (!people.isEmpty()) {
+            result.people = new MoviesState.PersonPaginatedResult();
+            result.people.putPage(TMDB_FIRST_PAGE, people);
+            result.people.totalPages = TMDB_FIRST_PAGE;
+        }
+
+        return result;
+    }
+
+    /**
+     * Cancels any pending or in flight search.
+     */
+    private void cancelSearch() {
+        if (mPendingSearch != null) {
+            mMainThreadScheduler.cancel(mPendingSearch);
+            mPendingSearch = null;
+        }
+        for (int i = 0, z = mSearchTasks.size(); i < z; i++) {
+            mSearchTasks.get(i).cancel();
+        }
+        mSearchTasks.clear();
     }
 
-    private void fetchMovieSearchResults(final int callingId, String query) {
-        mMoviesState.setSearchResult(new MoviesState.SearchResult(query));
-        fetchMovieSearchResults(callingId, query, TMDB_FIRST_PAGE);
+    private static boolean hasSearchResults(MoviesState.SearchResult result,
+            MovieQueryType queryType) {
+        if (result == null) {
+            return false;
+        }
+        switch (queryType) {
+            case SEARCH_MOVIES:
+                return result.movies != null;
+            case SEARCH_PEOPLE:
+                return result.people != null;
+            default:
+                return result.movies != null && result.people != null;
+        }
     }
 
-    private void fetchPeopleSearchResults(final int callingId, String query) {
-        mMoviesState.setSearchResult(new MoviesState.SearchResult(query));
-        fetchPeopleSearchResults(callingId, query, TMDB_FIRST_PAGE);
+    private class PendingSearch implements Runnable {
+        private final int mCallingId;
+        private final MovieQueryType mQueryType;
+        private final String mQuery;
+
+        PendingSearch(int callingId, MovieQueryType queryType, String query) {
+            mCallingId = callingId;
+            mQueryType = queryType;
+            mQuery = query;
+        }
+
+        @Override
+        public void run() {
+            if (mPendingSearch != this) {
+                return;
+            }
+            mPendingSearch = null;
+
+            // Keep showing any locally filtered results until the real ones arrive
+            final MoviesState.SearchResult current = mMoviesState.getSearchResult();
+            if (current == null || !current.local || !mQuery.equals(current.query)) {
+                mMoviesState.setSearchResult(new MoviesState.SearchResult(mQuery));
+            }
+
+            if (mQueryType != MovieQueryType.SEARCH_PEOPLE) {
+                addSearchTask(fetchMovieSearchResults(mCallingId, mQuery, TMDB_FIRST_PAGE));
+            }
+            if (mQueryType != MovieQueryType.SEARCH_MOVIES) {
+                addSearchTask(fetchPeopleSearchResults(mCallingId, mQuery, TMDB_FIRST_PAGE));
+            }
+        }
+
+        private void addSearchTask(TaskHandle handle) {
+            if (handle != null) {
+                mSearchTasks.add(handle);
+            }
+        }
     }
 
-    private void fetchMovieSearchResults(final int callingId, String query, int page) {
-        executeTask(new FetchTmdbSearchMoviesRunnable(callingId, query, page));
+    private TaskHandle fetchMovieSearchResults(final int callingId, String query, int page) {
+        return executeTask(new FetchTmdbSearchMoviesRunnable(callingId, query, page));
     }
 
-    private void fetchPeopleSearchResults(final int callingId, String query, int page) {
-        executeTask(new FetchTmdbSearchPeopleRunnable(callingId, query, page));
+    private TaskHandle fetchPeopleSearchResults(final int callingId, String query, int page) {
+        return executeTask(new FetchTmdbSearchPeopleRunnable(callingId, query, page));
     }
 
     private void fetchTmdbConfiguration() {
@@ -1248,26 +1712,35 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         fetchUpcoming(callingId, TMDB_FIRST_PAGE);
     }
 
-    private void fetchUpcoming(final int callingId, final int page) {
-        executeTask(new FetchTmdbUpcomingRunnable(callingId, page));
+    private TaskHandle fetchUpcoming(final int callingId, final int page) {
+        return executeTask(new FetchTmdbUpcomingRunnable(callingId, page));
     }
 
     private void fetchUpcomingIfNeeded(final int callingId) {
         MoviesState.MoviePaginatedResult upcoming = mMoviesState.getUpcoming();
-        if (upcoming == null || PhilmCollections.isEmpty(upcoming.items)) {
+        if (upcoming == null || upcoming.isEmpty()) {
             fetchUpcoming(callingId, TMDB_FIRST_PAGE);
         }
     }
 
     private void fetchWatchlist(final int callingId) {
         if (isLoggedIn()) {
-            executeTask(new FetchTraktWatchlistRunnable(callingId, mMoviesState.getUsername()));
+            if (canSyncWatchlist()) {
+                syncTraktActivity(callingId);
+            } else {
+                executeTask(new FetchTraktWatchlistRunnable(callingId,
+                        mMoviesState.getUsername()));
+            }
         }
     }
 
     private void fetchWatchlistIfNeeded(final int callingId) {
-        if (mPopulatedWatchlistFromDb && PhilmCollections.isEmpty(mMoviesState.getWatchlist())) {
-            fetchWatchlist(callingId);
+        if (mPopulatedWatchlistFromDb) {
+            if (PhilmCollections.isEmpty(mMoviesState.getWatchlist())) {
+                fetchWatchlist(callingId);
+            } else if (isLoggedIn() && canSyncWatchlist()) {
+                syncTraktActivity(callingId);
+            }
         }
     }
 
@@ -1280,27 +1753,20 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         executeTask(new FetchTraktWatchingRunnable(0, mMoviesState.getUsername()));
     }
 
-    private List<PhilmMovie> filterMovies(List<PhilmMovie> movies, Set<MovieFilter> filters) {
+    @VisibleForTesting
+    static List<PhilmMovie> filterMovies(List<PhilmMovie> movies, Set<MovieFilter> filters) {
         Preconditions.checkNotNull(movies, "movies cannot be null");
 
-        ArrayList<PhilmMovie> filteredMovies = new ArrayList<>(movies.size());
-        for (PhilmMovie movie : movies) {
-            boolean included = true;
-
-            if (!PhilmCollections.isEmpty(filters)) {
-                for (MovieFilter filter : filters) {
-                    if (filter.isFiltered(movie)) {
-                        included = false;
-                        break;
-                    }
-                }
-            }
-
-            if (included && IGNORE_ADULT && movie.isAdult()) {
-                included = false;
-            }
+        int excludedMask = MovieFilter.getAttributeMask(filters);
+        if (IGNORE_ADULT) {
+            excludedMask |= MovieAttributes.FLAG_ADULT;
+        }
 
-            if (included) {
+        final long now = System.currentTimeMillis();
+        final ArrayList<PhilmMovie> filteredMovies = new ArrayList<>(movies.size());
+        for (int i = 0, z = movies.size(); i < z; i++) {
+            final PhilmMovie movie = movies.get(i);
+            if ((MovieAttributes.get(movie, now) & excludedMask) == 0) {
                 filteredMovies.add(movie);
             }
         }
@@ -1324,19 +1790,247 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         if (Constants.DEBUG) {
             mLogger.d(LOG_TAG, "submitMovieRating: " + imdbId + ". " + rating.name());
         }
-        executeTask(new SubmitTraktMovieRatingRunnable(callingId, imdbId, rating));
+
+        final PhilmMovie movie = mMoviesState.getMovie(imdbId);
+        if (movie != null) {
+            // Show the rating straight away, rather than once Trakt has responded
+            movie.setUserRatingAdvanced(rating);
+
+            final MovieUi ui = findUi(callingId);
+            if (ui != null) {
+                schedulePopulateUi(ui);
+            }
+        }
+
+        sendMovieRating(callingId, imdbId, rating,
+                mMutationJournal.append(OPERATION_RATE, imdbId, rating.name()));
+    }
+
+    private void sendMovieRating(final int callingId, String imdbId, Rating rating,
+            long journalId) {
+        final SubmitTraktMovieRatingRunnable task
+                = new SubmitTraktMovieRatingRunnable(callingId, imdbId, rating);
+        task.setJournalIds(journalId);
+        executeTask(task);
+    }
+
+    /**
+     * Shows {@code action} on {@code movies} straight away, and queues it to be sent to Trakt
+     * with any other changes of the same type made in the next few moments.
+     */
+    private void queueTraktMutation(final int callingId, TraktMutationQueue.Action action,
+            List<PhilmMovie> movies) {
+        if (movies.isEmpty()) {
+            return;
+        }
+
+        final ArrayList<PhilmMovie> changed = new ArrayList<>(movies.size());
+        for (PhilmMovie movie : movies) {
+            final String traktId = movie.getTraktId();
+            if (traktId != null) {
+                action.apply(movie);
+                MovieLists.updateMembership(mMoviesState, movie);
+                mMutationQueue.enqueue(callingId, action, traktId,
+                        mMutationJournal.append(action.name(), traktId, null));
+                changed.add(movie);
+            }
+        }
+
+        invalidateSections(changed);
+
+        final MovieUi ui = findUi(callingId);
+        if (ui != null) {
+            schedulePopulateUi(ui);
+        } else {
+            schedulePopulateUis();
+        }
+    }
+
+    private void sendTraktMutation(final int callingId, TraktMutationQueue.Action action,
+            String[] ids, long[] journalIds) {
+        final BaseMovieRunnable<?> task;
+        switch (action) {
+            case MARK_SEEN:
+                task = new MarkTraktMovieSeenRunnable(callingId, ids);
+                break;
+            case MARK_UNSEEN:
+                task = new MarkTraktMovieUnseenRunnable(callingId, ids);
+                break;
+            case ADD_TO_WATCHLIST:
+                task = new AddToTraktWatchlistRunnable(callingId, ids);
+                break;
+            case REMOVE_FROM_WATCHLIST:
+                task = new RemoveFromTraktWatchlistRunnable(callingId, ids);
+                break;
+            case ADD_TO_COLLECTION:
+                task = new AddToTraktCollectionRunnable(callingId, ids);
+                break;
+            default:
+                task = new RemoveFromTraktCollectionRunnable(callingId, ids);
+                break;
+        }
+        task.setJournalIds(journalIds);
+        executeTask(task);
+    }
+
+    /**
+     * Re-applies the changes in the journal which Trakt has not confirmed yet to {@code movies},
+     * as loading them from Trakt or the database will have overwritten them. Movies which already
+     * show their changes are left untouched, so that their cached state stays valid.
+     */
+    private void applyPendingMutations(Collection<PhilmMovie> movies) {
+        final List<TraktMutationJournal.Entry> pending = mMutationJournal.getPending();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final Set<PhilmMovie> touched = Sets.newIdentityHashSet();
+        if (movies != null) {
+            touched.addAll(movies);
+        }
+
+        for (TraktMutationJournal.Entry entry : pending) {
+            final PhilmMovie movie = mMoviesState.getMovie(entry.traktId);
+            if (movie == null) {
+                continue;
+            }
+            if (!touched.contains(movie)) {
+                // A refreshed list may have left out a movie which a pending change adds to it
+                MovieLists.updateMembership(mMoviesState, movie);
+                continue;
+            }
+            if (OPERATION_RATE.equals(entry.operation)) {
+                final Rating rating = parseRating(entry.argument);
+                if (rating != null) {
+                    movie.setUserRatingAdvanced(rating);
+                }
+            } else {
+                final TraktMutationQueue.Action action = parseAction(entry.operation);
+                if (action != null) {
+                    action.apply(movie);
+                    MovieLists.updateMembership(mMoviesState, movie);
+                }
+            }
+        }
+    }
+
+    /**
+     * The journal is read in the background, so any movies loaded before it was read do not
+     * show its changes yet, and any replay has found nothing to send.
+     */
+    private void onMutationJournalLoaded() {
+        final Set<PhilmMovie> movies = Sets.newIdentityHashSet();
+        for (TraktMutationJournal.Entry entry : mMutationJournal.getPending()) {
+            final PhilmMovie movie = mMoviesState.getMovie(entry.traktId);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+
+        if (!movies.isEmpty()) {
+            final List<PhilmMovie> changed = new ArrayList<>(movies);
+            applyPendingMutations(changed);
+            invalidateSections(changed);
+            schedulePopulateUis();
+        }
+
+        if (isInited() && isLoggedIn()) {
+            replayPendingMutations();
+        }
+    }
+
+    /**
+     * Sends the changes in the journal which are not already being sent, for example because
+     * they were made while offline. Only the last change to each of a movie's flags, and its
+     * last rating, is sent. Changes of the same type are batched into one call.
+     */
+    private void replayPendingMutations() {
+        final List<TraktMutationJournal.Entry> entries = mMutationJournal.getReplayable();
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        final Map<String, TraktMutationJournal.Entry> latest = new LinkedHashMap<>();
+        final List<TraktMutationJournal.Entry> superseded = new ArrayList<>();
+        for (TraktMutationJournal.Entry entry : entries) {
+            final String key = getMutationKey(entry);
+            final TraktMutationJournal.Entry previous = key != null ? latest.put(key, entry) : entry;
+            if (previous != null) {
+                superseded.add(previous);
+            }
+        }
+        mMutationJournal.remove(getJournalIds(superseded));
+
+        final Map<String, List<TraktMutationJournal.Entry>> batches = new LinkedHashMap<>();
+        for (TraktMutationJournal.Entry entry : latest.values()) {
+            List<TraktMutationJournal.Entry> batch = batches.get(entry.operation);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(entry.operation, batch);
+            }
+            batch.add(entry);
+        }
+
+        for (List<TraktMutationJournal.Entry> batch : batches.values()) {
+            final long[] journalIds = getJournalIds(batch);
+            mMutationJournal.markInFlight(journalIds);
+
+            final String operation = batch.get(0).operation;
+            if (OPERATION_RATE.equals(operation)) {
+                for (TraktMutationJournal.Entry entry : batch) {
+                    sendMovieRating(0, entry.traktId, parseRating(entry.argument), entry.id);
+                }
+            } else {
+                final String[] traktIds = new String[batch.size()];
+                for (int i = 0, z = batch.size(); i < z; i++) {
+                    traktIds[i] = batch.get(i).traktId;
+                }
+                sendTraktMutation(0, parseAction(operation), traktIds, journalIds);
+            }
+        }
+    }
+
+    /**
+     * @return a key which is the same for changes which override each other, or null if the
+     * change is not recognised
+     */
+    private static String getMutationKey(TraktMutationJournal.Entry entry) {
+        if (OPERATION_RATE.equals(entry.operation)) {
+            return parseRating(entry.argument) != null
+                    ? OPERATION_RATE + "/" + entry.traktId : null;
+        }
+        final TraktMutationQueue.Action action = parseAction(entry.operation);
+        if (action == null) {
+            return null;
+        }
+        // An action and its opposite change the same flag
+        final TraktMutationQueue.Action opposite = action.getOpposite();
+        return (action.ordinal() < opposite.ordinal() ? action : opposite).name()
+                + "/" + entry.traktId;
     }
 
-    private void markMoviesSeen(final int callingId, String... ids) {
-        executeTask(new MarkTraktMovieSeenRunnable(callingId, ids));
+    private static long[] getJournalIds(List<TraktMutationJournal.Entry> entries) {
+        final long[] ids = new long[entries.size()];
+        for (int i = 0, z = entries.size(); i < z; i++) {
+            ids[i] = entries.get(i).id;
+        }
+        return ids;
+    }
 
-        if (isLoggedIn() && mPreferences.shouldRemoveFromWatchlistOnWatched()) {
-            removeFromWatchlist(callingId, ids);
+    private static TraktMutationQueue.Action parseAction(String operation) {
+        try {
+            return TraktMutationQueue.Action.valueOf(operation);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
-    private void markMoviesUnseen(final int callingId, String... ids) {
-        executeTask(new MarkTraktMovieUnseenRunnable(callingId, ids));
+    private static Rating parseRating(String rating) {
+        try {
+            return rating != null ? Rating.valueOf(rating) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     private void populateCheckinUi(MovieCheckinUi ui) {
@@ -1419,7 +2113,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             case POPULAR:
                 MoviesState.MoviePaginatedResult popular = mMoviesState.getPopular();
                 if (popular != null) {
-                    items = popular.items;
+                    items = popular.getItems(mMovieResolver);
                 }
                 break;
             case LIBRARY:
@@ -1431,19 +2125,19 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             case SEARCH_MOVIES:
                 MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
                 if (searchResult != null && searchResult.movies != null) {
-                    items = searchResult.movies.items;
+                    items = searchResult.movies.getItems(mMovieResolver);
                 }
                 break;
             case NOW_PLAYING:
                 MoviesState.MoviePaginatedResult nowPlaying = mMoviesState.getNowPlaying();
                 if (nowPlaying != null) {
-                    items = nowPlaying.items;
+                    items = nowPlaying.getItems(mMovieResolver);
                 }
                 break;
             case UPCOMING:
                 MoviesState.MoviePaginatedResult upcoming = mMoviesState.getUpcoming();
                 if (upcoming != null) {
-                    items = upcoming.items;
+                    items = upcoming.getItems(mMovieResolver);
                 }
                 break;
             case RECOMMENDED:
@@ -1457,25 +2151,22 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
                 break;
         }
 
-        if (!PhilmCollections.isEmpty(items)) {
-            // Always filter movies (for adult)
-            items = filterMovies(items, filters);
-        }
-
         if (items == null) {
+            cancelListTask(getId(ui));
             ui.setItems(null);
-        } else if (PhilmCollections.isEmpty(sections)) {
-            ui.setItems(createListItemList(items));
+            return;
+        }
 
+        if (PhilmCollections.isEmpty(sections)) {
             if (isLoggedIn()) {
                 ui.allowedBatchOperations(MovieOperation.MARK_SEEN,
                         MovieOperation.ADD_TO_COLLECTION, MovieOperation.ADD_TO_WATCHLIST);
             } else {
                 ui.disableBatchOperations();
             }
-        } else {
-            ui.setItems(createSectionedListItemList(items, sections, sectionProcessingOrder));
         }
+
+        buildMovieListItems(ui, items, filters, sections, sectionProcessingOrder);
     }
 
     private void populatePersonListUi(PersonListUi ui) {
@@ -1483,7 +2174,7 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
             case SEARCH_PEOPLE:
                 MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
                 if (searchResult != null && searchResult.people != null) {
-                    ui.setItems(createListItemList(searchResult.people.items));
+                    ui.setItems(createListItemList(searchResult.people.getItems()));
                 }
                 break;
         }
@@ -1604,14 +2295,6 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         fetchWatchlistIfNeeded(ui != null ? getId(ui) : 0);
     }
 
-    private void removeFromCollection(final int callingId, String... ids) {
-        executeTask(new RemoveFromTraktCollectionRunnable(callingId, ids));
-    }
-
-    private void removeFromWatchlist(final int callingId, String... ids) {
-        executeTask(new RemoveFromTraktWatchlistRunnable(callingId, ids));
-    }
-
     private void removeMutuallyExclusiveFilters(final MovieFilter filter) {
         List<MovieFilter> mutuallyExclusives = filter.getMutuallyExclusiveFilters();
         if (!PhilmCollections.isEmpty(mutuallyExclusives)) {
@@ -1623,6 +2306,12 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
     public interface Filter<T> extends ListItem<T> {
         boolean isFiltered(T item);
+
+        /**
+         * Same as {@link #isFiltered(Object)}, but compared against the time {@code now}. Used
+         * when filtering many items, so that they all see the same time.
+         */
+        boolean isFiltered(T item, long now);
         void sortListItems(List<ListItem<T>> items);
     }
 
@@ -1669,30 +2358,52 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         @Override
         public boolean isFiltered(PhilmMovie movie) {
+            return isFiltered(movie, System.currentTimeMillis());
+        }
+
+        @Override
+        public boolean isFiltered(PhilmMovie movie, long now) {
             Preconditions.checkNotNull(movie, "movie cannot be null");
+            return (MovieAttributes.get(movie, now) & getAttributeFlag()) != 0;
+        }
 
+        /**
+         * @return the {@link MovieAttributes} flag which movies this filter filters have
+         */
+        public int getAttributeFlag() {
             switch (this) {
                 case COLLECTION:
-                    return movie.inCollection();
+                    return MovieAttributes.FLAG_COLLECTION;
                 case SEEN:
-                    return movie.isWatched();
+                    return MovieAttributes.FLAG_SEEN;
                 case UNSEEN:
-                    return !movie.isWatched();
+                    return MovieAttributes.FLAG_UNSEEN;
                 case NOT_RELEASED:
-                    return isInFuture(movie.getReleasedTime());
+                    return MovieAttributes.FLAG_NOT_RELEASED;
                 case UPCOMING:
-                    return isAfterThreshold(movie.getReleasedTime(),
-                            Constants.FUTURE_SOON_THRESHOLD);
+                    return MovieAttributes.FLAG_UPCOMING;
                 case SOON:
-                    return isInFuture(movie.getReleasedTime()) && isBeforeThreshold(
-                            movie.getReleasedTime(), Constants.FUTURE_SOON_THRESHOLD);
+                    return MovieAttributes.FLAG_SOON;
                 case RELEASED:
-                    return isInPast(movie.getReleasedTime());
+                    return MovieAttributes.FLAG_RELEASED;
                 case HIGHLY_RATED:
-                    return Math.max(movie.getTraktRatingPercent(), movie.getUserRating() * 10)
-                            >= Constants.FILTER_HIGHLY_RATED;
+                    return MovieAttributes.FLAG_HIGHLY_RATED;
             }
-            return false;
+            return 0;
+        }
+
+        /**
+         * @return the combined {@link MovieAttributes} flags of {@code filters}. A movie passes
+         * all of the filters if it has none of these flags.
+         */
+        public static int getAttributeMask(Collection<MovieFilter> filters) {
+            int mask = 0;
+            if (filters != null) {
+                for (MovieFilter filter : filters) {
+                    mask |= filter.getAttributeFlag();
+                }
+            }
+            return mask;
         }
 
         public List<MovieFilter> getMutuallyExclusiveFilters() {
@@ -1940,13 +2651,23 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
 
         void search(String query);
 
+        /**
+         * Called as the user types a query. Unlike {@link #search(String)}, network searches are
+         * debounced.
+         */
+        void onSearchQueryChanged(String query);
+
         void clearSearch();
 
         void showRateMovie(PhilmMovie movie);
 
         void submitRating(PhilmMovie movie, Rating rating);
 
-        void onScrolledToBottom();
+        /**
+         * Called as the list scrolls, so that the next page can be fetched before the user
+         * reaches the end of it.
+         */
+        void onScrolledToPosition(int lastVisiblePosition, int itemCount);
 
         void showRelatedMovies(PhilmMovie movie);
 
@@ -1982,54 +2703,120 @@ public class MovieController extends BaseUiController<MovieController.MovieUi,
         void setHeaderScrollValue(float alpha);
     }
 
-    private class LibraryDbLoadCallback implements AsyncDatabaseHelper.Callback<List<PhilmMovie>> {
+    /**
+     * Displays each page of movies as it is read from the database, rather than waiting for the
+     * whole list to be read.
+     */
+    private abstract class MovieListDbLoadCallback
+            implements AsyncDatabaseHelper.PagedCallback<PhilmMovie> {
+
+        private final ArrayList<PhilmMovie> mLoaded = new ArrayList<>();
+        private List<PhilmMovie> mDelivered;
 
         @Override
-        public void onFinished(List<PhilmMovie> result) {
-            mMoviesState.setLibrary(result);
-            if (!PhilmCollections.isEmpty(result)) {
-                for (PhilmMovie movie : result) {
-                    mMoviesState.putMovie(movie);
-                }
+        public boolean onPage(List<PhilmMovie> page, boolean last) {
+            final List<PhilmMovie> current = getMovies();
+            if (mDelivered == null ? !PhilmCollections.isEmpty(current) : current != mDelivered) {
+                // The list has been replaced since our last page, most likely from the network
+                onLoadFinished();
+                return false;
             }
-            mPopulatedLibraryFromDb = true;
 
+            mLoaded.addAll(page);
+            mDelivered = new ArrayList<>(mLoaded);
+            setMovies(mDelivered);
+            for (PhilmMovie movie : page) {
+                mMoviesState.putMovie(movie);
+            }
+
+            if (last) {
+                onLoadFinished();
+            }
+            return true;
+        }
+
+        abstract List<PhilmMovie> getMovies();
+
+        abstract void setMovies(List<PhilmMovie> movies);
+
+        abstract void onLoadFinished();
+    }
+
+    private class LibraryDbLoadCallback extends MovieListDbLoadCallback {
+
+        @Override
+        List<PhilmMovie> getMovies() {
+            return mMoviesState.getLibrary();
+        }
+
+        @Override
+        void setMovies(List<PhilmMovie> movies) {
+            mMoviesState.setLibrary(movies);
+        }
+
+        @Override
+        void onLoadFinished() {
+            mPopulatedLibraryFromDb = true;
             prefetchLibraryIfNeeded();
         }
     }
 
-    private class WatchlistDbLoadCallback
-            implements AsyncDatabaseHelper.Callback<List<PhilmMovie>> {
+    private class WatchlistDbLoadCallback extends MovieListDbLoadCallback {
 
         @Override
-        public void onFinished(List<PhilmMovie> result) {
-            mMoviesState.setWatchlist(result);
-            if (!PhilmCollections.isEmpty(result)) {
-                for (PhilmMovie movie : result) {
-                    mMoviesState.putMovie(movie);
-                }
-            }
-            mPopulatedWatchlistFromDb = true;
+        List<PhilmMovie> getMovies() {
+            return mMoviesState.getWatchlist();
+        }
 
+        @Override
+        void setMovies(List<PhilmMovie> movies) {
+            mMoviesState.setWatchlist(movies);
+        }
+
+        @Override
+        void onLoadFinished() {
+            mPopulatedWatchlistFromDb = true;
             prefetchWatchlistIfNeeded();
         }
     }
 
-    private final void populateUiFromQueryType(MovieQueryType queryType) {
-        MovieUi ui = findUiFromQueryType(queryType);
+    /**
+     * Returns how many UI population passes have been avoided by coalescing state events,
+     * out of {@link #getRequestedPopulateCount()}.
+     */
+    public long getSavedPopulateCount() {
+        return mPopulateCoalescer.getSavedPassCount();
+    }
+
+    public long getRequestedPopulateCount() {
+        return mPopulateCoalescer.getRequestedPassCount();
+    }
+
+    /**
+     * The schedulePopulate methods populate the UIs once the current event has been handled,
+     * so that a burst of events only populates each UI once.
+     */
+    private void schedulePopulateUis() {
+        mPopulateCoalescer.populateUis();
+    }
+
+    private void schedulePopulateUi(MovieUi ui) {
+        mPopulateCoalescer.populateUi(ui);
+    }
+
+    private void schedulePopulateUi(BaseState.UiCausedEvent event) {
+        final MovieUi ui = findUi(event.callingId);
         if (ui != null) {
-            populateUi(ui);
+            mPopulateCoalescer.populateUi(ui);
         }
     }
 
-    private final void populateUisFromQueryTypes(MovieQueryType... queryTypes) {
-        final List<MovieQueryType> list = Arrays.asList(queryTypes);
+    private void populateUiFromQueryType(MovieQueryType queryType) {
+        mPopulateCoalescer.populateUisFromQueryTypes(EnumSet.of(queryType));
+    }
 
-        for (MovieUi ui : getUis()) {
-            if (list.contains(ui.getMovieQueryType())) {
-                populateUi(ui);
-            }
-        }
+    private void populateUisFromQueryTypes(MovieQueryType first, MovieQueryType... rest) {
+        mPopulateCoalescer.populateUisFromQueryTypes(EnumSet.of(first, rest));
     }
 
     private ColorScheme getColorSchemeForUi(MovieUi ui) {
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import app.philm.in.state.BaseState;
+import app.philm.in.util.TaskHandle;
+
+/**
+ * Decides when to fetch the next page of a paginated list, so that it is fetched before the user
+ * reaches the end of the list rather than once they get there.
+ * <p>
+ * At most one page is in flight for each list, and at most {@code maxInFlight} pages across all
+ * lists. A page which is already loaded or in flight is never requested again.
+ */
+final class PagePrefetcher {
+
+    static final int NO_PAGE = 0;
+
+    private final int mThreshold;
+    private final int mMaxInFlight;
+
+    /**
+     * The page in flight for each list, keyed by list key.
+     */
+    private final Map<String, TaskHandle> mInFlight = new HashMap<>();
+
+    /**
+     * @param threshold how many items from the end of the list the user needs to be before the
+     *                  next page is fetched
+     */
+    PagePrefetcher(int threshold, int maxInFlight) {
+        Preconditions.checkArgument(threshold >= 0, "threshold must be >= 0");
+        Preconditions.checkArgument(maxInFlight > 0, "maxInFlight must be > 0");
+        mThreshold = threshold;
+        mMaxInFlight = maxInFlight;
+    }
+
+    boolean isNearEnd(int lastVisiblePosition, int itemCount) {
+        return itemCount > 0 && itemCount - 1 - lastVisiblePosition <= mThreshold;
+    }
+
+    /**
+     * @param listKey identifies the list, including anything such as a search query which the
+     *                list's pages depend on
+     * @return the page to fetch next, or {@link #NO_PAGE} if nothing should be fetched now
+     */
+    int getNextPage(String listKey, BaseState.PaginatedResult<?> result) {
+        if (result == null || result.page >= result.totalPages || !canRequestPage(listKey)) {
+            return NO_PAGE;
+        }
+        return result.page + 1;
+    }
+
+    /**
+     * @return true if a page can be requested for {@code listKey} now, without going over the
+     * in flight limits
+     */
+    boolean canRequestPage(String listKey) {
+        removeFinished();
+        return !mInFlight.containsKey(listKey) && mInFlight.size() < mMaxInFlight;
+    }
+
+    /**
+     * Records that a page has been requested for {@code listKey}.
+     *
+     * @param handle the handle for the fetch, or null if it could not be started
+     */
+    void onPageRequested(String listKey, TaskHandle handle) {
+        if (handle != null) {
+            mInFlight.put(listKey, handle);
+        }
+    }
+
+    private void removeFinished() {
+        final Iterator<TaskHandle> iterator = mInFlight.values().iterator();
+        while (iterator.hasNext()) {
+            final TaskHandle handle = iterator.next();
+            if (handle.isFinished() || handle.isCancelled()) {
+                iterator.remove();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import app.philm.in.util.MainThreadScheduler;
+
+/**
+ * Collects requests to populate UIs, either by query type or by UI id, and populates each
+ * affected UI once when the current main thread message has been handled. This stops a burst of
+ * state events from refiltering and resectioning the same UI several times.
+ */
+final class PopulateCoalescer<U, Q extends Enum<Q>> implements Runnable {
+
+    interface Host<U, Q> {
+        Set<U> getUis();
+
+        Q getQueryType(U ui);
+
+        int getId(U ui);
+
+        void populateUi(U ui);
+    }
+
+    private final MainThreadScheduler mScheduler;
+    private final Host<U, Q> mHost;
+
+    private final EnumSet<Q> mDirtyQueryTypes;
+    private final Set<Integer> mDirtyUiIds = new HashSet<>();
+    private boolean mAllDirty;
+    private boolean mScheduled;
+
+    private int mPendingPasses;
+    private long mRequestedPasses;
+    private long mPasses;
+    private long mSavedPasses;
+
+    PopulateCoalescer(MainThreadScheduler scheduler, Host<U, Q> host, Class<Q> queryTypeClass) {
+        mScheduler = Preconditions.checkNotNull(scheduler, "scheduler cannot be null");
+        mHost = Preconditions.checkNotNull(host, "host cannot be null");
+        mDirtyQueryTypes = EnumSet.noneOf(queryTypeClass);
+    }
+
+    synchronized void populateUis() {
+        mPendingPasses += mHost.getUis().size();
+        mAllDirty = true;
+        scheduleLocked();
+    }
+
+    synchronized void populateUi(U ui) {
+        mPendingPasses++;
+        mDirtyUiIds.add(mHost.getId(ui));
+        scheduleLocked();
+    }
+
+    synchronized void populateUisFromQueryTypes(Set<Q> queryTypes) {
+        for (U ui : mHost.getUis()) {
+            if (queryTypes.contains(mHost.getQueryType(ui))) {
+                mPendingPasses++;
+            }
+        }
+        mDirtyQueryTypes.addAll(queryTypes);
+        scheduleLocked();
+    }
+
+    /**
+     * @return the number of population passes which would have run without coalescing, not
+     * including those still waiting to be run
+     */
+    synchronized long getRequestedPassCount() {
+        return mRequestedPasses;
+    }
+
+    /**
+     * @return the number of population passes which have actually run
+     */
+    synchronized long getPassCount() {
+        return mPasses;
+    }
+
+    /**
+     * @return the number of population passes which coalescing has avoided
+     */
+    synchronized long getSavedPassCount() {
+        return mSavedPasses;
+    }
+
+    @Override
+    public void run() {
+        final List<U> uis = new ArrayList<>();
+
+        synchronized (this) {
+            for (U ui : mHost.getUis()) {
+                if (mAllDirty
+                        || mDirtyQueryTypes.contains(mHost.getQueryType(ui))
+                        || mDirtyUiIds.contains(mHost.getId(ui))) {
+                    uis.add(ui);
+                }
+            }
+
+            mAllDirty = false;
+            mDirtyQueryTypes.clear();
+            mDirtyUiIds.clear();
+            mScheduled = false;
+
+            mRequestedPasses += mPendingPasses;
+            mPasses += uis.size();
+            // A UI attached since the request can make the pass count exceed the requests
+            mSavedPasses += Math.max(0, mPendingPasses - uis.size());
+            mPendingPasses = 0;
+        }
+
+        // Populate outside of the lock, as UIs can request more population while populating
+        for (int i = 0, z = uis.size(); i < z; i++) {
+            mHost.populateUi(uis.get(i));
+        }
+    }
+
+    private void scheduleLocked() {
+        if (!mScheduled) {
+            mScheduled = true;
+            mScheduler.post(this);
+        }
+    }
+
+}
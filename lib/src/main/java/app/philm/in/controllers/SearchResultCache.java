@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmPerson;
+import app.philm.in.state.MoviesState;
+import app.philm.in.util.TextUtils;
+
+/**
+ * A least recently used cache of search results, keyed by normalised query. Each cached result
+ * keeps every page which has been loaded for its query.
+ * <p>
+ * Results for a query can also be filtered locally from the cached results of a shorter query
+ * which it extends. Even if every page of the shorter query's results has been loaded, these
+ * can miss results which only match the longer query, so they are always marked as
+ * {@link MoviesState.SearchResult#local}, to be shown until the real results have been fetched.
+ */
+final class SearchResultCache {
+
+    private final LinkedHashMap<String, MoviesState.SearchResult> mResults;
+
+    SearchResultCache(final int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be > 0");
+
+        mResults = new LinkedHashMap<String, MoviesState.SearchResult>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MoviesState.SearchResult> e) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Adds {@code result} to the cache, keeping any movies or people already cached for the
+     * query which {@code result} does not have. Local results are ignored.
+     */
+    void put(MoviesState.SearchResult result) {
+        Preconditions.checkNotNull(result, "result cannot be null");
+
+        if (result.local || (result.movies == null && result.people == null)) {
+            return;
+        }
+
+        final String key = TextUtils.normaliseForSearch(result.query);
+        final MoviesState.SearchResult existing = mResults.get(key);
+
+        final MoviesState.SearchResult entry = new MoviesState.SearchResult(result.query);
+        entry.movies = result.movies;
+        entry.people = result.people;
+        if (existing != null) {
+            if (entry.movies == null) {
+                entry.movies = existing.movies;
+            }
+            if (entry.people == null) {
+                entry.people = existing.people;
+            }
+        }
+        mResults.put(key, entry);
+    }
+
+    /**
+     * @return the cached results for {@code query}, or null
+     */
+    MoviesState.SearchResult get(String query) {
+        return mResults.get(TextUtils.normaliseForSearch(query));
+    }
+
+    /**
+     * @return results for {@code query} filtered from the cached results of the longest query
+     * which it extends, or null if there are none
+     */
+    MoviesState.SearchResult filterFromPrefix(String query) {
+        final String key = TextUtils.normaliseForSearch(query);
+
+        MoviesState.SearchResult prefixResult = null;
+        int prefixLength = 0;
+        for (Map.Entry<String, MoviesState.SearchResult> entry : mResults.entrySet()) {
+            final String prefix = entry.getKey();
+            if (prefix.length() > prefixLength && prefix.length() < key.length()
+                    && key.startsWith(prefix)) {
+                prefixResult = entry.getValue();
+                prefixLength = prefix.length();
+            }
+        }
+
+        if (prefixResult == null) {
+            return null;
+        }
+
+        final String[] tokens = key.split(" ");
+        final MoviesState.SearchResult result = new MoviesState.SearchResult(query, true);
+
+        if (prefixResult.movies != null) {
+            final List<PhilmMovie> movies = new ArrayList<>();
+            for (PhilmMovie movie : prefixResult.movies.getItems()) {
+                if (matches(movie.getTitle(), tokens)) {
+                    movies.add(movie);
+                }
+            }
+            result.movies = new MoviesState.MoviePaginatedResult();
+            result.movies.putPage(1, movies);
+            result.movies.totalPages = 1;
+        }
+
+        if (prefixResult.people != null) {
+            final List<PhilmPerson> people = new ArrayList<>();
+            for (PhilmPerson person : prefixResult.people.getItems()) {
+                if (matches(person.getName(), tokens)) {
+                    people.add(person);
+                }
+            }
+            result.people = new MoviesState.PersonPaginatedResult();
+            result.people.putPage(1, people);
+            result.people.totalPages = 1;
+        }
+
+        return result;
+    }
+
+    void clear() {
+        mResults.clear();
+    }
+
+    /**
+     * @return true if every token in {@code queryTokens} is the start of a word in {@code text}
+     */
+    private static boolean matches(String text, String[] queryTokens) {
+        final String[] words = TextUtils.normaliseForSearch(text).split(" ");
+
+        for (String token : queryTokens) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
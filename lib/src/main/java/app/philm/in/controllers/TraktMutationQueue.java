@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.controllers;
+
+import com.google.common.base.Preconditions;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.util.MainThreadScheduler;
+
+/**
+ * Holds back Trakt mutations (seen, watchlist and collection changes) for a short window, so
+ * that all of the changes of one type are sent in a single call. A change which undoes a
+ * pending change cancels it out, so that neither is sent.
+ * <p>
+ * Must only be used from the main thread.
+ */
+final class TraktMutationQueue implements Runnable {
+
+    enum Action {
+        MARK_SEEN, MARK_UNSEEN,
+        ADD_TO_WATCHLIST, REMOVE_FROM_WATCHLIST,
+        ADD_TO_COLLECTION, REMOVE_FROM_COLLECTION;
+
+        Action getOpposite() {
+            switch (this) {
+                case MARK_SEEN:
+                    return MARK_UNSEEN;
+                case MARK_UNSEEN:
+                    return MARK_SEEN;
+                case ADD_TO_WATCHLIST:
+                    return REMOVE_FROM_WATCHLIST;
+                case REMOVE_FROM_WATCHLIST:
+                    return ADD_TO_WATCHLIST;
+                case ADD_TO_COLLECTION:
+                    return REMOVE_FROM_COLLECTION;
+                default:
+                    return ADD_TO_COLLECTION;
+            }
+        }
+
+        /**
+         * Applies this action's change to {@code movie}, so that it can be shown before Trakt
+         * has been told. A movie which already has the change is left untouched.
+         */
+        void apply(PhilmMovie movie) {
+            switch (this) {
+                case MARK_SEEN:
+                case MARK_UNSEEN:
+                    movie.setWatched(this == MARK_SEEN);
+                    break;
+                case ADD_TO_WATCHLIST:
+                case REMOVE_FROM_WATCHLIST:
+                    movie.setInWatched(this == ADD_TO_WATCHLIST);
+                    break;
+                case ADD_TO_COLLECTION:
+                case REMOVE_FROM_COLLECTION:
+                    movie.setInCollection(this == ADD_TO_COLLECTION);
+                    break;
+            }
+        }
+    }
+
+    interface Host {
+        /**
+         * Send {@code action} for every movie in {@code traktIds} to Trakt, in one call.
+         *
+         * @param journalIds the journal entries for each movie's change
+         */
+        void sendMutation(int callingId, Action action, String[] traktIds, long[] journalIds);
+
+        /**
+         * The changes with {@code journalIds} cancelled each other out, so will not be sent.
+         */
+        void discardMutations(long... journalIds);
+    }
+
+    private final MainThreadScheduler mScheduler;
+    private final Host mHost;
+    private final long mWindowMillis;
+
+    /**
+     * The pending Trakt ids for each action, mapped to their journal ids.
+     */
+    private final Map<Action, LinkedHashMap<String, Long>> mPending
+            = new EnumMap<>(Action.class);
+    private final Map<Action, Integer> mCallingIds = new EnumMap<>(Action.class);
+    private boolean mScheduled;
+
+    private long mQueuedCount;
+    private long mCancelledCount;
+    private long mSentCount;
+
+    TraktMutationQueue(MainThreadScheduler scheduler, Host host, long windowMillis) {
+        mScheduler = Preconditions.checkNotNull(scheduler, "scheduler cannot be null");
+        mHost = Preconditions.checkNotNull(host, "host cannot be null");
+        Preconditions.checkArgument(windowMillis >= 0, "windowMillis must be >= 0");
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Queues {@code action} for the movie with {@code traktId}. If the opposite action is
+     * pending for the same movie, both are dropped instead.
+     */
+    void enqueue(int callingId, Action action, String traktId, long journalId) {
+        Preconditions.checkNotNull(action, "action cannot be null");
+        Preconditions.checkNotNull(traktId, "traktId cannot be null");
+
+        mQueuedCount++;
+
+        final LinkedHashMap<String, Long> opposite = mPending.get(action.getOpposite());
+        final Long oppositeJournalId = opposite != null ? opposite.remove(traktId) : null;
+        if (oppositeJournalId != null) {
+            // Trakt has not been told about the first change yet, so there is nothing to undo
+            mCancelledCount += 2;
+            mHost.discardMutations(oppositeJournalId, journalId);
+            return;
+        }
+
+        LinkedHashMap<String, Long> ids = mPending.get(action);
+        if (ids == null) {
+            ids = new LinkedHashMap<>();
+            mPending.put(action, ids);
+        }
+        final Long replaced = ids.put(traktId, journalId);
+        if (replaced != null) {
+            // Already pending, so the earlier entry is not needed
+            mHost.discardMutations(replaced);
+        }
+        mCallingIds.put(action, callingId);
+
+        if (!mScheduled) {
+            mScheduled = true;
+            mScheduler.postDelayed(this, mWindowMillis);
+        }
+    }
+
+    /**
+     * Sends every pending action now, rather than waiting for the window to end.
+     */
+    void flush() {
+        if (mScheduled) {
+            mScheduler.cancel(this);
+            mScheduled = false;
+        }
+
+        for (Map.Entry<Action, LinkedHashMap<String, Long>> entry : mPending.entrySet()) {
+            final LinkedHashMap<String, Long> ids = entry.getValue();
+            if (!ids.isEmpty()) {
+                final Action action = entry.getKey();
+                final String[] traktIds = new String[ids.size()];
+                final long[] journalIds = new long[ids.size()];
+                int i = 0;
+                for (Map.Entry<String, Long> id : ids.entrySet()) {
+                    traktIds[i] = id.getKey();
+                    journalIds[i] = id.getValue();
+                    i++;
+                }
+                mSentCount++;
+                mHost.sendMutation(mCallingIds.get(action), action, traktIds, journalIds);
+            }
+        }
+        mPending.clear();
+        mCallingIds.clear();
+    }
+
+    /**
+     * Drops every pending action without sending it.
+     */
+    void clear() {
+        if (mScheduled) {
+            mScheduler.cancel(this);
+            mScheduled = false;
+        }
+        mPending.clear();
+        mCallingIds.clear();
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        flush();
+    }
+
+    /**
+     * @return how many actions have been queued
+     */
+    long getQueuedCount() {
+        return mQueuedCount;
+    }
+
+    /**
+     * @return how many queued actions were cancelled out by their opposite, and so never sent
+     */
+    long getCancelledCount() {
+        return mCancelledCount;
+    }
+
+    /**
+     * @return how many calls have been made to Trakt
+     */
+    long getSentCount() {
+        return mSentCount;
+    }
+
+}
@@ -293,6 +293,16 @@ public class UserController extends BaseUiController<UserController.UserUi,
         public void onError(RetrofitError re) {
             // TODO Ignore
         }
+
+        @Override
+        public int getSource() {
+            return NetworkError.SOURCE_TRAKT;
+        }
+
+        @Override
+        public int getPriority() {
+            return PRIORITY_SYNC;
+        }
     }
 
     private abstract class BaseCredentialsRunnable<R> extends NetworkCallRunnable<Response> {
@@ -348,6 +358,11 @@ public class UserController extends BaseUiController<UserController.UserUi,
                 ui.showLoadingProgress(false);
             }
         }
+
+        @Override
+        public int getSource() {
+            return NetworkError.SOURCE_TRAKT;
+        }
     }
 
     private class CheckUserCredentialsRunnable extends BaseCredentialsRunnable {
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.model;
+
+import app.philm.in.Constants;
+
+/**
+ * Works out the attributes of a {@link PhilmMovie} which lists are filtered and sectioned on,
+ * as a bitmask. A movie's attributes are cached on the movie until either its data changes, or
+ * until its release date crosses one of the time thresholds, so most lookups are just a couple
+ * of field reads.
+ * <p>
+ * Like every other change to a movie, the cache is only written by {@link #update(PhilmMovie,
+ * long)} on the main thread. Lists are built on a background thread, so the movies in them are
+ * updated before being handed off, and {@link #get(PhilmMovie, long)} only reads.
+ * <p>
+ * Every lookup in a pass over a list should use the same {@code now}, so that all of the movies
+ * are compared against the same time.
+ */
+public final class MovieAttributes {
+
+    public static final int FLAG_COLLECTION = 1;
+    public static final int FLAG_SEEN = 1 << 1;
+    public static final int FLAG_UNSEEN = 1 << 2;
+    public static final int FLAG_RELEASED = 1 << 3;
+    public static final int FLAG_NOT_RELEASED = 1 << 4;
+    public static final int FLAG_SOON = 1 << 5;
+    public static final int FLAG_UPCOMING = 1 << 6;
+    public static final int FLAG_HIGHLY_RATED = 1 << 7;
+    public static final int FLAG_ADULT = 1 << 8;
+
+    private MovieAttributes() {
+    }
+
+    /**
+     * @return the attributes of {@code movie} at time {@code now}, as a combination of the
+     * {@code FLAG_*} constants. Uses the cached attributes if they are valid at {@code now}, but
+     * never writes to {@code movie}, so can be called from any thread.
+     */
+    public static int get(final PhilmMovie movie, final long now) {
+        if (now >= movie.attributesValidFrom && now < movie.attributesValidUntil) {
+            return movie.attributes;
+        }
+        return compute(movie, now);
+    }
+
+    /**
+     * Same as {@link #get(PhilmMovie, long)}, but caches the attributes on {@code movie}. Must
+     * only be called from the main thread.
+     */
+    public static int update(final PhilmMovie movie, final long now) {
+        if (now >= movie.attributesValidFrom && now < movie.attributesValidUntil) {
+            return movie.attributes;
+        }
+
+        final int attributes = compute(movie, now);
+
+        // The time attributes next change when now reaches the soon threshold, or the release
+        final long releasedTime = movie.getReleasedTime();
+        final long soonTime = releasedTime - Constants.FUTURE_SOON_THRESHOLD;
+        long validFrom = Long.MIN_VALUE;
+        long validUntil = Long.MAX_VALUE;
+        if (soonTime > now) {
+            validUntil = soonTime;
+        } else if (releasedTime > now) {
+            validFrom = soonTime;
+            validUntil = releasedTime;
+        } else {
+            validFrom = releasedTime;
+        }
+
+        movie.attributes = attributes;
+        movie.attributesValidFrom = validFrom;
+        movie.attributesValidUntil = validUntil;
+        return attributes;
+    }
+
+    private static int compute(final PhilmMovie movie, final long now) {
+        final long releasedTime = movie.getReleasedTime();
+        final long soonTime = releasedTime - Constants.FUTURE_SOON_THRESHOLD;
+
+        int attributes = 0;
+
+        if (movie.inCollection()) {
+            attributes |= FLAG_COLLECTION;
+        }
+        attributes |= movie.isWatched() ? FLAG_SEEN : FLAG_UNSEEN;
+
+        if (releasedTime > now) {
+            attributes |= FLAG_NOT_RELEASED;
+            attributes |= soonTime > now ? FLAG_UPCOMING : FLAG_SOON;
+        } else {
+            attributes |= FLAG_RELEASED;
+        }
+
+        if (Math.max(movie.getTraktRatingPercent(), movie.getUserRating() * 10)
+                >= Constants.FILTER_HIGHLY_RATED) {
+            attributes |= FLAG_HIGHLY_RATED;
+        }
+        if (movie.isAdult()) {
+            attributes |= FLAG_ADULT;
+        }
+        return attributes;
+    }
+
+}
@@ -100,6 +100,7 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     String traktTitle;
     String tmdbTitle;
+    String tmdbOriginalTitle;
 
     String traktSortTitle;
     String tmdbSortTitle;
@@ -162,6 +163,19 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     boolean loadedFromTrakt;
     boolean loadedFromTmdb;
 
+    /**
+     * Set when only the columns needed for lists were read from the database, so the other
+     * persisted columns must not be overwritten until a full fetch has completed.
+     */
+    transient boolean partiallyLoaded;
+
+    /**
+     * Set when a full fetch from Trakt or TMDb completes for a partially loaded movie, so that
+     * the columns from that source can be persisted without touching the other source's.
+     */
+    transient boolean traktDetailsLoaded;
+    transient boolean tmdbDetailsLoaded;
+
     transient List<PhilmMovie> related;
     transient List<PhilmMovieCredit> cast;
     transient List<PhilmMovieCredit> crew;
@@ -171,6 +185,19 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
 
     transient ColorScheme colorScheme;
 
+    /**
+     * Incremented whenever data which is shown in lists changes, so that lists can tell which
+     * movies need to be shown again.
+     */
+    transient int version;
+
+    /**
+     * Cached by {@link MovieAttributes}, for the time range [validFrom, validUntil).
+     */
+    transient int attributes;
+    transient long attributesValidFrom;
+    transient long attributesValidUntil;
+
     public PhilmMovie() {
     }
 
@@ -187,6 +214,8 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     public void setFromMovie(com.jakewharton.trakt.entities.Movie movie) {
         Preconditions.checkNotNull(movie, "movie cannot be null");
 
+        onDataChanged();
+
         loadedFromTrakt = true;
 
         tmdbId = movie.tmdbId;
@@ -257,6 +286,8 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     public void setFromMovie(com.uwetrottmann.tmdb.entities.Movie movie) {
         Preconditions.checkNotNull(movie, "movie cannot be null");
 
+        onDataChanged();
+
         loadedFromTmdb = true;
 
         tmdbId = movie.id;
@@ -280,6 +311,9 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
             tmdbTitle = movie.title;
             tmdbSortTitle = getSortTitle(movie.title);
         }
+        if (!TextUtils.isEmpty(movie.original_title)) {
+            tmdbOriginalTitle = movie.original_title;
+        }
 
         if (!TextUtils.isEmpty(movie.overview)) {
             tmdbOverview = movie.overview;
@@ -352,6 +386,8 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     public void updateWithReleases(final Releases releases, final String countryCode) {
         Preconditions.checkNotNull(releases, "releases cannot be null");
 
+        onDataChanged();
+
         if (!PhilmCollections.isEmpty(releases.countries)) {
             CountryRelease countryRelease = null;
             CountryRelease usRelease = null;
@@ -392,13 +428,24 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     }
 
     public void setWatched(boolean watched) {
-        traktWatched = watched;
+        if (traktWatched != watched) {
+            traktWatched = watched;
+            onDataChanged();
+        }
     }
 
     public long getDbId() {
         return _id;
     }
 
+    public boolean hasDbId() {
+        return _id != null;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
     public String getImdbId() {
         return imdbId;
     }
@@ -412,7 +459,10 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     }
 
     public void setInCollection(boolean inCollection) {
-        traktInCollection = inCollection;
+        if (traktInCollection != inCollection) {
+            traktInCollection = inCollection;
+            onDataChanged();
+        }
     }
 
     public boolean inWatchlist() {
@@ -420,13 +470,23 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     }
 
     public void setInWatched(boolean inWatchlist) {
-        this.traktInWatchlist = inWatchlist;
+        if (traktInWatchlist != inWatchlist) {
+            traktInWatchlist = inWatchlist;
+            onDataChanged();
+        }
     }
 
     public String getTitle() {
         return select(tmdbTitle, traktTitle);
     }
 
+    /**
+     * @return the title in the movie's original language, if known
+     */
+    public String getOriginalTitle() {
+        return tmdbOriginalTitle;
+    }
+
     public String getTagline() {
         return select(tmdbTagline, traktTagline);
     }
@@ -514,7 +574,11 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
     }
 
     public void setUserRatingAdvanced(Rating rating) {
-        traktUserRatingAdvanced = unbox(traktUserRatingAdvanced, rating);
+        final int userRating = unbox(traktUserRatingAdvanced, rating);
+        if (traktUserRatingAdvanced != userRating) {
+            traktUserRatingAdvanced = userRating;
+            onDataChanged();
+        }
     }
 
     public String getOverview() {
@@ -525,6 +589,11 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         return related;
     }
 
+    private void onDataChanged() {
+        version++;
+        attributesValidUntil = 0;
+    }
+
     public void setRelated(List<PhilmMovie> related) {
         this.related = related;
     }
@@ -599,13 +668,41 @@ public class PhilmMovie extends PhilmModel<PhilmMovie> {
         switch (type) {
             case TYPE_TMDB:
                 lastFullFetchFromTmdbCompleted = System.currentTimeMillis();
+                if (partiallyLoaded) {
+                    tmdbDetailsLoaded = true;
+                }
                 break;
             case TYPE_TRAKT:
                 lastFullFetchFromTraktCompleted = System.currentTimeMillis();
+                if (partiallyLoaded) {
+                    traktDetailsLoaded = true;
+                }
                 break;
         }
     }
 
+    public boolean isPartiallyLoaded() {
+        return partiallyLoaded;
+    }
+
+    /**
+     * @return true if this movie is partially loaded, but has since had a full fetch from Trakt
+     */
+    public boolean isTraktDetailsLoaded() {
+        return partiallyLoaded && traktDetailsLoaded;
+    }
+
+    /**
+     * @return true if this movie is partially loaded, but has since had a full fetch from TMDb
+     */
+    public boolean isTmdbDetailsLoaded() {
+        return partiallyLoaded && tmdbDetailsLoaded;
+    }
+
+    public void markPartiallyLoaded() {
+        partiallyLoaded = true;
+    }
+
     public boolean isLoadedFromTmdb() {
         return loadedFromTmdb;
     }
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.network;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import app.philm.in.util.FileManager;
+import app.philm.in.util.TextUtils;
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+/**
+ * Remembers the {@code ETag} and {@code Last-Modified} validators of responses, keyed by the
+ * request key of the call which made them, so that calls for data we already hold can be made
+ * conditional. A conditional call whose data has not changed fails with a 304 response, which
+ * can be detected with {@link #isNotModified(RetrofitError)}.
+ * <p>
+ * Calls are made synchronously, so a call opts in by calling {@link #begin(String, boolean)} and
+ * {@link #end()} around it, and the HTTP client calls {@link #applyTo(Request)} and
+ * {@link #onResponse(Response)} on the same thread.
+ */
+public class HttpValidators {
+
+    private static final String FILENAME = "http_validators";
+    private static final String FILENAME_TEMP = FILENAME + ".tmp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SEPARATOR = "\t";
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    public static final class Validators {
+        public final String etag;
+        public final String lastModified;
+
+        Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static class Call {
+        final String key;
+        final boolean conditional;
+        Validators received;
+
+        Call(String key, boolean conditional) {
+            this.key = key;
+            this.conditional = conditional;
+        }
+    }
+
+    private final FileManager mFileManager;
+    private final Executor mWriteExecutor;
+    private final ThreadLocal<Call> mCalls = new ThreadLocal<>();
+
+    private final Map<String, Validators> mValidators = new HashMap<>();
+    private boolean mLoaded;
+    private boolean mWriteScheduled;
+
+    private final Runnable mWriteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    /**
+     * @param writeExecutor must run one task at a time, in order
+     */
+    public HttpValidators(FileManager fileManager, Executor writeExecutor) {
+        mFileManager = Preconditions.checkNotNull(fileManager, "fileManager cannot be null");
+        mWriteExecutor = Preconditions.checkNotNull(writeExecutor,
+                "writeExecutor cannot be null");
+    }
+
+    /**
+     * Starts a call for {@code key} on this thread.
+     *
+     * @param conditional true if the caller still holds the result of the last call for
+     *                    {@code key}, so the request can be made conditional on it having changed
+     */
+    public void begin(String key, boolean conditional) {
+        Preconditions.checkNotNull(key, "key cannot be null");
+        mCalls.set(new Call(key, conditional));
+    }
+
+    /**
+     * Finishes the call started on this thread.
+     *
+     * @return the validators of the call's response, or null if it did not have any. They
+     * should be passed to {@link #put(String, Validators)} once the response has been stored.
+     */
+    public Validators end() {
+        final Call call = mCalls.get();
+        mCalls.remove();
+        return call != null ? call.received : null;
+    }
+
+    /**
+     * Called by the HTTP client before making {@code request}.
+     *
+     * @return {@code request}, with conditional headers added if a conditional call is in
+     * progress on this thread
+     */
+    public Request applyTo(Request request) {
+        final Call call = mCalls.get();
+        if (call == null || !call.conditional || !"GET".equals(request.getMethod())) {
+            return request;
+        }
+
+        final Validators validators = get(call.key);
+        if (validators == null) {
+            return request;
+        }
+
+        final List<Header> headers = new ArrayList<>(request.getHeaders());
+        if (validators.etag != null) {
+            headers.add(new Header(HEADER_IF_NONE_MATCH, validators.etag));
+        }
+        if (validators.lastModified != null) {
+            headers.add(new Header(HEADER_IF_MODIFIED_SINCE, validators.lastModified));
+        }
+        return new Request(request.getMethod(), request.getUrl(), headers, request.getBody());
+    }
+
+    /**
+     * Called by the HTTP client with each response it receives.
+     */
+    public void onResponse(Response response) {
+        final Call call = mCalls.get();
+        if (call == null || response.getStatus() != 200) {
+            return;
+        }
+
+        String etag = null;
+        String lastModified = null;
+        for (Header header : response.getHeaders()) {
+            if (HEADER_ETAG.equalsIgnoreCase(header.getName())) {
+                etag = header.getValue();
+            } else if (HEADER_LAST_MODIFIED.equalsIgnoreCase(header.getName())) {
+                lastModified = header.getValue();
+            }
+        }
+
+        if (!TextUtils.isEmpty(etag) || !TextUtils.isEmpty(lastModified)) {
+            call.received = new Validators(etag, lastModified);
+        }
+    }
+
+    /**
+     * Stores the validators for {@code key}, or removes them if {@code validators} is null.
+     */
+    public synchronized void put(String key, Validators validators) {
+        Preconditions.checkNotNull(key, "key cannot be null");
+        loadLocked();
+
+        if (validators != null) {
+            mValidators.put(key, validators);
+        } else if (mValidators.remove(key) == null) {
+            return;
+        }
+
+        if (!mWriteScheduled) {
+            mWriteScheduled = true;
+            mWriteExecutor.execute(mWriteRunnable);
+        }
+    }
+
+    private synchronized Validators get(String key) {
+        loadLocked();
+        return mValidators.get(key);
+    }
+
+    /**
+     * @return true if {@code error} is a 304 response, meaning that the data asked for has not
+     * changed since it was last fetched
+     */
+    public static boolean isNotModified(RetrofitError error) {
+        final Response response = error != null ? error.getResponse() : null;
+        return response != null && response.getStatus() == 304;
+    }
+
+    private void write() {
+        final StringBuilder records = new StringBuilder();
+        synchronized (this) {
+            mWriteScheduled = false;
+            for (Map.Entry<String, Validators> entry : mValidators.entrySet()) {
+                final Validators validators = entry.getValue();
+                records.append(entry.getKey())
+                        .append(SEPARATOR).append(Strings.nullToEmpty(validators.etag))
+                        .append(SEPARATOR).append(Strings.nullToEmpty(validators.lastModified))
+                        .append('\n');
+            }
+        }
+
+        try {
+            final File temp = mFileManager.getFile(FILENAME_TEMP);
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(temp), UTF_8);
+            try {
+                writer.write(records.toString());
+            } finally {
+                writer.close();
+            }
+            if (!temp.renameTo(mFileManager.getFile(FILENAME))) {
+                throw new IOException("Could not replace validators");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadLocked() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+
+        final File file = mFileManager.getFile(FILENAME);
+        if (!file.exists()) {
+            return;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(SEPARATOR, -1);
+                if (fields.length == 3) {
+                    mValidators.put(fields[0], new Validators(Strings.emptyToNull(fields[1]),
+                            Strings.emptyToNull(fields[2])));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+}
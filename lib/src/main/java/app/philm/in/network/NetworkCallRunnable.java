@@ -20,6 +20,21 @@ import retrofit.RetrofitError;
 
 public abstract class NetworkCallRunnable<R> {
 
+    /**
+     * Calls which the user is waiting on, such as opening a movie.
+     */
+    public static final int PRIORITY_INTERACTIVE = 0;
+
+    /**
+     * Calls for data the user may soon need, such as the next page of a list.
+     */
+    public static final int PRIORITY_PREFETCH = 1;
+
+    /**
+     * Calls which keep local data up to date in the background.
+     */
+    public static final int PRIORITY_SYNC = 2;
+
     public void onPreTraktCall() {}
 
     public abstract R doBackgroundCall() throws RetrofitError;
@@ -28,6 +43,77 @@ public abstract class NetworkCallRunnable<R> {
 
     public abstract void onError(RetrofitError re);
 
+    /**
+     * Called instead of {@link #onSuccess(Object)} or {@link #onError(RetrofitError)} when this
+     * runnable was cancelled, or its call was dropped before it was made.
+     * {@link #onFinished()} is still called if {@link #onPreTraktCall()} was.
+     */
+    public void onCancelled() {}
+
     public void onFinished() {}
 
+    /**
+     * @return a key identifying the request made by {@link #doBackgroundCall()}, or null if the
+     * request should not be shared. Runnables which are executed with the same key while one is
+     * already in flight will share its result, rather than making their own network call.
+     */
+    public String getRequestKey() {
+        return null;
+    }
+
+    /**
+     * Called instead of {@link #onSuccess(Object)} when this runnable shared the result of an
+     * identical in-flight request, which has already had {@link #onSuccess(Object)} called.
+     */
+    public void onSharedSuccess(R result) {
+        onSuccess(result);
+    }
+
+    /**
+     * Called instead of {@link #onError(RetrofitError)} when this runnable shared a failed
+     * request with another runnable for the same calling id, which has already had
+     * {@link #onError(RetrofitError)} called.
+     */
+    public void onSharedError(RetrofitError re) {
+        onError(re);
+    }
+
+    /**
+     * @return true if {@link #doBackgroundCall()} can safely be made again after it has failed.
+     * By default only shared requests, which are reads, are retried.
+     */
+    public boolean isRetryable() {
+        return getRequestKey() != null;
+    }
+
+    /**
+     * @return true if this call may be dropped, rather than made, when the queue it waits in is
+     * full. By default only shared requests, which are reads, can be dropped.
+     */
+    public boolean isDroppable() {
+        return getRequestKey() != null;
+    }
+
+    /**
+     * @return the API which {@link #doBackgroundCall()} calls, one of
+     * {@link NetworkError#SOURCE_TRAKT} or {@link NetworkError#SOURCE_TMDB}.
+     */
+    public abstract int getSource();
+
+    /**
+     * @return one of {@link #PRIORITY_INTERACTIVE}, {@link #PRIORITY_PREFETCH} or
+     * {@link #PRIORITY_SYNC}.
+     */
+    public int getPriority() {
+        return PRIORITY_INTERACTIVE;
+    }
+
+    /**
+     * @return the id of the UI which this call was made for, or 0 if it was not made for a
+     * specific UI.
+     */
+    public int getCallingId() {
+        return 0;
+    }
+
  }
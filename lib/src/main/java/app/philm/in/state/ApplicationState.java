@@ -18,20 +18,20 @@ package app.philm.in.state;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
 
 import com.squareup.otto.Bus;
 
-import android.support.v4.util.ArrayMap;
-
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
+import app.philm.in.Constants;
 import app.philm.in.controllers.MainController;
 import app.philm.in.controllers.MovieController;
 import app.philm.in.model.PhilmAccount;
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.model.PhilmMovieCredit;
 import app.philm.in.model.PhilmPerson;
 import app.philm.in.model.PhilmUserProfile;
 import app.philm.in.model.TmdbConfiguration;
@@ -44,9 +44,8 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
 
     private final Bus mEventBus;
 
-    private Map<String, PhilmMovie> mTmdbIdMovies;
-    private Map<String, PhilmMovie> mImdbIdMovies;
-    private Map<String, PhilmPerson> mPeople;
+    private final MovieIdentityIndex mMovies;
+    private final PersonIdentityIndex mPeople;
 
     private SearchResult mSearchResult;
 
@@ -70,11 +69,14 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     private TmdbConfiguration mTmdbConfiguration;
 
     public ApplicationState(Bus eventBus) {
+        this(eventBus, Constants.MAX_CACHED_MOVIES, Constants.MAX_CACHED_PEOPLE);
+    }
+
+    public ApplicationState(Bus eventBus, int maxCachedMovies, int maxCachedPeople) {
         mEventBus = Preconditions.checkNotNull(eventBus, "eventBus cannot null");
 
-        mTmdbIdMovies = new ArrayMap<>(INITIAL_MOVIE_MAP_CAPACITY);
-        mImdbIdMovies = new ArrayMap<>(INITIAL_MOVIE_MAP_CAPACITY);
-        mPeople = new ArrayMap<>();
+        mMovies = new MovieIdentityIndex(INITIAL_MOVIE_MAP_CAPACITY, maxCachedMovies);
+        mPeople = new PersonIdentityIndex(maxCachedPeople);
     }
 
     @Override
@@ -104,39 +106,32 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     ///////////////////////////
 
     @Override
-    public Map<String, PhilmMovie> getTmdbIdMovies() {
-        return mTmdbIdMovies;
+    public PhilmMovie getMovie(final String id) {
+        return mMovies.get(id);
     }
 
     @Override
-    public Map<String, PhilmMovie> getImdbIdMovies() {
-        return mImdbIdMovies;
+    public PhilmMovie getMovie(int id) {
+        return mMovies.getByTmdbId(id);
     }
 
     @Override
-    public PhilmMovie getMovie(final String id) {
-        PhilmMovie movie = mTmdbIdMovies.get(id);
-
-        if (movie == null) {
-            movie = mImdbIdMovies.get(id);
-        }
-
-        return movie;
+    public PhilmMovie getMovieByImdbId(String imdbId) {
+        return mMovies.getByImdbId(imdbId);
     }
 
     @Override
-    public PhilmMovie getMovie(int id) {
-        return getMovie(String.valueOf(id));
+    public void putMovie(PhilmMovie movie) {
+        mMovies.put(movie);
+
+        if (mMovies.isOverBudget()) {
+            mMovies.trim(getPinnedMovies());
+        }
     }
 
     @Override
-    public void putMovie(PhilmMovie movie) {
-        if (!TextUtils.isEmpty(movie.getImdbId())) {
-            mImdbIdMovies.put(movie.getImdbId(), movie);
-        }
-        if (movie.getTmdbId() != null) {
-            mTmdbIdMovies.put(String.valueOf(movie.getTmdbId()), movie);
-        }
+    public void clearMovies() {
+        mMovies.clear();
     }
 
     @Override
@@ -148,6 +143,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     public void setLibrary(List<PhilmMovie> items) {
         if (!Objects.equal(items, mLibrary)) {
             mLibrary = items;
+            markPublished();
             mEventBus.post(new LibraryChangedEvent());
         }
     }
@@ -161,6 +157,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     public void setTrending(List<PhilmMovie> items) {
         if (!Objects.equal(items, mTrending)) {
             mTrending = items;
+            markPublished();
             mEventBus.post(new TrendingChangedEvent());
         }
     }
@@ -173,6 +170,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setPopular(MoviePaginatedResult items) {
         mPopular = items;
+        markPublished();
         mEventBus.post(new PopularChangedEvent());
     }
 
@@ -184,6 +182,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setNowPlaying(MoviePaginatedResult nowPlaying) {
         mNowPlaying = nowPlaying;
+        markPublished();
         mEventBus.post(new InTheatresChangedEvent());
     }
 
@@ -204,6 +203,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     public void setWatchlist(List<PhilmMovie> watchlist) {
         if (!Objects.equal(mWatchlist, watchlist)) {
             mWatchlist = watchlist;
+            markPublished();
             mEventBus.post(new WatchlistChangedEvent());
         }
     }
@@ -212,6 +212,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     public void setRecommended(List<PhilmMovie> recommended) {
         if (!Objects.equal(mRecommended, recommended)) {
             mRecommended = recommended;
+            markPublished();
             mEventBus.post(new RecommendedChangedEvent());
         }
     }
@@ -229,6 +230,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setSearchResult(SearchResult result) {
         mSearchResult = result;
+        markPublished();
         mEventBus.post(new SearchResultChangedEvent());
     }
 
@@ -253,6 +255,7 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setUpcoming(MoviePaginatedResult upcoming) {
         mUpcoming = upcoming;
+        markPublished();
         mEventBus.post(new UpcomingChangedEvent());
     }
 
@@ -264,22 +267,119 @@ public final class ApplicationState implements BaseState, MoviesState, UserState
     @Override
     public void setWatchingMovie(WatchingMovie movie) {
         mWatching = movie;
+        markPublished();
         mEventBus.post(new WatchingMovieUpdatedEvent());
     }
 
     @Override
-    public Map<String, PhilmPerson> getPeople() {
-        return mPeople;
+    public PhilmPerson getPerson(int id) {
+        return mPeople.getByTmdbId(id);
     }
 
     @Override
-    public PhilmPerson getPerson(int id) {
-        return getPerson(String.valueOf(id));
+    public PhilmPerson getPerson(String id) {
+        if (TextUtils.isEmpty(id)) {
+            return null;
+        }
+        final int tmdbId = MovieIdentityIndex.parseDigits(id, 0);
+        return tmdbId >= 0 ? mPeople.getByTmdbId(tmdbId) : null;
     }
 
     @Override
-    public PhilmPerson getPerson(String id) {
-        return mPeople.get(id);
+    public void putPerson(PhilmPerson person) {
+        mPeople.put(person);
+
+        if (mPeople.isOverBudget()) {
+            mPeople.trim(getPinnedPeople(getPinnedMovies()));
+        }
+    }
+
+    @Override
+    public List<PhilmMovie> searchMovies(String query, int limit) {
+        return mMovies.search(query, limit);
+    }
+
+    @Override
+    public List<PhilmPerson> searchPeople(String query, int limit) {
+        return mPeople.search(query, limit);
+    }
+
+    @Override
+    public CacheStats getMovieCacheStats() {
+        return mMovies.getStats();
+    }
+
+    @Override
+    public CacheStats getPersonCacheStats() {
+        return mPeople.getStats();
+    }
+
+    /**
+     * Called whenever a list is published. Until then, anything which the mappers have created or
+     * looked up may be about to be referenced from it, so must not be evicted.
+     */
+    private void markPublished() {
+        mMovies.markPublished();
+        mPeople.markPublished();
+    }
+
+    /**
+     * @return the movies which are currently referenced by one of the lists, and so should not
+     * be evicted from the cache.
+     */
+    private Set<PhilmMovie> getPinnedMovies() {
+        final Set<PhilmMovie> pinned = Sets.newIdentityHashSet();
+        addAll(pinned, mLibrary);
+        addAll(pinned, mWatchlist);
+        addAll(pinned, mTrending);
+        addAll(pinned, mRecommended);
+        addAll(pinned, mPopular);
+        addAll(pinned, mNowPlaying);
+        addAll(pinned, mUpcoming);
+        if (mSearchResult != null) {
+            addAll(pinned, mSearchResult.movies);
+        }
+        if (mWatching != null) {
+            pinned.add(mWatching.movie);
+        }
+        return pinned;
+    }
+
+    /**
+     * @return the people in the search results, or credited on one of {@code pinnedMovies}, and
+     * so should not be evicted from the cache.
+     */
+    private Set<PhilmPerson> getPinnedPeople(Set<PhilmMovie> pinnedMovies) {
+        final Set<PhilmPerson> pinned = Sets.newIdentityHashSet();
+        if (mSearchResult != null && mSearchResult.people != null) {
+            pinned.addAll(mSearchResult.people.getItems());
+        }
+        for (PhilmMovie movie : pinnedMovies) {
+            addCredited(pinned, movie.getCast());
+            addCredited(pinned, movie.getCrew());
+        }
+        return pinned;
+    }
+
+    private static void addCredited(Set<PhilmPerson> set, List<PhilmMovieCredit> credits) {
+        if (credits != null) {
+            for (int i = 0, z = credits.size(); i < z; i++) {
+                set.add(credits.get(i).getPerson());
+            }
+        }
+    }
+
+    private static void addAll(Set<PhilmMovie> set, PaginatedResult<PhilmMovie> result) {
+        if (result != null) {
+            // Movies on dropped pages are only referenced by id, so can be evicted
+            addAll(set, result.getItems());
+        }
+    }
+
+    private static void addAll(Set<PhilmMovie> set, List<PhilmMovie> movies) {
+        if (movies != null) {
+            set.addAll(movies);
+        }
     }
 
     ///////////////////////////
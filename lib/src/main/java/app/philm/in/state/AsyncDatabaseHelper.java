@@ -28,9 +28,11 @@ public interface AsyncDatabaseHelper {
 
     public void mergeWatchlist(List<PhilmMovie> watchlist);
 
-    public void getWatchlist(Callback<List<PhilmMovie>> callback);
+    public void getWatchlist(PagedCallback<PhilmMovie> callback);
 
-    public void getLibrary(Callback<List<PhilmMovie>> callback);
+    public void getLibrary(PagedCallback<PhilmMovie> callback);
+
+    public void getMovie(String id, Callback<PhilmMovie> callback);
 
     public void put(Collection<PhilmMovie> movies);
 
@@ -52,4 +54,13 @@ public interface AsyncDatabaseHelper {
         public void onFinished(T result);
     }
 
+    public interface PagedCallback<T> {
+        /**
+         * @param page the next page of results, in order
+         * @param last true if there are no more pages to come
+         * @return true to carry on reading the next page, false to stop
+         */
+        public boolean onPage(List<T> page, boolean last);
+    }
+
 }
@@ -18,12 +18,14 @@ package app.philm.in.state;
 
 import com.google.common.base.Preconditions;
 
-import android.support.v4.util.ArrayMap;
-
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.model.PhilmUserProfile;
@@ -33,53 +35,84 @@ import app.philm.in.util.PhilmCollections;
 
 public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
 
+    /**
+     * The first page is kept small so that it can be displayed quickly. Each following page is
+     * twice the size of the previous, up to {@link #MAX_PAGE_SIZE}.
+     */
+    private static final int FIRST_PAGE_SIZE = 24;
+    private static final int MAX_PAGE_SIZE = 384;
+
+    private static final MoviePageQuery LIBRARY_PAGE_QUERY = new MoviePageQuery() {
+        @Override
+        public List<PhilmMovie> getPage(DatabaseHelper dbHelper, PhilmMovie after, int limit) {
+            return dbHelper.getLibrary(after, limit);
+        }
+    };
+
+    private static final MoviePageQuery WATCHLIST_PAGE_QUERY = new MoviePageQuery() {
+        @Override
+        public List<PhilmMovie> getPage(DatabaseHelper dbHelper, PhilmMovie after, int limit) {
+            return dbHelper.getWatchlist(after, limit);
+        }
+    };
+
     private final BackgroundExecutor mExecutor;
     private final DatabaseHelper mDbHelper;
 
+    /**
+     * Movies waiting to be written, keyed by their database id. Puts of the same movie which are
+     * queued before the pending flush runs are coalesced into a single write.
+     */
+    private final Map<Long, PhilmMovie> mPendingPuts = new LinkedHashMap<>();
+
     public AsyncDatabaseHelperImpl(BackgroundExecutor executor, DatabaseHelper dbHelper) {
         mExecutor = Preconditions.checkNotNull(executor, "executor cannot be null");
         mDbHelper = Preconditions.checkNotNull(dbHelper, "dbHelper cannot be null");
     }
 
     @Override
-    public void getLibrary(final Callback<List<PhilmMovie>> callback) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<List<PhilmMovie>>() {
+    public void getLibrary(final PagedCallback<PhilmMovie> callback) {
+        mExecutor.execute(
+                new PagedMoviesRunnable(LIBRARY_PAGE_QUERY, callback, null, FIRST_PAGE_SIZE));
+    }
+
+    @Override
+    public void getMovie(final String id, final Callback<PhilmMovie> callback) {
+        mExecutor.execute(new DatabaseBackgroundRunnable<PhilmMovie>() {
             @Override
-            public List<PhilmMovie> doDatabaseCall(DatabaseHelper dbHelper) {
-                List<PhilmMovie> library = dbHelper.getLibrary();
-                if (library != null) {
-                    Collections.sort(library, PhilmMovie.COMPARATOR_SORT_TITLE);
-                }
-                return library;
+            public PhilmMovie doDatabaseCall(DatabaseHelper dbHelper) {
+                return dbHelper.getMovie(id);
             }
 
             @Override
-            public void postExecute(List<PhilmMovie> result) {
+            public void postExecute(PhilmMovie result) {
                 callback.onFinished(result);
             }
         });
     }
 
     @Override
-    public void put(final Collection<PhilmMovie> movies) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
-            @Override
-            public Void doDatabaseCall(DatabaseHelper dbHelper) {
-                dbHelper.delete(movies);
-                return null;
+    public void put(Collection<PhilmMovie> movies) {
+        boolean scheduleFlush;
+        synchronized (mPendingPuts) {
+            scheduleFlush = mPendingPuts.isEmpty();
+            for (PhilmMovie movie : movies) {
+                // Movies without any id can not be looked up again, so are not persisted
+                if (movie.hasDbId()) {
+                    mPendingPuts.put(movie.getDbId(), movie);
+                }
             }
-        });
+            scheduleFlush &= !mPendingPuts.isEmpty();
+        }
+
+        if (scheduleFlush) {
+            mExecutor.execute(new FlushPendingPutsRunnable());
+        }
     }
 
     @Override
-    public void put(final PhilmMovie movie) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<Void>() {
-            @Override
-            public Void doDatabaseCall(DatabaseHelper dbHelper) {
-                dbHelper.put(movie);
-                return null;
-            }
-        });
+    public void put(PhilmMovie movie) {
+        put(Collections.singletonList(movie));
     }
 
     @Override
@@ -159,19 +192,9 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
     }
 
     @Override
-    public void getWatchlist(final Callback<List<PhilmMovie>> callback) {
-        mExecutor.execute(new DatabaseBackgroundRunnable<List<PhilmMovie>>() {
-            @Override
-            public List<PhilmMovie> doDatabaseCall(DatabaseHelper dbHelper) {
-                List<PhilmMovie> watchlist = dbHelper.getWatchlist();
-                return watchlist;
-            }
-
-            @Override
-            public void postExecute(List<PhilmMovie> result) {
-                callback.onFinished(result);
-            }
-        });
+    public void getWatchlist(final PagedCallback<PhilmMovie> callback) {
+        mExecutor.execute(
+                new PagedMoviesRunnable(WATCHLIST_PAGE_QUERY, callback, null, FIRST_PAGE_SIZE));
     }
 
     @Override
@@ -202,28 +225,95 @@ public class AsyncDatabaseHelperImpl implements AsyncDatabaseHelper {
 
     }
 
-    private static void merge(DatabaseHelper dbHelper,
-                              List<PhilmMovie> databaseItems,
-                              List<PhilmMovie> newItems) {
-        if (!PhilmCollections.isEmpty(databaseItems)) {
-            Map<Long, PhilmMovie> dbItemsMap = new ArrayMap<>();
-            for (PhilmMovie movie : databaseItems) {
-                dbItemsMap.put(movie.getDbId(), movie);
+    /**
+     * Reads up to {@code limit} movies which sort after {@code after}, or the first page if
+     * {@code after} is null.
+     */
+    private interface MoviePageQuery {
+        List<PhilmMovie> getPage(DatabaseHelper dbHelper, PhilmMovie after, int limit);
+    }
+
+    /**
+     * Reads a page of movies, delivers it, then queues the read of the next page. Each page is a
+     * separate task so that no cursor is held open while the UI handles a page, and other
+     * database work can run in between.
+     */
+    private class PagedMoviesRunnable extends DatabaseBackgroundRunnable<List<PhilmMovie>> {
+
+        private final MoviePageQuery mQuery;
+        private final PagedCallback<PhilmMovie> mCallback;
+        private final PhilmMovie mAfter;
+        private final int mLimit;
+
+        PagedMoviesRunnable(MoviePageQuery query, PagedCallback<PhilmMovie> callback,
+                PhilmMovie after, int limit) {
+            mQuery = query;
+            mCallback = Preconditions.checkNotNull(callback, "callback cannot be null");
+            mAfter = after;
+            mLimit = limit;
+        }
+
+        @Override
+        public List<PhilmMovie> doDatabaseCall(DatabaseHelper dbHelper) {
+            return mQuery.getPage(dbHelper, mAfter, mLimit);
+        }
+
+        @Override
+        public void postExecute(List<PhilmMovie> page) {
+            if (page == null) {
+                page = Collections.emptyList();
+            }
+
+            final boolean last = page.size() < mLimit;
+            if (mCallback.onPage(page, last) && !last) {
+                mExecutor.execute(new PagedMoviesRunnable(mQuery, mCallback,
+                        page.get(page.size() - 1), Math.min(mLimit * 2, MAX_PAGE_SIZE)));
+            }
+        }
+
+    }
+
+    private class FlushPendingPutsRunnable extends DatabaseBackgroundRunnable<Void> {
+
+        @Override
+        public Void doDatabaseCall(DatabaseHelper dbHelper) {
+            final List<PhilmMovie> movies;
+            synchronized (mPendingPuts) {
+                movies = new ArrayList<>(mPendingPuts.values());
+                mPendingPuts.clear();
+            }
+
+            if (!movies.isEmpty()) {
+                dbHelper.put(movies);
             }
+            return null;
+        }
+
+    }
+
+    static void merge(DatabaseHelper dbHelper,
+                      List<PhilmMovie> databaseItems,
+                      List<PhilmMovie> newItems) {
+        List<PhilmMovie> removed = Collections.emptyList();
 
-            // Now lets remove the items from the mapAll, leaving only those
-            // not in the watchlist
+        if (!PhilmCollections.isEmpty(databaseItems)) {
+            final Set<Long> newIds = new HashSet<>(newItems.size() * 2);
             for (PhilmMovie movie : newItems) {
-                dbItemsMap.remove(movie.getDbId());
+                if (movie.hasDbId()) {
+                    newIds.add(movie.getDbId());
+                }
             }
 
-            // Anything left in the dbItemsMap needs removing from the db
-            if (!dbItemsMap.isEmpty()) {
-                dbHelper.delete(dbItemsMap.values());
+            // Anything in the database which is not in the new list needs removing
+            removed = new ArrayList<>();
+            for (PhilmMovie movie : databaseItems) {
+                if (!newIds.contains(movie.getDbId())) {
+                    removed.add(movie);
+                }
             }
         }
 
-        // Now persist the correct list
-        dbHelper.put(newItems);
+        // Now persist the correct list, along with the removals
+        dbHelper.put(newItems, removed);
     }
 }
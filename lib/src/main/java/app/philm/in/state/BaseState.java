@@ -16,15 +16,18 @@
 
 package app.philm.in.state;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import app.philm.in.controllers.MainController;
 import app.philm.in.model.PhilmAccount;
 import app.philm.in.model.PhilmUserProfile;
 import app.philm.in.network.NetworkError;
+import app.philm.in.util.IntHashMap;
 
 public interface BaseState {
 
@@ -59,11 +62,256 @@ public interface BaseState {
         }
     }
 
+    /**
+     * The pages of a paginated list, stored in a sparse page table. Items are de-duplicated by
+     * id, so an item which appears on more than one page is only kept on the first page loaded.
+     * <p>
+     * Pages far from what the user is looking at can be {@link #trimToWindow(int, int) dropped},
+     * in which case only their items' ids are kept. They can then be restored from a cache, or
+     * fetched again.
+     */
     public abstract static class PaginatedResult<T> {
-        public List<T> items;
+
+        public interface Resolver<T> {
+            /**
+             * @return the item with the given id, or null if it is not available
+             */
+            T get(int id);
+        }
+
+        /**
+         * The highest page which has been loaded.
+         */
         public int page;
         public int totalPages;
 
+        /**
+         * Indexed by page number - 1. Pages which have not been loaded are null.
+         */
+        private final ArrayList<Page<T>> mPages = new ArrayList<>();
+
+        /**
+         * The page number of each item, keyed by item id.
+         */
+        private final IntHashMap<Integer> mIdPages = new IntHashMap<>();
+
+        private int mSize;
+        private int mVersion;
+        private List<T> mResidentItems;
+
+        protected abstract int getId(T item);
+
+        /**
+         * Adds or replaces page {@code pageNumber}. Items which are already on another page are
+         * left out.
+         */
+        public void putPage(int pageNumber, List<T> items) {
+            Preconditions.checkArgument(pageNumber > 0, "pageNumber must be > 0");
+            Preconditions.checkNotNull(items, "items cannot be null");
+
+            final int index = pageNumber - 1;
+            while (mPages.size() <= index) {
+                mPages.add(null);
+            }
+
+            final Page<T> existing = mPages.get(index);
+            if (existing != null) {
+                for (int id : existing.ids) {
+                    mIdPages.remove(id);
+                }
+                mSize -= existing.ids.length;
+            }
+
+            final int[] ids = new int[items.size()];
+            final List<T> pageItems = new ArrayList<>(items.size());
+            int count = 0;
+
+            for (int i = 0, z = items.size(); i < z; i++) {
+                final T item = items.get(i);
+                if (item == null) {
+                    continue;
+                }
+                final int id = getId(item);
+                if (mIdPages.containsKey(id)) {
+                    // Already on another page, or earlier on this one
+                    continue;
+                }
+                mIdPages.put(id, pageNumber);
+                ids[count++] = id;
+                pageItems.add(item);
+            }
+
+            mPages.set(index, new Page<>(Arrays.copyOf(ids, count), pageItems));
+            mSize += count;
+            page = Math.max(page, pageNumber);
+            onChanged();
+        }
+
+        /**
+         * @return the items of every page which has not been dropped, in page order. The list
+         * is reused until this result changes, so it must not be modified.
+         */
+        public List<T> getItems() {
+            if (mResidentItems == null) {
+                final List<T> items = new ArrayList<>(mSize);
+                for (int i = 0, z = mPages.size(); i < z; i++) {
+                    final Page<T> entry = mPages.get(i);
+                    if (entry != null && entry.items != null) {
+                        items.addAll(entry.items);
+                    }
+                }
+                mResidentItems = Collections.unmodifiableList(items);
+            }
+            return mResidentItems;
+        }
+
+        /**
+         * @return every item, in page order, with the items of dropped pages looked up through
+         * {@code resolver}. Items which {@code resolver} does not have are left out.
+         */
+        public List<T> getItems(Resolver<T> resolver) {
+            Preconditions.checkNotNull(resolver, "resolver cannot be null");
+
+            if (getDroppedPageCount() == 0) {
+                return getItems();
+            }
+
+            final List<T> items = new ArrayList<>(mSize);
+            for (int i = 0, z = mPages.size(); i < z; i++) {
+                final Page<T> entry = mPages.get(i);
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.items != null) {
+                    items.addAll(entry.items);
+                } else {
+                    for (int id : entry.ids) {
+                        final T item = resolver.get(id);
+                        if (item != null) {
+                            items.add(item);
+                        }
+                    }
+                }
+            }
+            return items;
+        }
+
+        /**
+         * @return the number of items, including those on dropped pages
+         */
+        public int size() {
+            return mSize;
+        }
+
+        public boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        /**
+         * @return a number which changes whenever the pages change
+         */
+        public int getVersion() {
+            return mVersion;
+        }
+
+        /**
+         * @return the number of the page which holds the item at {@code position}, or the last
+         * page if {@code position} is past the end
+         */
+        public int getPageForPosition(int position) {
+            int count = 0;
+            for (int i = 0, z = mPages.size(); i < z; i++) {
+                final Page<T> entry = mPages.get(i);
+                if (entry != null) {
+                    count += entry.ids.length;
+                    if (position < count) {
+                        return i + 1;
+                    }
+                }
+            }
+            return page;
+        }
+
+        /**
+         * Drops the items of every page more than {@code radius} pages from
+         * {@code centerPage}, keeping only their ids.
+         *
+         * @return the number of pages dropped
+         */
+        public int trimToWindow(int centerPage, int radius) {
+            int dropped = 0;
+            for (int i = 0, z = mPages.size(); i < z; i++) {
+                final Page<T> entry = mPages.get(i);
+                if (entry != null && entry.items != null && Math.abs(i + 1 - centerPage) > radius) {
+                    entry.items = null;
+                    dropped++;
+                }
+            }
+            if (dropped > 0) {
+                onChanged();
+            }
+            return dropped;
+        }
+
+        /**
+         * @return true if page {@code pageNumber} has been loaded and has not been dropped
+         */
+        public boolean hasPage(int pageNumber) {
+            final int index = pageNumber - 1;
+            return index >= 0 && index < mPages.size() && mPages.get(index) != null
+                    && mPages.get(index).items != null;
+        }
+
+        public boolean isPageDropped(int pageNumber) {
+            final int index = pageNumber - 1;
+            if (index < 0 || index >= mPages.size()) {
+                return false;
+            }
+            final Page<T> entry = mPages.get(index);
+            return entry != null && entry.items == null;
+        }
+
+        /**
+         * Restores a dropped page using {@code resolver}.
+         *
+         * @return true if the page has been restored, false if {@code resolver} did not have
+         * all of its items, in which case the page needs to be fetched again
+         */
+        public boolean restorePage(int pageNumber, Resolver<T> resolver) {
+            Preconditions.checkNotNull(resolver, "resolver cannot be null");
+            Preconditions.checkArgument(isPageDropped(pageNumber), "page is not dropped");
+
+            final Page<T> entry = mPages.get(pageNumber - 1);
+            final List<T> items = new ArrayList<>(entry.ids.length);
+            for (int id : entry.ids) {
+                final T item = resolver.get(id);
+                if (item == null) {
+                    return false;
+                }
+                items.add(item);
+            }
+
+            entry.items = items;
+            onChanged();
+            return true;
+        }
+
+        private int getDroppedPageCount() {
+            int count = 0;
+            for (int i = 0, z = mPages.size(); i < z; i++) {
+                final Page<T> entry = mPages.get(i);
+                if (entry != null && entry.items == null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void onChanged() {
+            mVersion++;
+            mResidentItems = null;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -72,13 +320,41 @@ public interface BaseState {
             if (o == null || getClass() != o.getClass()) {
                 return false;
             }
+
+            // Compare ids rather than items, which is much cheaper
             PaginatedResult that = (PaginatedResult) o;
-            return Objects.equal(items, that.items);
+            if (mSize != that.mSize || mPages.size() != that.mPages.size()) {
+                return false;
+            }
+            for (int i = 0, z = mPages.size(); i < z; i++) {
+                final Page<T> entry = mPages.get(i);
+                final Page<?> other = (Page<?>) that.mPages.get(i);
+                if (entry == null ? other != null
+                        : other == null || !Arrays.equals(entry.ids, other.ids)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         @Override
         public int hashCode() {
-            return items != null ? items.hashCode() : 0;
+            int result = 1;
+            for (int i = 0, z = mPages.size(); i < z; i++) {
+                final Page<T> entry = mPages.get(i);
+                result = 31 * result + (entry != null ? Arrays.hashCode(entry.ids) : 0);
+            }
+            return result;
+        }
+
+        private static class Page<T> {
+            final int[] ids;
+            List<T> items;
+
+            Page(int[] ids, List<T> items) {
+                this.ids = ids;
+                this.items = items;
+            }
         }
     }
 
@@ -116,6 +392,9 @@ public interface BaseState {
         }
     }
 
+    public static class ConnectivityRestoredEvent {
+    }
+
     public static class OnErrorEvent {
         public final int callingId;
         public final NetworkError error;
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Base class for the identity indexes in {@link ApplicationState}. Keeps track of when each
+ * entry was last accessed, so that once the index grows past its maximum size the least
+ * recently used entries which are not pinned can be evicted.
+ */
+abstract class BoundedIdentityIndex<T> {
+
+    /**
+     * When trimming, we evict down to this proportion of the maximum size so that we do not
+     * need to trim again on the very next insert.
+     */
+    private static final float TRIM_TARGET = 0.9f;
+
+    private static final Comparator<Entry<?>> COMPARATOR_LAST_ACCESS
+            = new Comparator<Entry<?>>() {
+        @Override
+        public int compare(Entry<?> entry, Entry<?> entry2) {
+            return entry.lastAccess < entry2.lastAccess ? -1
+                    : (entry.lastAccess == entry2.lastAccess ? 0 : 1);
+        }
+    };
+
+    static final class Entry<T> {
+        final T value;
+        long lastAccess;
+        int position;
+
+        Entry(T value) {
+            this.value = value;
+        }
+    }
+
+    private final ArrayList<Entry<T>> mEntries;
+    private final int mMaxSize;
+    private int mTrimThreshold;
+
+    private long mClock;
+
+    /**
+     * The clock when the state last published a list. Entries accessed since then may be part
+     * of a list which a mapper is still building, so are never evicted.
+     */
+    private long mPublishedClock;
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    BoundedIdentityIndex(int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be > 0");
+        mMaxSize = maxSize;
+        mTrimThreshold = maxSize;
+        mEntries = new ArrayList<>(Math.min(maxSize, 256));
+    }
+
+    /**
+     * Remove any keys which map to {@code entry}.
+     */
+    abstract void removeKeys(Entry<T> entry);
+
+    abstract void clearKeys();
+
+    final T hit(Entry<T> entry) {
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        entry.lastAccess = ++mClock;
+        return entry.value;
+    }
+
+    final Entry<T> newEntry(T value) {
+        final Entry<T> entry = new Entry<>(value);
+        entry.lastAccess = ++mClock;
+        entry.position = mEntries.size();
+        mEntries.add(entry);
+        return entry;
+    }
+
+    final void removeEntry(Entry<T> entry) {
+        removeKeys(entry);
+
+        // Swap the last entry into this entry's position so that removal is O(1)
+        final int last = mEntries.size() - 1;
+        final Entry<T> lastEntry = mEntries.remove(last);
+        if (lastEntry != entry) {
+            lastEntry.position = entry.position;
+            mEntries.set(entry.position, lastEntry);
+        }
+    }
+
+    /**
+     * Called when a list of values has been published, so that the entries accessed while
+     * building it no longer need to be protected from eviction.
+     */
+    final void markPublished() {
+        mPublishedClock = mClock;
+    }
+
+    final boolean isOverBudget() {
+        return mEntries.size() > mTrimThreshold;
+    }
+
+    /**
+     * Evicts the least recently used entries which are not in {@code pinned}, and have not been
+     * accessed since the last {@link #markPublished()}, until the index is comfortably under its
+     * maximum size.
+     *
+     * @param pinned values which should not be evicted, compared by identity
+     */
+    final void trim(Set<T> pinned) {
+        if (!isOverBudget()) {
+            return;
+        }
+
+        final ArrayList<Entry<T>> candidates = new ArrayList<>(mEntries.size());
+        for (int i = 0, z = mEntries.size(); i < z; i++) {
+            final Entry<T> entry = mEntries.get(i);
+            if (entry.lastAccess <= mPublishedClock && !pinned.contains(entry.value)) {
+                candidates.add(entry);
+            }
+        }
+        Collections.sort(candidates, COMPARATOR_LAST_ACCESS);
+
+        final int targetSize = (int) (mMaxSize * TRIM_TARGET);
+        for (int i = 0, z = candidates.size(); i < z && mEntries.size() > targetSize; i++) {
+            removeEntry(candidates.get(i));
+            mEvictionCount++;
+        }
+
+        // If too much is pinned to get under budget, wait for some growth before trying again,
+        // otherwise every insert would trigger another trim
+        mTrimThreshold = Math.max(mMaxSize, mEntries.size() + mMaxSize / 10);
+    }
+
+    final void clear() {
+        clearKeys();
+        mEntries.clear();
+        mTrimThreshold = mMaxSize;
+    }
+
+    final MoviesState.CacheStats getStats() {
+        return new MoviesState.CacheStats(mEntries.size(), mMaxSize, mHitCount, mMissCount,
+                mEvictionCount);
+    }
+
+}
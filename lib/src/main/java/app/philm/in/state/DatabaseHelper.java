@@ -26,12 +26,34 @@ public interface DatabaseHelper {
 
     List<PhilmMovie> getLibrary();
 
+    /**
+     * @return up to {@code limit} library movies ordered by sort title, starting after
+     * {@code after}, or from the beginning if {@code after} is null.
+     */
+    List<PhilmMovie> getLibrary(PhilmMovie after, int limit);
+
     List<PhilmMovie> getWatchlist();
 
+    /**
+     * @return up to {@code limit} watchlist movies ordered by sort title, starting after
+     * {@code after}, or from the beginning if {@code after} is null.
+     */
+    List<PhilmMovie> getWatchlist(PhilmMovie after, int limit);
+
+    /**
+     * @param id either a TMDb id in String form, or an IMDb id
+     */
+    PhilmMovie getMovie(String id);
+
     void put(PhilmMovie movie);
 
     void put(Collection<PhilmMovie> movies);
 
+    /**
+     * Deletes {@code deleted} and puts {@code movies} in a single transaction.
+     */
+    void put(Collection<PhilmMovie> movies, Collection<PhilmMovie> deleted);
+
     void delete(Collection<PhilmMovie> movies);
 
     PhilmUserProfile getUserProfile(String username);
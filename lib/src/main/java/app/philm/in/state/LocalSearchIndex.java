@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import app.philm.in.util.TextUtils;
+
+/**
+ * An in-memory index of the words in each value's titles or names, so that the values can be
+ * searched by word prefix without going to the network. Accents, case and punctuation are
+ * ignored, using {@link TextUtils#normaliseForSearch(String)}.
+ * <p>
+ * Words are kept in a sorted map, so that every word starting with a query word can be found
+ * with a single range lookup.
+ */
+final class LocalSearchIndex<T> {
+
+    /**
+     * Appended to a prefix to give the (exclusive) end of the range of words which start with it.
+     */
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    private static final class Entry<T> {
+        final T value;
+        String[] texts;
+        String[] words;
+
+        /**
+         * The last search which visited this entry, so that each search only checks it once.
+         */
+        int searchId;
+
+        Entry(T value) {
+            this.value = value;
+        }
+    }
+
+    private final TreeMap<String, ArrayList<Entry<T>>> mWords = new TreeMap<>();
+    private final Map<T, Entry<T>> mEntries = new IdentityHashMap<>();
+
+    private int mSearchId;
+
+    /**
+     * Indexes {@code value} under the words in {@code texts}, replacing any words it was
+     * previously indexed under. Null texts are ignored.
+     */
+    void put(T value, String... texts) {
+        Entry<T> entry = mEntries.get(value);
+        if (entry != null && Arrays.equals(entry.texts, texts)) {
+            // Nothing has changed, so skip normalising the texts again
+            return;
+        }
+
+        final String[] words = getWords(texts);
+        if (entry == null) {
+            if (words.length == 0) {
+                return;
+            }
+            entry = new Entry<>(value);
+            mEntries.put(value, entry);
+        } else if (!Arrays.equals(entry.words, words)) {
+            removeWords(entry);
+        } else {
+            entry.texts = texts.clone();
+            return;
+        }
+
+        if (words.length == 0) {
+            mEntries.remove(value);
+            return;
+        }
+
+        entry.texts = texts.clone();
+        entry.words = words;
+        for (String word : words) {
+            ArrayList<Entry<T>> entries = mWords.get(word);
+            if (entries == null) {
+                entries = new ArrayList<>(2);
+                mWords.put(word, entries);
+            }
+            entries.add(entry);
+        }
+    }
+
+    void remove(T value) {
+        final Entry<T> entry = mEntries.remove(value);
+        if (entry != null) {
+            removeWords(entry);
+        }
+    }
+
+    void clear() {
+        mWords.clear();
+        mEntries.clear();
+    }
+
+    int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return up to {@code limit} values which have a word starting with each word in
+     * {@code query}
+     */
+    List<T> search(String query, int limit) {
+        final String normalised = TextUtils.normaliseForSearch(query);
+        if (normalised.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        final String[] queryWords = normalised.split(" ");
+
+        // Drive the search by the query word with the fewest candidates, and check the others
+        // against each candidate's words
+        Collection<ArrayList<Entry<T>>> candidates = null;
+        int candidateCount = Integer.MAX_VALUE;
+        for (String word : queryWords) {
+            final Collection<ArrayList<Entry<T>>> wordCandidates = getEntriesStartingWith(word);
+            final int count = countUpTo(wordCandidates, candidateCount);
+            if (count == 0) {
+                // Nothing can match every query word
+                return Collections.emptyList();
+            }
+            if (count < candidateCount) {
+                candidates = wordCandidates;
+                candidateCount = count;
+            }
+        }
+
+        final int searchId = ++mSearchId;
+        final ArrayList<T> results = new ArrayList<>();
+
+        for (ArrayList<Entry<T>> entries : candidates) {
+            for (int i = 0, z = entries.size(); i < z; i++) {
+                final Entry<T> entry = entries.get(i);
+                if (entry.searchId == searchId) {
+                    // Already checked under another word
+                    continue;
+                }
+                entry.searchId = searchId;
+
+                if (matchesAll(entry.words, queryWords)) {
+                    results.add(entry.value);
+                    if (results.size() >= limit) {
+                        return results;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private Collection<ArrayList<Entry<T>>> getEntriesStartingWith(String prefix) {
+        return mWords.subMap(prefix, true, prefix + MAX_CHAR, false).values();
+    }
+
+    private void removeWords(Entry<T> entry) {
+        for (String word : entry.words) {
+            final ArrayList<Entry<T>> entries = mWords.get(word);
+            if (entries != null) {
+                entries.remove(entry);
+                if (entries.isEmpty()) {
+                    mWords.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries in {@code entries}, or {@code max} if there are at least
+     * that many
+     */
+    private static int countUpTo(Collection<? extends List<?>> entries, int max) {
+        int count = 0;
+        for (List<?> list : entries) {
+            count += list.size();
+            if (count >= max) {
+                return max;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param words sorted words
+     * @return true if every query word is the start of one of {@code words}
+     */
+    private static boolean matchesAll(String[] words, String[] queryWords) {
+        for (String queryWord : queryWords) {
+            // Any words starting with queryWord sort at, or directly after, where it would be
+            int index = Arrays.binarySearch(words, queryWord);
+            if (index < 0) {
+                index = -(index + 1);
+            }
+            if (index >= words.length || !words[index].startsWith(queryWord)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the sorted, de-duplicated, normalised words in {@code texts}
+     */
+    private static String[] getWords(String[] texts) {
+        final ArrayList<String> words = new ArrayList<>();
+        for (String text : texts) {
+            final String normalised = TextUtils.normaliseForSearch(text);
+            if (!normalised.isEmpty()) {
+                Collections.addAll(words, normalised.split(" "));
+            }
+        }
+        Collections.sort(words);
+
+        int size = 0;
+        for (int i = 0, z = words.size(); i < z; i++) {
+            final String word = words.get(i);
+            if (size == 0 || !word.equals(words.get(size - 1))) {
+                words.set(size++, word);
+            }
+        }
+        return words.subList(0, size).toArray(new String[size]);
+    }
+
+}
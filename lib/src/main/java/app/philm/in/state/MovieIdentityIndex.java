@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.util.IntHashMap;
+import app.philm.in.util.TextUtils;
+
+/**
+ * Looks up movies by their TMDb or IMDb id without allocating.
+ * <p>
+ * IMDb ids are of the form {@code tt0123456}, so they are stored against the digits parsed to
+ * an int. Any id which does not fit that form, or which collides with an existing id once parsed
+ * (e.g. {@code tt0123456} and {@code tt00123456}), is kept in a String keyed map instead.
+ * <p>
+ * The movies' titles are also indexed, so that the movies can be searched locally.
+ */
+final class MovieIdentityIndex extends BoundedIdentityIndex<PhilmMovie> {
+
+    private static final int MAX_ID_DIGITS = 9;
+
+    private final IntHashMap<Entry<PhilmMovie>> mTmdbIdEntries;
+    private final IntHashMap<Entry<PhilmMovie>> mImdbIdEntries;
+    private final Map<String, Entry<PhilmMovie>> mOtherImdbIdEntries;
+    private final LocalSearchIndex<PhilmMovie> mSearchIndex;
+
+    MovieIdentityIndex(int expectedSize, int maxSize) {
+        super(maxSize);
+        mTmdbIdEntries = new IntHashMap<>(expectedSize);
+        mImdbIdEntries = new IntHashMap<>(expectedSize);
+        mOtherImdbIdEntries = new HashMap<>();
+        mSearchIndex = new LocalSearchIndex<>();
+    }
+
+    PhilmMovie getByTmdbId(int tmdbId) {
+        return hit(mTmdbIdEntries.get(tmdbId));
+    }
+
+    PhilmMovie getByImdbId(String imdbId) {
+        return hit(getEntryByImdbId(imdbId));
+    }
+
+    /**
+     * @param id either a TMDb id in String form, or an IMDb id
+     */
+    PhilmMovie get(String id) {
+        if (TextUtils.isEmpty(id)) {
+            return null;
+        }
+
+        final int tmdbId = parseDigits(id, 0);
+        if (tmdbId >= 0) {
+            return getByTmdbId(tmdbId);
+        }
+        return getByImdbId(id);
+    }
+
+    void put(PhilmMovie movie) {
+        final String imdbId = movie.getImdbId();
+        final Integer tmdbId = movie.getTmdbId();
+
+        Entry<PhilmMovie> entry = null;
+        if (tmdbId != null) {
+            entry = mTmdbIdEntries.get(tmdbId);
+        }
+        if ((entry == null || entry.value != movie) && !TextUtils.isEmpty(imdbId)) {
+            entry = getEntryByImdbId(imdbId);
+        }
+        if (entry == null || entry.value != movie) {
+            entry = newEntry(movie);
+        } else {
+            hit(entry);
+        }
+
+        if (!TextUtils.isEmpty(imdbId)) {
+            final int key = parseImdbId(imdbId);
+            if (key >= 0) {
+                final Entry<PhilmMovie> existing = mImdbIdEntries.get(key);
+                if (existing == null || existing == entry
+                        || imdbId.equals(existing.value.getImdbId())) {
+                    replaceEntry(existing, entry);
+                    mImdbIdEntries.put(key, entry);
+                } else {
+                    replaceEntry(mOtherImdbIdEntries.get(imdbId), entry);
+                    mOtherImdbIdEntries.put(imdbId, entry);
+                }
+            } else {
+                replaceEntry(mOtherImdbIdEntries.get(imdbId), entry);
+                mOtherImdbIdEntries.put(imdbId, entry);
+            }
+        }
+
+        if (tmdbId != null) {
+            replaceEntry(mTmdbIdEntries.get(tmdbId), entry);
+            mTmdbIdEntries.put(tmdbId, entry);
+        }
+
+        mSearchIndex.put(movie, movie.getTitle(), movie.getSortTitle(), movie.getOriginalTitle());
+    }
+
+    /**
+     * @return up to {@code limit} movies whose titles have a word starting with each word in
+     * {@code query}
+     */
+    List<PhilmMovie> search(String query, int limit) {
+        return mSearchIndex.search(query, limit);
+    }
+
+    @Override
+    void removeKeys(Entry<PhilmMovie> entry) {
+        final PhilmMovie movie = entry.value;
+        mSearchIndex.remove(movie);
+
+        final Integer tmdbId = movie.getTmdbId();
+        if (tmdbId != null && mTmdbIdEntries.get(tmdbId) == entry) {
+            mTmdbIdEntries.remove(tmdbId);
+        }
+
+        final String imdbId = movie.getImdbId();
+        if (!TextUtils.isEmpty(imdbId)) {
+            final int key = parseImdbId(imdbId);
+            if (key >= 0 && mImdbIdEntries.get(key) == entry) {
+                mImdbIdEntries.remove(key);
+            }
+            if (mOtherImdbIdEntries.get(imdbId) == entry) {
+                mOtherImdbIdEntries.remove(imdbId);
+            }
+        }
+    }
+
+    @Override
+    void clearKeys() {
+        mTmdbIdEntries.clear();
+        mImdbIdEntries.clear();
+        mOtherImdbIdEntries.clear();
+        mSearchIndex.clear();
+    }
+
+    private Entry<PhilmMovie> getEntryByImdbId(String imdbId) {
+        final int key = parseImdbId(imdbId);
+        if (key >= 0) {
+            final Entry<PhilmMovie> entry = mImdbIdEntries.get(key);
+            if (entry != null && imdbId.equals(entry.value.getImdbId())) {
+                return entry;
+            }
+        }
+        return mOtherImdbIdEntries.isEmpty() ? null : mOtherImdbIdEntries.get(imdbId);
+    }
+
+    /**
+     * A different movie instance is being stored against one of {@code existing}'s ids, so
+     * drop {@code existing} rather than leaving it half indexed.
+     */
+    private void replaceEntry(Entry<PhilmMovie> existing, Entry<PhilmMovie> entry) {
+        if (existing != null && existing != entry) {
+            removeEntry(existing);
+        }
+    }
+
+    /**
+     * @return the digits of an IMDb id ({@code tt} followed by digits) as an int, or -1 if the
+     * id is not in that form.
+     */
+    static int parseImdbId(String imdbId) {
+        if (imdbId != null && imdbId.length() > 2
+                && imdbId.charAt(0) == 't' && imdbId.charAt(1) == 't') {
+            return parseDigits(imdbId, 2);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the digits in {@code value} from {@code start} as an int, or -1 if there are any
+     * non-digit characters or too many digits to fit.
+     */
+    static int parseDigits(String value, int start) {
+        final int length = value.length();
+        if (length == start || length - start > MAX_ID_DIGITS) {
+            return -1;
+        }
+
+        int result = 0;
+        for (int i = start; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+}
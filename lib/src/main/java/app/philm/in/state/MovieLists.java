@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import java.util.Collections;
+import java.util.List;
+
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.util.PhilmCollections;
+
+public final class MovieLists {
+
+    private MovieLists() {
+    }
+
+    /**
+     * Adds {@code movie} to, or removes it from, the library and watchlist in {@code state} so
+     * that they match the movie's flags. Lists which have not been loaded are left alone.
+     */
+    public static void updateMembership(MoviesState state, PhilmMovie movie) {
+        final List<PhilmMovie> library = state.getLibrary();
+        final List<PhilmMovie> watchlist = state.getWatchlist();
+
+        if (!PhilmCollections.isEmpty(library)) {
+            final boolean shouldBeInLibrary = movie.isWatched() || movie.inCollection();
+
+            if (shouldBeInLibrary != library.contains(movie)) {
+                if (shouldBeInLibrary) {
+                    library.add(movie);
+                    Collections.sort(library, PhilmMovie.COMPARATOR_SORT_TITLE);
+                } else {
+                    library.remove(movie);
+                }
+            }
+        }
+
+        if (!PhilmCollections.isEmpty(watchlist)) {
+            final boolean shouldBeInWatchlist = movie.inWatchlist();
+            if (shouldBeInWatchlist != watchlist.contains(movie)) {
+                if (shouldBeInWatchlist) {
+                    watchlist.add(movie);
+                    Collections.sort(watchlist, PhilmMovie.COMPARATOR_SORT_TITLE);
+                } else {
+                    watchlist.remove(movie);
+                }
+            }
+        }
+    }
+
+}
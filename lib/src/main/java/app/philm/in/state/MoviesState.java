@@ -19,7 +19,6 @@ package app.philm.in.state;
 import com.google.common.base.Preconditions;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import app.philm.in.controllers.MovieController;
@@ -30,16 +29,19 @@ import app.philm.in.model.WatchingMovie;
 
 public interface MoviesState extends BaseState {
 
-    public Map<String, PhilmMovie> getTmdbIdMovies();
-
-    public Map<String, PhilmMovie> getImdbIdMovies();
-
+    /**
+     * @param id either a TMDb id in String form, or an IMDb id
+     */
     public PhilmMovie getMovie(String id);
 
     public PhilmMovie getMovie(int id);
 
+    public PhilmMovie getMovieByImdbId(String imdbId);
+
     public void putMovie(PhilmMovie movie);
 
+    public void clearMovies();
+
     public List<PhilmMovie> getLibrary();
 
     public void setLibrary(List<PhilmMovie> library);
@@ -82,12 +84,26 @@ public interface MoviesState extends BaseState {
 
     public WatchingMovie getWatchingMovie();
 
-    public Map<String, PhilmPerson> getPeople();
-
     public PhilmPerson getPerson(int id);
 
     public PhilmPerson getPerson(String id);
 
+    public void putPerson(PhilmPerson person);
+
+    /**
+     * Searches the movies which are currently held in memory, without going to the network.
+     */
+    public List<PhilmMovie> searchMovies(String query, int limit);
+
+    /**
+     * Searches the people who are currently held in memory, without going to the network.
+     */
+    public List<PhilmPerson> searchPeople(String query, int limit);
+
+    public CacheStats getMovieCacheStats();
+
+    public CacheStats getPersonCacheStats();
+
     public static class LibraryChangedEvent {}
 
     public static class PopularChangedEvent {}
@@ -163,18 +179,61 @@ public interface MoviesState extends BaseState {
     }
 
     public class MoviePaginatedResult extends PaginatedResult<PhilmMovie> {
+        @Override
+        protected int getId(PhilmMovie movie) {
+            return movie.getTmdbId();
+        }
     }
 
     public class PersonPaginatedResult extends PaginatedResult<PhilmPerson> {
+        @Override
+        protected int getId(PhilmPerson person) {
+            return person.getTmdbId();
+        }
     }
 
     public class SearchResult {
         public final String query;
+
+        /**
+         * True if these results have been filtered locally from the results of a shorter query,
+         * and should be replaced by the real results once they have been fetched.
+         */
+        public final boolean local;
+
         public MoviePaginatedResult movies;
         public PersonPaginatedResult people;
 
         public SearchResult(String query) {
+            this(query, false);
+        }
+
+        public SearchResult(String query, boolean local) {
             this.query = Preconditions.checkNotNull(query, "query cannot be null");
+            this.local = local;
+        }
+    }
+
+    public static class CacheStats {
+        public final int size;
+        public final int maxSize;
+        public final long hitCount;
+        public final long missCount;
+        public final long evictionCount;
+
+        public CacheStats(int size, int maxSize, long hitCount, long missCount,
+                long evictionCount) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{size=" + size + ", maxSize=" + maxSize + ", hits=" + hitCount
+                    + ", misses=" + missCount + ", evictions=" + evictionCount + '}';
         }
     }
 
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import java.util.List;
+
+import app.philm.in.model.PhilmPerson;
+import app.philm.in.util.IntHashMap;
+
+/**
+ * Looks up people by their TMDb id. Their names are also indexed, so that they can be searched
+ * locally.
+ */
+final class PersonIdentityIndex extends BoundedIdentityIndex<PhilmPerson> {
+
+    private final IntHashMap<Entry<PhilmPerson>> mTmdbIdEntries;
+    private final LocalSearchIndex<PhilmPerson> mSearchIndex;
+
+    PersonIdentityIndex(int maxSize) {
+        super(maxSize);
+        mTmdbIdEntries = new IntHashMap<>();
+        mSearchIndex = new LocalSearchIndex<>();
+    }
+
+    PhilmPerson getByTmdbId(int tmdbId) {
+        return hit(mTmdbIdEntries.get(tmdbId));
+    }
+
+    void put(PhilmPerson person) {
+        final Integer tmdbId = person.getTmdbId();
+        if (tmdbId == null) {
+            return;
+        }
+
+        final Entry<PhilmPerson> existing = mTmdbIdEntries.get(tmdbId);
+        if (existing != null && existing.value == person) {
+            hit(existing);
+        } else {
+            if (existing != null) {
+                removeEntry(existing);
+            }
+            mTmdbIdEntries.put(tmdbId, newEntry(person));
+        }
+
+        mSearchIndex.put(person, person.getName());
+    }
+
+    /**
+     * @return up to {@code limit} people whose names have a word starting with each word in
+     * {@code query}
+     */
+    List<PhilmPerson> search(String query, int limit) {
+        return mSearchIndex.search(query, limit);
+    }
+
+    @Override
+    void removeKeys(Entry<PhilmPerson> entry) {
+        final Integer tmdbId = entry.value.getTmdbId();
+        if (tmdbId != null && mTmdbIdEntries.get(tmdbId) == entry) {
+            mTmdbIdEntries.remove(tmdbId);
+        }
+        mSearchIndex.remove(entry.value);
+    }
+
+    @Override
+    void clearKeys() {
+        mTmdbIdEntries.clear();
+        mSearchIndex.clear();
+    }
+
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.state;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import app.philm.in.util.FileManager;
+import app.philm.in.util.Logger;
+import app.philm.in.util.TextUtils;
+
+/**
+ * An append-only journal of Trakt changes which have not been confirmed by Trakt yet, so that
+ * changes made while offline are not lost and can be sent later.
+ * <p>
+ * Each change is appended as an {@code A} record when it is made, and a {@code D} record is
+ * appended once it has been sent or dropped. A {@code U} record names the account which made
+ * the changes. Records are written sequentially on
+ * {@code writeExecutor}, and every record queued since the last write is synced to disk
+ * together. Once the journal is mostly made of finished changes, it is compacted by rewriting
+ * it with just the pending ones. If a write fails, the journal is rewritten from memory instead,
+ * so that a partly written record can not be followed by another.
+ * <p>
+ * The journal is read on {@code writeExecutor} when it is created, so that the file is never
+ * read on the caller's thread. Until it has been read, only changes made since are returned.
+ */
+public class TraktMutationJournal {
+
+    private static final String LOG_TAG = TraktMutationJournal.class.getSimpleName();
+
+    private static final String FILENAME = "trakt_mutations.journal";
+    private static final String FILENAME_COMPACT = FILENAME + ".tmp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String RECORD_OWNER = "U";
+    private static final String RECORD_ADD = "A";
+    private static final String RECORD_DONE = "D";
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * The journal is compacted once it has at least this many finished records, and they
+     * outnumber the pending ones.
+     */
+    private static final int COMPACT_THRESHOLD = 64;
+
+    /**
+     * How many times in a row a failed write is retried straight away. After that we wait for
+     * the next change before trying again.
+     */
+    private static final int MAX_WRITE_RETRIES = 3;
+
+    public static final class Entry {
+        public final long id;
+        public final String operation;
+        public final String traktId;
+        public final String argument;
+
+        /**
+         * True while the change is queued or being sent, so that it is not replayed again.
+         */
+        boolean inFlight;
+
+        Entry(long id, String operation, String traktId, String argument) {
+            this.id = id;
+            this.operation = operation;
+            this.traktId = traktId;
+            this.argument = argument;
+        }
+
+        public boolean isInFlight() {
+            return inFlight;
+        }
+    }
+
+    private final FileManager mFileManager;
+    private final Executor mWriteExecutor;
+    private final Logger mLogger;
+
+    private final LinkedHashMap<Long, Entry> mPending = new LinkedHashMap<>();
+    private final StringBuilder mWriteBuffer = new StringBuilder();
+    private String mOwner;
+    private boolean mOwnerKnown;
+    private boolean mWriteScheduled;
+    private long mNextId = 1;
+    private int mFinishedRecords;
+
+    /**
+     * Set when the file no longer matches what is in memory, so must be rewritten rather than
+     * appended to.
+     */
+    private boolean mRewriteRequired;
+    private int mFailedWrites;
+
+    private final Runnable mWriteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    /**
+     * @param writeExecutor must run one task at a time, in order
+     */
+    public TraktMutationJournal(FileManager fileManager, Executor writeExecutor,
+            Logger logger) {
+        mFileManager = Preconditions.checkNotNull(fileManager, "fileManager cannot be null");
+        mWriteExecutor = Preconditions.checkNotNull(writeExecutor,
+                "writeExecutor cannot be null");
+        mLogger = Preconditions.checkNotNull(logger, "logger cannot be null");
+
+        // Runs before any write, as the executor runs one task at a time
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code runnable} on the write executor once the pending changes have been read from
+     * disk.
+     */
+    public void runWhenLoaded(Runnable runnable) {
+        Preconditions.checkNotNull(runnable, "runnable cannot be null");
+        mWriteExecutor.execute(runnable);
+    }
+
+    /**
+     * Appends a change to the journal. The change is marked as in flight, as it is assumed to be
+     * about to be sent.
+     *
+     * @return the id of the change, to be passed to {@link #remove(long...)} once it has been
+     * sent
+     */
+    public synchronized long append(String operation, String traktId, String argument) {
+        Preconditions.checkArgument(!TextUtils.isEmpty(operation), "operation cannot be empty");
+        Preconditions.checkArgument(!TextUtils.isEmpty(traktId), "traktId cannot be empty");
+
+        final Entry entry = new Entry(mNextId++, operation, traktId, argument);
+        entry.inFlight = true;
+        mPending.put(entry.id, entry);
+
+        appendRecordLocked(entry);
+        scheduleWriteLocked();
+        return entry.id;
+    }
+
+    /**
+     * Removes changes which have been sent to Trakt, or which no longer need to be.
+     */
+    public synchronized void remove(long... ids) {
+        for (long id : ids) {
+            if (mPending.remove(id) != null) {
+                mWriteBuffer.append(RECORD_DONE).append(SEPARATOR).append(id).append('\n');
+                mFinishedRecords++;
+            }
+        }
+        scheduleWriteLocked();
+    }
+
+    /**
+     * Marks changes which could not be sent as no longer in flight, so that they are returned
+     * by {@link #getReplayable()}.
+     */
+    public synchronized void release(long... ids) {
+        for (long id : ids) {
+            final Entry entry = mPending.get(id);
+            if (entry != null) {
+                entry.inFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Marks changes as in flight, as they are about to be sent again.
+     */
+    public synchronized void markInFlight(long... ids) {
+        for (long id : ids) {
+            final Entry entry = mPending.get(id);
+            if (entry != null) {
+                entry.inFlight = true;
+            }
+        }
+    }
+
+    /**
+     * @return every change which has not been confirmed yet, in the order they were made
+     */
+    public synchronized List<Entry> getPending() {
+        return new ArrayList<>(mPending.values());
+    }
+
+    /**
+     * @return the changes which are not in flight, and so need to be sent again, in the order
+     * they were made
+     */
+    public synchronized List<Entry> getReplayable() {
+        final ArrayList<Entry> entries = new ArrayList<>();
+        for (Entry entry : mPending.values()) {
+            if (!entry.inFlight) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Sets the name of the account which the changes are being made by. If it differs from
+     * the account which the pending changes were made by, they are dropped, as they can not be
+     * sent as the new account.
+     */
+    public synchronized void setOwner(String accountName) {
+        if (mOwnerKnown && Objects.equal(mOwner, accountName)) {
+            return;
+        }
+
+        if (mOwnerKnown) {
+            mPending.clear();
+            mWriteBuffer.setLength(0);
+        }
+        // Otherwise the journal has not been read yet, and load() checks its owner
+        mOwner = accountName;
+        mOwnerKnown = true;
+        // Rewrite the journal with just the new owner
+        mRewriteRequired = true;
+        scheduleWriteLocked();
+    }
+
+    private void appendRecordLocked(Entry entry) {
+        mWriteBuffer.append(RECORD_ADD)
+                .append(SEPARATOR).append(entry.id)
+                .append(SEPARATOR).append(entry.operation)
+                .append(SEPARATOR).append(entry.traktId);
+        if (entry.argument != null) {
+            mWriteBuffer.append(SEPARATOR).append(entry.argument);
+        }
+        mWriteBuffer.append('\n');
+    }
+
+    private void scheduleWriteLocked() {
+        if (!mWriteScheduled) {
+            mWriteScheduled = true;
+            mWriteExecutor.execute(mWriteRunnable);
+        }
+    }
+
+    /**
+     * Writes every buffered record with one sync, rewriting the journal instead if it has
+     * built up enough finished records, or no longer matches what is in memory.
+     */
+    private void write() {
+        final String records;
+        final boolean compact;
+
+        synchronized (this) {
+            mWriteScheduled = false;
+            compact = mRewriteRequired || (mFinishedRecords >= COMPACT_THRESHOLD
+                    && mFinishedRecords > mPending.size());
+            if (compact) {
+                mWriteBuffer.setLength(0);
+                if (mOwner != null) {
+                    mWriteBuffer.append(RECORD_OWNER).append(SEPARATOR).append(mOwner).append('\n');
+                }
+                for (Entry entry : mPending.values()) {
+                    appendRecordLocked(entry);
+                }
+                mFinishedRecords = 0;
+                mRewriteRequired = false;
+            }
+            records = mWriteBuffer.toString();
+            mWriteBuffer.setLength(0);
+        }
+
+        if (!compact && records.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (compact) {
+                final File compacted = mFileManager.getFile(FILENAME_COMPACT);
+                writeAndSync(compacted, records, false);
+                if (!compacted.renameTo(mFileManager.getFile(FILENAME))) {
+                    throw new IOException("Could not replace journal");
+                }
+            } else {
+                writeAndSync(mFileManager.getFile(FILENAME), records, true);
+            }
+            synchronized (this) {
+                mFailedWrites = 0;
+            }
+        } catch (IOException e) {
+            onWriteFailed(e);
+        }
+    }
+
+    /**
+     * The records which failed may have been partly written, so the next write rewrites the
+     * whole journal from memory.
+     */
+    private synchronized void onWriteFailed(IOException e) {
+        mFailedWrites++;
+        mLogger.e(LOG_TAG, "Failed to write journal (attempt " + mFailedWrites + "): " + e);
+
+        mRewriteRequired = true;
+        if (mFailedWrites <= MAX_WRITE_RETRIES) {
+            scheduleWriteLocked();
+        }
+    }
+
+    private static void writeAndSync(File file, String records, boolean append)
+            throws IOException {
+        final FileOutputStream stream = new FileOutputStream(file, append);
+        try {
+            final Writer writer = new OutputStreamWriter(stream, UTF_8);
+            writer.write(records);
+            writer.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the pending changes from disk. The journal is kept small by compaction, so this is
+     * cheap.
+     */
+    private void load() {
+        final File file = mFileManager.getFile(FILENAME);
+        final Contents contents = new Contents();
+        boolean readFailed = false;
+
+        if (file.exists()) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(file), UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    contents.readRecord(line);
+                }
+            } catch (IOException e) {
+                // Keep whatever we managed to read, and rewrite the journal with it
+                mLogger.e(LOG_TAG, "Failed to read journal: " + e);
+                readFailed = true;
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        // Ignore
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            mFinishedRecords += contents.finishedRecords;
+            if (readFailed) {
+                mRewriteRequired = true;
+            }
+
+            if (!mOwnerKnown) {
+                mOwner = contents.owner;
+                mOwnerKnown = true;
+            } else if (!Objects.equal(mOwner, contents.owner)) {
+                // The owner changed before we were loaded, so drop the old owner's changes
+                contents.entries.clear();
+                mRewriteRequired = true;
+            }
+
+            if (mPending.isEmpty() && mWriteBuffer.length() == 0) {
+                mPending.putAll(contents.entries);
+                mNextId = Math.max(mNextId, contents.nextId);
+                return;
+            }
+
+            // Changes were made while we were loading, with ids which may clash with the ones
+            // read. Nobody has seen the read changes yet, so they are given new ids, and put
+            // ahead of the newer changes. The journal is then rewritten to match.
+            final List<Entry> newer = new ArrayList<>(mPending.values());
+            mPending.clear();
+            for (Entry entry : contents.entries.values()) {
+                final Entry renumbered = new Entry(mNextId++, entry.operation, entry.traktId,
+                        entry.argument);
+                mPending.put(renumbered.id, renumbered);
+            }
+            for (Entry entry : newer) {
+                mPending.put(entry.id, entry);
+            }
+            mRewriteRequired = true;
+        }
+    }
+
+    /**
+     * The state read from the journal file, before it is merged with any changes made while
+     * it was being read.
+     */
+    private static class Contents {
+        final Map<Long, Entry> entries = new LinkedHashMap<>();
+        String owner;
+        long nextId = 1;
+        int finishedRecords;
+
+        void readRecord(String line) {
+            // The last record may have been cut short by a crash, so skip anything malformed
+            final String[] fields = line.split(SEPARATOR);
+            try {
+                if (RECORD_OWNER.equals(fields[0]) && fields.length >= 2) {
+                    owner = fields[1];
+                } else if (RECORD_ADD.equals(fields[0]) && fields.length >= 4) {
+                    final long id = Long.parseLong(fields[1]);
+                    entries.put(id, new Entry(id, fields[2], fields[3],
+                            fields.length > 4 ? fields[4] : null));
+                    nextId = Math.max(nextId, id + 1);
+                } else if (RECORD_DONE.equals(fields[0]) && fields.length >= 2) {
+                    entries.remove(Long.parseLong(fields[1]));
+                    finishedRecords++;
+                }
+            } catch (NumberFormatException e) {
+                // Ignore
+            }
+        }
+    }
+
+}
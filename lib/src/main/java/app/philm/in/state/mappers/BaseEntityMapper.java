@@ -40,7 +40,5 @@ abstract class BaseEntityMapper<T, R> {
         return movies;
     }
 
-    abstract R getEntity(String id);
-
     abstract void putEntity(R entity);
 }
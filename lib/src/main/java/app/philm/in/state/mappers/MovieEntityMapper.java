@@ -26,24 +26,17 @@ abstract class MovieEntityMapper<T> extends BaseEntityMapper<T, PhilmMovie> {
         super(state);
     }
 
-    @Override
-    PhilmMovie getEntity(String id) {
-        if (mMoviesState.getImdbIdMovies().containsKey(id)) {
-            return mMoviesState.getImdbIdMovies().get(id);
-        } else if (mMoviesState.getTmdbIdMovies().containsKey(id)) {
-            return mMoviesState.getTmdbIdMovies().get(id);
-        }
-        return null;
+    PhilmMovie getEntity(int tmdbId) {
+        return mMoviesState.getMovie(tmdbId);
+    }
+
+    PhilmMovie getEntityByImdbId(String imdbId) {
+        return TextUtils.isEmpty(imdbId) ? null : mMoviesState.getMovieByImdbId(imdbId);
     }
 
     @Override
     void putEntity(PhilmMovie movie) {
-        if (!TextUtils.isEmpty(movie.getImdbId())) {
-            mMoviesState.getImdbIdMovies().put(movie.getImdbId(), movie);
-        }
-        if (movie.getTmdbId() != null) {
-            mMoviesState.getTmdbIdMovies().put(String.valueOf(movie.getTmdbId()), movie);
-        }
+        mMoviesState.putMovie(movie);
     }
 
 }
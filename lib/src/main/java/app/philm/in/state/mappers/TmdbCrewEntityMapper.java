@@ -40,7 +40,7 @@ public class TmdbCrewEntityMapper extends BaseEntityMapper<CrewMember, PhilmPers
 
     @Override
     public PhilmPerson map(CrewMember entity) {
-        PhilmPerson item = getEntity(String.valueOf(entity.id));
+        PhilmPerson item = getEntity(entity.id);
 
         if (item == null) {
             // No item, so create one
@@ -63,13 +63,12 @@ public class TmdbCrewEntityMapper extends BaseEntityMapper<CrewMember, PhilmPers
         return credits;
     }
 
-    @Override
-    PhilmPerson getEntity(String id) {
-        return mMoviesState.getPeople().get(id);
+    PhilmPerson getEntity(Integer id) {
+        return id != null ? mMoviesState.getPerson(id) : null;
     }
 
     @Override
     void putEntity(PhilmPerson entity) {
-        mMoviesState.getPeople().put(String.valueOf(entity.getTmdbId()), entity);
+        mMoviesState.putPerson(entity);
     }
 }
@@ -34,10 +34,10 @@ public class TmdbMovieEntityMapper extends MovieEntityMapper<Movie> {
 
     @Override
     public PhilmMovie map(Movie entity) {
-        PhilmMovie movie = getEntity(String.valueOf(entity.id));
+        PhilmMovie movie = entity.id != null ? getEntity(entity.id) : null;
 
         if (movie == null && entity.imdb_id != null) {
-            movie = getEntity(entity.imdb_id);
+            movie = getEntityByImdbId(entity.imdb_id);
         }
 
         if (movie == null) {
@@ -34,7 +34,7 @@ public class TmdbPersonEntityMapper extends BaseEntityMapper<Person, PhilmPerson
 
     @Override
     public PhilmPerson map(Person entity) {
-        PhilmPerson item = getEntity(String.valueOf(entity.id));
+        PhilmPerson item = getEntity(entity.id);
 
         if (item == null) {
             // No item, so create one
@@ -48,13 +48,12 @@ public class TmdbPersonEntityMapper extends BaseEntityMapper<Person, PhilmPerson
         return item;
     }
 
-    @Override
-    PhilmPerson getEntity(String id) {
-        return mMoviesState.getPeople().get(id);
+    PhilmPerson getEntity(Integer id) {
+        return id != null ? mMoviesState.getPerson(id) : null;
     }
 
     @Override
     void putEntity(PhilmPerson entity) {
-        mMoviesState.getPeople().put(String.valueOf(entity.getTmdbId()), entity);
+        mMoviesState.putPerson(entity);
     }
 }
@@ -34,10 +34,10 @@ public class TraktMovieEntityMapper extends MovieEntityMapper<Movie> {
 
     @Override
     public PhilmMovie map(Movie entity) {
-        PhilmMovie movie = getEntity(entity.imdb_id);
+        PhilmMovie movie = getEntityByImdbId(entity.imdb_id);
 
         if (movie == null && entity.tmdbId != 0) {
-            movie = getEntity(String.valueOf(entity.tmdbId));
+            movie = getEntity(entity.tmdbId);
         }
 
         if (movie == null) {
@@ -38,4 +38,9 @@ public class AddToTraktCollectionRunnable extends BaseTraktActionRunnable {
     protected void movieRequiresModifying(PhilmMovie movie) {
         movie.setInCollection(true);
     }
+
+    @Override
+    protected void movieRequiresReverting(PhilmMovie movie) {
+        movie.setInCollection(false);
+    }
 }
\ No newline at end of file
@@ -38,4 +38,9 @@ public class AddToTraktWatchlistRunnable extends BaseTraktActionRunnable {
     protected void movieRequiresModifying(PhilmMovie movie) {
         movie.setInWatched(true);
     }
+
+    @Override
+    protected void movieRequiresReverting(PhilmMovie movie) {
+        movie.setInWatched(false);
+    }
 }
\ No newline at end of file
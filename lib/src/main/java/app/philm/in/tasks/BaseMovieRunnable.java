@@ -20,24 +20,23 @@ import com.jakewharton.trakt.Trakt;
 import com.squareup.otto.Bus;
 import com.uwetrottmann.tmdb.Tmdb;
 
-import java.util.Collections;
-import java.util.List;
-
 import javax.inject.Inject;
 
 import app.philm.in.model.PhilmMovie;
+import app.philm.in.network.HttpValidators;
 import app.philm.in.network.NetworkCallRunnable;
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.AsyncDatabaseHelper;
 import app.philm.in.state.BaseState;
+import app.philm.in.state.MovieLists;
 import app.philm.in.state.MoviesState;
+import app.philm.in.state.TraktMutationJournal;
 import app.philm.in.state.mappers.TmdbCastEntityMapper;
 import app.philm.in.state.mappers.TmdbCrewEntityMapper;
 import app.philm.in.state.mappers.TmdbMovieEntityMapper;
 import app.philm.in.state.mappers.TmdbPersonEntityMapper;
 import app.philm.in.state.mappers.TraktMovieEntityMapper;
 import app.philm.in.util.CountryProvider;
-import app.philm.in.util.PhilmCollections;
 import dagger.Lazy;
 import retrofit.RetrofitError;
 
@@ -58,8 +57,12 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
     @Inject Lazy<TmdbPersonEntityMapper> mLazyTmdbPersonEntityMapper;
     @Inject Lazy<Bus> mEventBus;
     @Inject Lazy<CountryProvider> mCountryProvider;
+    @Inject Lazy<TraktMutationJournal> mJournal;
+    @Inject Lazy<HttpValidators> mHttpValidators;
 
     private final int mCallingId;
+    private long[] mJournalIds;
+    private HttpValidators.Validators mReceivedValidators;
 
     public BaseMovieRunnable(int callingId) {
         mCallingId = callingId;
@@ -72,45 +75,111 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
 
     @Override
     public void onError(RetrofitError re) {
+        if (HttpValidators.isNotModified(re)) {
+            // A conditional call found that the data we hold is still current
+            return;
+        }
         getEventBus().post(new BaseState.OnErrorEvent(getCallingId(),
                 NetworkError.from(re, getSource())));
     }
 
-    protected abstract int getSource();
+    /**
+     * The error has already been posted for our calling id, so there is nothing more to tell it.
+     */
+    @Override
+    public void onSharedError(RetrofitError re) {
+    }
 
     @Override
     public void onFinished() {
         getEventBus().post(createLoadingProgressEvent(false));
     }
 
-    protected void checkPhilmState(PhilmMovie movie) {
-        final List<PhilmMovie> library = mMoviesState.getLibrary();
-        final List<PhilmMovie> watchlist = mMoviesState.getWatchlist();
-
-        if (!PhilmCollections.isEmpty(library)) {
-            final boolean shouldBeInLibrary = movie.isWatched() || movie.inCollection();
-
-            if (shouldBeInLibrary != library.contains(movie)) {
-                if (shouldBeInLibrary) {
-                    library.add(movie);
-                    Collections.sort(library, PhilmMovie.COMPARATOR_SORT_TITLE);
-                } else {
-                    library.remove(movie);
-                }
-            }
+    /**
+     * Sets the ids of the {@link TraktMutationJournal} entries which this call sends.
+     */
+    public void setJournalIds(long... ids) {
+        mJournalIds = ids;
+    }
+
+    /**
+     * Removes this call's changes from the journal, as Trakt has responded to them.
+     */
+    protected void onJournaledCallCompleted() {
+        if (mJournalIds != null) {
+            mJournal.get().remove(mJournalIds);
         }
+    }
 
-        if (!PhilmCollections.isEmpty(watchlist)) {
-            final boolean shouldBeInWatchlist = movie.inWatchlist();
-            if (shouldBeInWatchlist != watchlist.contains(movie)) {
-                if (shouldBeInWatchlist) {
-                    watchlist.add(movie);
-                    Collections.sort(watchlist, PhilmMovie.COMPARATOR_SORT_TITLE);
-                } else {
-                    watchlist.remove(movie);
-                }
-            }
+    /**
+     * If this call's changes are in the journal, and the call failed because the device is
+     * offline, leaves them there to be replayed later. Otherwise they are removed.
+     *
+     * @return true if the changes will be replayed later
+     */
+    protected boolean onJournaledCallFailed(RetrofitError re) {
+        if (mJournalIds == null) {
+            return false;
         }
+        if (re != null && re.isNetworkError()) {
+            mJournal.get().release(mJournalIds);
+            return true;
+        }
+        mJournal.get().remove(mJournalIds);
+        return false;
+    }
+
+    /**
+     * Makes the request made on this thread until {@link #endConditionalCall()} conditional on
+     * the data having changed since the last call with this call's request key, if
+     * {@code haveResult} is true. If it has not changed, the call fails with a 304 response and
+     * {@link #onError(RetrofitError)} does nothing.
+     */
+    protected void beginConditionalCall(boolean haveResult) {
+        mHttpValidators.get().begin(getRequestKey(), haveResult);
+    }
+
+    protected void endConditionalCall() {
+        mReceivedValidators = mHttpValidators.get().end();
+    }
+
+    /**
+     * Stores the validators of this call's response, once its result has been stored in the
+     * state.
+     */
+    protected void storeValidators() {
+        mHttpValidators.get().put(getRequestKey(), mReceivedValidators);
+    }
+
+    /**
+     * Journaled changes can be retried, as they are only removed from the journal once Trakt
+     * has responded.
+     */
+    @Override
+    public boolean isRetryable() {
+        return mJournalIds != null || super.isRetryable();
+    }
+
+    /**
+     * Journaled changes must always be sent, so are never dropped.
+     */
+    @Override
+    public boolean isDroppable() {
+        return mJournalIds == null && super.isDroppable();
+    }
+
+    /**
+     * A cancelled change may not have been sent, so it is released to be replayed later.
+     */
+    @Override
+    public void onCancelled() {
+        if (mJournalIds != null) {
+            mJournal.get().release(mJournalIds);
+        }
+    }
+
+    protected void checkPhilmState(PhilmMovie movie) {
+        MovieLists.updateMembership(mMoviesState, movie);
     }
 
     protected Tmdb getTmdbClient() {
@@ -153,7 +222,8 @@ public abstract class BaseMovieRunnable<R> extends NetworkCallRunnable<R> {
         return mCountryProvider.get();
     }
 
-    protected int getCallingId() {
+    @Override
+    public int getCallingId() {
         return mCallingId;
     }
 
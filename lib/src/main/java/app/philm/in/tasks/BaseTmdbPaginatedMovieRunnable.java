@@ -32,9 +32,8 @@ abstract class BaseTmdbPaginatedMovieRunnable extends BaseTmdbPaginatedRunnable<
     protected void updatePaginatedResult(
             MoviesState.MoviePaginatedResult result,
             MovieResultsPage tmdbResult) {
-        result.items.addAll(getTmdbMovieEntityMapper().mapAll(tmdbResult.results));
+        result.putPage(tmdbResult.page, getTmdbMovieEntityMapper().mapAll(tmdbResult.results));
 
-        result.page = tmdbResult.page;
         if (tmdbResult.total_pages != null) {
             result.totalPages = tmdbResult.total_pages;
         }
@@ -32,9 +32,8 @@ abstract class BaseTmdbPaginatedPersonRunnable extends BaseTmdbPaginatedRunnable
     protected void updatePaginatedResult(
             MoviesState.PersonPaginatedResult result,
             PersonResultsPage tmdbResult) {
-        result.items.addAll(getTmdbPersonEntityMapper().mapAll(tmdbResult.results));
+        result.putPage(tmdbResult.page, getTmdbPersonEntityMapper().mapAll(tmdbResult.results));
 
-        result.page = tmdbResult.page;
         if (tmdbResult.total_pages != null) {
             result.totalPages = tmdbResult.total_pages;
         }
@@ -16,8 +16,6 @@
 
 package app.philm.in.tasks;
 
-import java.util.ArrayList;
-
 import app.philm.in.network.NetworkError;
 import app.philm.in.state.BaseState;
 
@@ -38,16 +36,30 @@ abstract class BaseTmdbPaginatedRunnable<R extends BaseState.PaginatedResult<PE>
 
             if (paginatedResult == null) {
                 paginatedResult = createPaginatedResult();
-                paginatedResult.items = new ArrayList<>();
             }
 
             updatePaginatedResult(paginatedResult, result);
             updateState(paginatedResult);
+            storeValidators();
         }
     }
 
+    /**
+     * @return true if this call's page is held in the state, so that fetching it again can be
+     * made conditional on it having changed
+     */
+    protected boolean hasPageInState() {
+        final R result = getResultFromState();
+        return result != null && result.hasPage(mPage);
+    }
+
     @Override
-    protected int getSource() {
+    public final void onSharedSuccess(TR result) {
+        // The page has already been added to the state
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -55,6 +67,12 @@ abstract class BaseTmdbPaginatedRunnable<R extends BaseState.PaginatedResult<PE>
         return mPage;
     }
 
+    @Override
+    public int getPriority() {
+        // The first page is what the user is waiting to see, later pages are fetched ahead
+        return mPage > 1 ? PRIORITY_PREFETCH : PRIORITY_INTERACTIVE;
+    }
+
     protected abstract void updatePaginatedResult(R result, TR tmdbResult);
 
     protected abstract R getResultFromState();
@@ -59,8 +59,12 @@ abstract class BaseTraktActionRunnable extends BaseMovieRunnable<Response> {
 
     @Override
     public final void onSuccess(Response result) {
+        onJournaledCallCompleted();
+
         if (result instanceof ActionResponse) {
-            onActionCompleted(((ActionResponse) result).skipped < mIds.length);
+            // Any skipped movies were already in the requested state on Trakt, so the change
+            // which has been shown locally is still correct
+            onActionCompleted(true);
         } else {
             onActionCompleted(RESULT_TRAKT_SUCCESS.equals(result.status));
         }
@@ -68,8 +72,24 @@ abstract class BaseTraktActionRunnable extends BaseMovieRunnable<Response> {
 
     protected abstract void movieRequiresModifying(PhilmMovie movie);
 
+    /**
+     * Undo {@link #movieRequiresModifying(PhilmMovie)}. Called if the action fails, as the change
+     * will have already been shown optimistically.
+     */
+    protected abstract void movieRequiresReverting(PhilmMovie movie);
+
+    @Override
+    public void onError(RetrofitError re) {
+        if (onJournaledCallFailed(re)) {
+            // Keep showing the change, it will be sent again once we're back online
+            return;
+        }
+        revertMovies();
+        super.onError(re);
+    }
+
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 
@@ -84,7 +104,23 @@ abstract class BaseTraktActionRunnable extends BaseMovieRunnable<Response> {
             }
 
             getEventBus().post(new MoviesState.MovieFlagsUpdatedEvent(getCallingId(), result));
+        } else {
+            revertMovies();
+        }
+    }
+
+    private void revertMovies() {
+        ArrayList<PhilmMovie> result = new ArrayList<>(mIds.length);
+        for (int i = 0; i < mIds.length; i++) {
+            PhilmMovie movie = mMoviesState.getMovie(mIds[i]);
+            if (movie != null) {
+                movieRequiresReverting(movie);
+                checkPhilmState(movie);
+                result.add(movie);
+            }
         }
+
+        getEventBus().post(new MoviesState.MovieFlagsUpdatedEvent(getCallingId(), result));
     }
 
     private PhilmMovie onSuccessfulAction(final String movieId) {
@@ -42,7 +42,7 @@ public class CancelCheckinTraktRunnable extends BaseMovieRunnable<Response> {
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 }
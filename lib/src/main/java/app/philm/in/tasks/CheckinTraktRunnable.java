@@ -85,7 +85,7 @@ public class CheckinTraktRunnable extends BaseMovieRunnable<CheckinResponse> {
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 }
@@ -31,6 +31,7 @@ import javax.inject.Inject;
 import app.philm.in.Constants;
 import app.philm.in.model.TmdbConfiguration;
 import app.philm.in.network.NetworkCallRunnable;
+import app.philm.in.network.NetworkError;
 import app.philm.in.state.MoviesState;
 import app.philm.in.util.FileManager;
 import app.philm.in.util.ImageHelper;
@@ -94,6 +95,11 @@ public class FetchTmdbConfigurationRunnable extends NetworkCallRunnable<TmdbConf
         // Ignore
     }
 
+    @Override
+    public int getSource() {
+        return NetworkError.SOURCE_TMDB;
+    }
+
     private TmdbConfiguration getConfigFromFile() {
         File file = mFileManager.getFile(FILENAME_TMDB_CONFIG);
         if (file.exists()) {
@@ -142,4 +148,9 @@ public class FetchTmdbConfigurationRunnable extends NetworkCallRunnable<TmdbConf
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/configuration";
+    }
+}
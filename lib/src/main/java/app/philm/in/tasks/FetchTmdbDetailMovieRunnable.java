@@ -81,6 +81,15 @@ public class FetchTmdbDetailMovieRunnable extends BaseMovieRunnable<Movie> {
         getEventBus().post(new MoviesState.MovieInformationUpdatedEvent(getCallingId(), movie));
     }
 
+    @Override
+    public void onSharedSuccess(Movie result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(new MoviesState.MovieInformationUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
     @Override
     public void onError(RetrofitError re) {
         if (re.getResponse() != null && re.getResponse().getStatus() == 404) {
@@ -95,7 +104,12 @@ public class FetchTmdbDetailMovieRunnable extends BaseMovieRunnable<Movie> {
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/" + mId;
+    }
+}
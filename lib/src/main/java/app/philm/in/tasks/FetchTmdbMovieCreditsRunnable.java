@@ -73,6 +73,15 @@ public class FetchTmdbMovieCreditsRunnable extends BaseMovieRunnable<Credits> {
         }
     }
 
+    @Override
+    public void onSharedSuccess(Credits result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(new MoviesState.MovieCastItemsUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
     @Override
     public void onError(RetrofitError re) {
         super.onError(re);
@@ -84,7 +93,7 @@ public class FetchTmdbMovieCreditsRunnable extends BaseMovieRunnable<Credits> {
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -92,4 +101,9 @@ public class FetchTmdbMovieCreditsRunnable extends BaseMovieRunnable<Credits> {
     protected Object createLoadingProgressEvent(boolean show) {
         return new BaseState.ShowCreditLoadingProgressEvent(getCallingId(), show);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/" + mId + "/credits";
+    }
+}
@@ -61,8 +61,21 @@ public class FetchTmdbMovieImagesRunnable extends BaseMovieRunnable<Images> {
     }
 
     @Override
-    protected int getSource() {
+    public void onSharedSuccess(Images result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(new MoviesState.MovieImagesUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
-}
\ No newline at end of file
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/" + mId + "/images";
+    }
+}
@@ -50,6 +50,15 @@ public class FetchTmdbMovieTrailersRunnable extends BaseMovieRunnable<Videos> {
         }
     }
 
+    @Override
+    public void onSharedSuccess(Videos result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(new MoviesState.MovieVideosItemsUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
     @Override
     public void onError(RetrofitError re) {
         super.onError(re);
@@ -61,7 +70,7 @@ public class FetchTmdbMovieTrailersRunnable extends BaseMovieRunnable<Videos> {
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -69,4 +78,9 @@ public class FetchTmdbMovieTrailersRunnable extends BaseMovieRunnable<Videos> {
     protected Object createLoadingProgressEvent(boolean show) {
         return new BaseState.ShowVideosLoadingProgressEvent(getCallingId(), show);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/" + mId + "/videos";
+    }
+}
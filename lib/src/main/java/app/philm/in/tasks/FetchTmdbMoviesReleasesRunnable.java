@@ -42,7 +42,7 @@ public class FetchTmdbMoviesReleasesRunnable extends BaseMovieRunnable<Releases>
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -59,4 +59,18 @@ public class FetchTmdbMoviesReleasesRunnable extends BaseMovieRunnable<Releases>
             getEventBus().post(new MoviesState.MovieReleasesUpdatedEvent(getCallingId(), movie));
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void onSharedSuccess(Releases result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(new MoviesState.MovieReleasesUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/" + mId + "/releases";
+    }
+}
@@ -29,9 +29,14 @@ public class FetchTmdbNowPlayingRunnable extends BaseTmdbPaginatedMovieRunnable
 
     @Override
     public MovieResultsPage doBackgroundCall() throws RetrofitError {
-        return getTmdbClient().moviesService().nowPlaying(
-                getPage(),
-                getCountryProvider().getTwoLetterLanguageCode());
+        beginConditionalCall(hasPageInState());
+        try {
+            return getTmdbClient().moviesService().nowPlaying(
+                    getPage(),
+                    getCountryProvider().getTwoLetterLanguageCode());
+        } finally {
+            endConditionalCall();
+        }
     }
 
     @Override
@@ -43,4 +48,9 @@ public class FetchTmdbNowPlayingRunnable extends BaseTmdbPaginatedMovieRunnable
     protected void updateState(MoviesState.MoviePaginatedResult result) {
         mMoviesState.setNowPlaying(result);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/now_playing/" + getPage();
+    }
+}
@@ -74,6 +74,15 @@ public class FetchTmdbPersonCreditsRunnable extends BaseMovieRunnable<PersonCred
         }
     }
 
+    @Override
+    public void onSharedSuccess(PersonCredits result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmPerson person = mMoviesState.getPerson(mId);
+        if (person != null) {
+            getEventBus().post(new MoviesState.PersonChangedEvent(getCallingId(), person));
+        }
+    }
+
     @Override
     public void onError(RetrofitError re) {
         super.onError(re);
@@ -85,7 +94,7 @@ public class FetchTmdbPersonCreditsRunnable extends BaseMovieRunnable<PersonCred
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -94,4 +103,9 @@ public class FetchTmdbPersonCreditsRunnable extends BaseMovieRunnable<PersonCred
 //    protected Object createLoadingProgressEvent(boolean show) {
 //        return new BaseState.ShowCreditLoadingProgressEvent(getCallingId(), show);
 //    }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/person/" + mId + "/credits";
+    }
+}
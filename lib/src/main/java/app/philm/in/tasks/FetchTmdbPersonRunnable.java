@@ -80,6 +80,15 @@ public class FetchTmdbPersonRunnable extends BaseMovieRunnable<Person> {
         }
     }
 
+    @Override
+    public void onSharedSuccess(Person result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmPerson person = mMoviesState.getPerson(mId);
+        if (person != null) {
+            getEventBus().post(new MoviesState.PersonChangedEvent(getCallingId(), person));
+        }
+    }
+
     @Override
     public void onError(RetrofitError re) {
         super.onError(re);
@@ -91,7 +100,7 @@ public class FetchTmdbPersonRunnable extends BaseMovieRunnable<Person> {
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -100,4 +109,9 @@ public class FetchTmdbPersonRunnable extends BaseMovieRunnable<Person> {
 //    protected Object createLoadingProgressEvent(boolean show) {
 //        return new BaseState.ShowCreditLoadingProgressEvent(getCallingId(), show);
 //    }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/person/" + mId;
+    }
+}
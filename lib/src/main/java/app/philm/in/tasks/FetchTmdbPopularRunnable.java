@@ -29,9 +29,14 @@ public class FetchTmdbPopularRunnable extends BaseTmdbPaginatedMovieRunnable {
 
     @Override
     public MovieResultsPage doBackgroundCall() throws RetrofitError {
-        return getTmdbClient().moviesService().popular(
-                getPage(),
-                getCountryProvider().getTwoLetterLanguageCode());
+        beginConditionalCall(hasPageInState());
+        try {
+            return getTmdbClient().moviesService().popular(
+                    getPage(),
+                    getCountryProvider().getTwoLetterLanguageCode());
+        } finally {
+            endConditionalCall();
+        }
     }
 
     @Override
@@ -43,4 +48,9 @@ public class FetchTmdbPopularRunnable extends BaseTmdbPaginatedMovieRunnable {
     protected void updateState(MoviesState.MoviePaginatedResult result) {
         mMoviesState.setPopular(result);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/popular/" + getPage();
+    }
+}
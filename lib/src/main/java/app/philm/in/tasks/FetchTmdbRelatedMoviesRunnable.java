@@ -42,7 +42,7 @@ public class FetchTmdbRelatedMoviesRunnable extends BaseMovieRunnable<MovieResul
 
     @Override
     public void onSuccess(MovieResultsPage result) {
-        PhilmMovie movie = mMoviesState.getMovie(String.valueOf(mId));
+        PhilmMovie movie = mMoviesState.getMovie(mId);
 
         if (movie != null) {
             movie.setRelated(getTmdbMovieEntityMapper().mapAll(result.results));
@@ -52,11 +52,21 @@ public class FetchTmdbRelatedMoviesRunnable extends BaseMovieRunnable<MovieResul
         }
     }
 
+    @Override
+    public void onSharedSuccess(MovieResultsPage result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(
+                    new MoviesState.MovieRelatedItemsUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
     @Override
     public void onError(RetrofitError re) {
         super.onError(re);
 
-        PhilmMovie movie = mMoviesState.getMovie(String.valueOf(mId));
+        PhilmMovie movie = mMoviesState.getMovie(mId);
         if (movie != null) {
             getEventBus().post(new MoviesState.MovieRelatedItemsUpdatedEvent(
                     getCallingId(), movie));
@@ -64,7 +74,7 @@ public class FetchTmdbRelatedMoviesRunnable extends BaseMovieRunnable<MovieResul
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TMDB;
     }
 
@@ -72,4 +82,9 @@ public class FetchTmdbRelatedMoviesRunnable extends BaseMovieRunnable<MovieResul
     protected Object createLoadingProgressEvent(boolean show) {
         return new BaseState.ShowRelatedLoadingProgressEvent(getCallingId(), show);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/" + mId + "/similar";
+    }
+}
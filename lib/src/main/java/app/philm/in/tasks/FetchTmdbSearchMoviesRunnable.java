@@ -47,13 +47,21 @@ public class FetchTmdbSearchMoviesRunnable extends BaseTmdbPaginatedMovieRunnabl
     @Override
     protected MoviesState.MoviePaginatedResult getResultFromState() {
         MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-        return searchResult != null ? searchResult.movies : null;
+        if (searchResult != null && !searchResult.local
+                && Objects.equal(mQuery, searchResult.query)) {
+            return searchResult.movies;
+        }
+        return null;
     }
 
     @Override
     protected void updateState(MoviesState.MoviePaginatedResult result) {
         MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
         if (searchResult != null && Objects.equal(mQuery, searchResult.query)) {
+            if (searchResult.local) {
+                // Replace the locally filtered results with the real ones
+                searchResult = new MoviesState.SearchResult(mQuery);
+            }
             searchResult.movies = result;
             mMoviesState.setSearchResult(searchResult);
         }
@@ -63,4 +71,9 @@ public class FetchTmdbSearchMoviesRunnable extends BaseTmdbPaginatedMovieRunnabl
     protected MoviesState.MoviePaginatedResult createPaginatedResult() {
         return new MoviesState.MoviePaginatedResult();
     }
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/search/movie/" + getPage() + "/" + mQuery;
+    }
 }
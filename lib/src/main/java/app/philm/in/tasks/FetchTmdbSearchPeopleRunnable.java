@@ -40,13 +40,21 @@ public class FetchTmdbSearchPeopleRunnable extends BaseTmdbPaginatedPersonRunnab
     @Override
     protected MoviesState.PersonPaginatedResult getResultFromState() {
         MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
-        return searchResult != null ? searchResult.people : null;
+        if (searchResult != null && !searchResult.local
+                && Objects.equal(mQuery, searchResult.query)) {
+            return searchResult.people;
+        }
+        return null;
     }
 
     @Override
     protected void updateState(MoviesState.PersonPaginatedResult result) {
         MoviesState.SearchResult searchResult = mMoviesState.getSearchResult();
         if (searchResult != null && Objects.equal(mQuery, searchResult.query)) {
+            if (searchResult.local) {
+                // Replace the locally filtered results with the real ones
+                searchResult = new MoviesState.SearchResult(mQuery);
+            }
             searchResult.people = result;
             mMoviesState.setSearchResult(searchResult);
         }
@@ -56,4 +64,9 @@ public class FetchTmdbSearchPeopleRunnable extends BaseTmdbPaginatedPersonRunnab
     protected MoviesState.PersonPaginatedResult createPaginatedResult() {
         return new MoviesState.PersonPaginatedResult();
     }
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/search/person/" + getPage() + "/" + mQuery;
+    }
 }
@@ -29,8 +29,13 @@ public class FetchTmdbUpcomingRunnable extends BaseTmdbPaginatedMovieRunnable {
 
     @Override
     public MovieResultsPage doBackgroundCall() throws RetrofitError {
-        return getTmdbClient().moviesService().upcoming(getPage(),
-                getCountryProvider().getTwoLetterLanguageCode());
+        beginConditionalCall(hasPageInState());
+        try {
+            return getTmdbClient().moviesService().upcoming(getPage(),
+                    getCountryProvider().getTwoLetterLanguageCode());
+        } finally {
+            endConditionalCall();
+        }
     }
 
     @Override
@@ -42,4 +47,9 @@ public class FetchTmdbUpcomingRunnable extends BaseTmdbPaginatedMovieRunnable {
     protected void updateState(MoviesState.MoviePaginatedResult result) {
         mMoviesState.setUpcoming(result);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "tmdb/movie/upcoming/" + getPage();
+    }
+}
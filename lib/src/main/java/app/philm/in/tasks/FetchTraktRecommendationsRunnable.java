@@ -51,7 +51,17 @@ public class FetchTraktRecommendationsRunnable extends BaseMovieRunnable<List<Mo
     }
 
     @Override
-    protected int getSource() {
+    public void onSharedSuccess(List<Movie> result) {
+        // The state has already been updated with this result
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "trakt/recommendations/movies";
+    }
+}
@@ -49,7 +49,22 @@ public class FetchTraktRelatedMoviesRunnable extends BaseMovieRunnable<List<Movi
     }
 
     @Override
-    protected int getSource() {
+    public void onSharedSuccess(List<Movie> result) {
+        // The state has already been updated with this result, so just tell our caller
+        PhilmMovie movie = mMoviesState.getMovie(mId);
+        if (movie != null) {
+            getEventBus().post(
+                    new MoviesState.MovieRelatedItemsUpdatedEvent(getCallingId(), movie));
+        }
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getRequestKey() {
+        return "trakt/movie/" + mId + "/related";
+    }
+}
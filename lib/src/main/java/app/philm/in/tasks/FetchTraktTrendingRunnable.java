@@ -32,7 +32,12 @@ public class FetchTraktTrendingRunnable extends BaseMovieRunnable<List<Movie>> {
 
     @Override
     public List<Movie> doBackgroundCall() throws RetrofitError {
-        return getTraktClient().moviesService().trending();
+        beginConditionalCall(!PhilmCollections.isEmpty(mMoviesState.getTrending()));
+        try {
+            return getTraktClient().moviesService().trending();
+        } finally {
+            endConditionalCall();
+        }
     }
 
     @Override
@@ -42,11 +47,21 @@ public class FetchTraktTrendingRunnable extends BaseMovieRunnable<List<Movie>> {
         } else {
             mMoviesState.setTrending(null);
         }
+        storeValidators();
+    }
+
+    @Override
+    public void onSharedSuccess(List<Movie> result) {
+        // The state has already been updated with this result
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 
-}
\ No newline at end of file
+    @Override
+    public String getRequestKey() {
+        return "trakt/movies/trending";
+    }
+}
@@ -55,7 +55,17 @@ public class FetchTraktWatchingRunnable extends BaseMovieRunnable<WatchingBase>
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
+
+    @Override
+    public int getPriority() {
+        return PRIORITY_SYNC;
+    }
+
+    @Override
+    public String getRequestKey() {
+        return "trakt/user/" + mUsername + "/watching";
+    }
 }
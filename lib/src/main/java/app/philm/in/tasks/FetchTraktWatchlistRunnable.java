@@ -22,14 +22,20 @@ import com.jakewharton.trakt.entities.Movie;
 
 import java.util.List;
 
+import javax.inject.Inject;
+
 import app.philm.in.model.PhilmMovie;
 import app.philm.in.network.NetworkError;
 import app.philm.in.util.PhilmCollections;
+import app.philm.in.util.PhilmPreferences;
 import retrofit.RetrofitError;
 
 public class FetchTraktWatchlistRunnable extends BaseMovieRunnable<List<Movie>> {
 
+    @Inject PhilmPreferences mPreferences;
+
     private final String mUsername;
+    private long mRequestTime;
 
     public FetchTraktWatchlistRunnable(int callingId, String username) {
         super(callingId);
@@ -38,7 +44,13 @@ public class FetchTraktWatchlistRunnable extends BaseMovieRunnable<List<Movie>>
 
     @Override
     public List<Movie> doBackgroundCall() throws RetrofitError {
-        return getTraktClient().userService().watchlistMovies(mUsername);
+        mRequestTime = SyncTraktActivityRunnable.getSyncCursorForNow();
+        beginConditionalCall(!PhilmCollections.isEmpty(mMoviesState.getWatchlist()));
+        try {
+            return getTraktClient().userService().watchlistMovies(mUsername);
+        } finally {
+            endConditionalCall();
+        }
     }
 
     @Override
@@ -50,10 +62,28 @@ public class FetchTraktWatchlistRunnable extends BaseMovieRunnable<List<Movie>>
         } else {
             mMoviesState.setWatchlist(null);
         }
+        storeValidators();
+        // Later changes can be fetched from the user's activity
+        mPreferences.setWatchlistSyncCursor(mUsername, mRequestTime);
+    }
+
+    @Override
+    public void onSharedSuccess(List<Movie> result) {
+        // The state has already been updated with this result
     }
 
     @Override
-    protected int getSource() {
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getPriority() {
+        return PRIORITY_SYNC;
+    }
+
+    @Override
+    public String getRequestKey() {
+        return "trakt/user/" + mUsername + "/watchlist";
+    }
+}
@@ -41,7 +41,12 @@ public class MarkTraktMovieUnseenRunnable extends BaseTraktActionRunnable {
     }
 
     @Override
-    protected int getSource() {
+    protected void movieRequiresReverting(PhilmMovie movie) {
+        movie.setWatched(true);
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 }
\ No newline at end of file
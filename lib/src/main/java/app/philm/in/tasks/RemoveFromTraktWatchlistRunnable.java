@@ -41,7 +41,12 @@ public class RemoveFromTraktWatchlistRunnable extends BaseTraktActionRunnable {
     }
 
     @Override
-    protected int getSource() {
+    protected void movieRequiresReverting(PhilmMovie movie) {
+        movie.setInWatched(true);
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 }
\ No newline at end of file
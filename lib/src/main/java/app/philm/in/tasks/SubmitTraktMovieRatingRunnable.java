@@ -45,6 +45,8 @@ public class SubmitTraktMovieRatingRunnable extends BaseMovieRunnable<RatingResp
 
     @Override
     public void onSuccess(RatingResponse result) {
+        onJournaledCallCompleted();
+
         if (RESULT_TRAKT_SUCCESS.equals(result.status)) {
             PhilmMovie movie = mMoviesState.getMovie(mId);
             if (movie != null) {
@@ -61,7 +63,16 @@ public class SubmitTraktMovieRatingRunnable extends BaseMovieRunnable<RatingResp
     }
 
     @Override
-    protected int getSource() {
+    public void onError(RetrofitError re) {
+        if (onJournaledCallFailed(re)) {
+            // The rating is still shown, and will be sent again once we're back online
+            return;
+        }
+        super.onError(re);
+    }
+
+    @Override
+    public int getSource() {
         return NetworkError.SOURCE_TRAKT;
     }
 }
\ No newline at end of file
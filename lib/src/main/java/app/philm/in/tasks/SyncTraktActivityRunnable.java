@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.tasks;
+
+import com.google.common.base.Preconditions;
+
+import com.jakewharton.trakt.entities.Activity;
+import com.jakewharton.trakt.entities.ActivityItem;
+import com.jakewharton.trakt.entities.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import app.philm.in.Constants;
+import app.philm.in.model.PhilmMovie;
+import app.philm.in.network.NetworkError;
+import app.philm.in.state.MoviesState;
+import app.philm.in.util.PhilmPreferences;
+import retrofit.RetrofitError;
+
+/**
+ * Fetches the user's movie activity on Trakt since a sync cursor, and applies it to the library
+ * and watchlist, rather than fetching both in full. Activity items include the movie's current
+ * flags, so a movie which has since been removed from a list is removed here too.
+ */
+public class SyncTraktActivityRunnable extends BaseMovieRunnable<Activity> {
+
+    private static final String ACTIVITY_TYPES = "movie";
+    private static final String ACTIVITY_ACTIONS = "seen,scrobble,collection,watchlist";
+
+    @Inject PhilmPreferences mPreferences;
+
+    private final String mUsername;
+    private final long mSince;
+    private final boolean mSyncLibrary;
+    private final boolean mSyncWatchlist;
+    private long mRequestTime;
+
+    /**
+     * @param since the sync cursor to fetch activity after, in seconds
+     * @param syncLibrary true if the library's sync cursor should be moved on afterwards
+     * @param syncWatchlist true if the watchlist's sync cursor should be moved on afterwards
+     */
+    public SyncTraktActivityRunnable(int callingId, String username, long since,
+            boolean syncLibrary, boolean syncWatchlist) {
+        super(callingId);
+        mUsername = Preconditions.checkNotNull(username, "username cannot be null");
+        Preconditions.checkArgument(since > 0, "since must be > 0");
+        mSince = since;
+        mSyncLibrary = syncLibrary;
+        mSyncWatchlist = syncWatchlist;
+    }
+
+    @Override
+    public Activity doBackgroundCall() throws RetrofitError {
+        mRequestTime = getSyncCursorForNow();
+        return getTraktClient().activityService().user(mUsername, ACTIVITY_TYPES,
+                ACTIVITY_ACTIONS, mSince, null, null);
+    }
+
+    @Override
+    public void onSuccess(Activity result) {
+        final List<PhilmMovie> changed = new ArrayList<>();
+
+        if (result.activity != null) {
+            for (ActivityItem item : result.activity) {
+                if (item.movie == null || item.action == null) {
+                    continue;
+                }
+
+                final PhilmMovie movie = getTraktMovieEntityMapper().map(item.movie);
+                applyAction(item, movie);
+                checkPhilmState(movie);
+
+                if (!changed.contains(movie)) {
+                    changed.add(movie);
+                }
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            getDbHelper().put(changed);
+            getEventBus().post(new MoviesState.MovieFlagsUpdatedEvent(getCallingId(), changed));
+        }
+
+        long cursor = mRequestTime;
+        if (result.timestamps != null && result.timestamps.current != null) {
+            cursor = result.timestamps.current.getTime() / 1000;
+        }
+        if (mSyncLibrary) {
+            mPreferences.setLibrarySyncCursor(mUsername, cursor);
+        }
+        if (mSyncWatchlist) {
+            mPreferences.setWatchlistSyncCursor(mUsername, cursor);
+        }
+    }
+
+    @Override
+    public void onSharedSuccess(Activity result) {
+        // The state has already been updated with this result
+    }
+
+    @Override
+    public int getSource() {
+        return NetworkError.SOURCE_TRAKT;
+    }
+
+    @Override
+    public int getPriority() {
+        return PRIORITY_SYNC;
+    }
+
+    @Override
+    public String getRequestKey() {
+        return "trakt/user/" + mUsername + "/activity/" + mSince;
+    }
+
+    /**
+     * Sets the flag which {@code item} changed, if the movie did not come with its flags.
+     */
+    private static void applyAction(ActivityItem item, PhilmMovie movie) {
+        final Movie entity = item.movie;
+        switch (item.action) {
+            case Seen:
+            case Scrobble:
+                if (entity.watched == null) {
+                    movie.setWatched(true);
+                }
+                break;
+            case Collection:
+                if (entity.inCollection == null) {
+                    movie.setInCollection(true);
+                }
+                break;
+            case Watchlist:
+                if (entity.inWatchlist == null) {
+                    movie.setInWatched(true);
+                }
+                break;
+        }
+    }
+
+    /**
+     * @return a sync cursor for the current time, in seconds. It is taken back by
+     * {@link Constants#TRAKT_SYNC_CURSOR_MARGIN}, in case the device's clock is ahead of
+     * Trakt's.
+     */
+    static long getSyncCursorForNow() {
+        return (System.currentTimeMillis() - Constants.TRAKT_SYNC_CURSOR_MARGIN) / 1000;
+    }
+}
@@ -21,8 +21,14 @@ import app.philm.in.network.NetworkCallRunnable;
 
 public interface BackgroundExecutor {
 
-    public <R> void execute(NetworkCallRunnable<R> runnable);
+    public <R> TaskHandle execute(NetworkCallRunnable<R> runnable);
 
-    public <R> void execute(BackgroundCallRunnable<R> runnable);
+    public <R> TaskHandle execute(BackgroundCallRunnable<R> runnable);
+
+    /**
+     * Cancels any network reads made for {@code callingId}, whether they are queued or in
+     * flight. Writes are always left to complete.
+     */
+    public void cancelAll(int callingId);
 
 }
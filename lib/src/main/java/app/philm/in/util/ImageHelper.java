@@ -16,6 +16,7 @@
 
 package app.philm.in.util;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Verify;
 
@@ -171,7 +172,8 @@ public class ImageHelper {
         }
     }
 
-    private static int selectSize(final int width, final int[] widths, final boolean forceLarger) {
+    @VisibleForTesting
+    static int selectSize(final int width, final int[] widths, final boolean forceLarger) {
         int previousBucketWidth = 0;
 
         for (int i = 0; i < widths.length; i++) {
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A map of primitive int keys to objects, using open addressing with linear probing. Lookups do
+ * not allocate, and unlike {@code SparseArray} or {@code ArrayMap}, inserts are not O(n).
+ * <p>
+ * Entries can be iterated without allocation by walking the slots from 0 to
+ * {@link #capacity()}, skipping slots where {@link #valueAt(int)} returns null.
+ */
+public class IntHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] mKeys;
+    private Object[] mValues;
+    private int mSize;
+    private int mResizeThreshold;
+
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntHashMap(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "expectedSize must be >= 0");
+        allocate(tableSizeFor((int) (expectedSize / LOAD_FACTOR) + 1));
+    }
+
+    public V get(int key) {
+        final int[] keys = mKeys;
+        final int mask = keys.length - 1;
+
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final Object value = mValues[slot];
+            if (value == null) {
+                return null;
+            } else if (keys[slot] == key) {
+                return castValue(value);
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value for {@code key}, or null if there was none.
+     */
+    public V put(int key, V value) {
+        Preconditions.checkNotNull(value, "value cannot be null");
+
+        final int mask = mKeys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (mValues[slot] != null) {
+            if (mKeys[slot] == key) {
+                final V previous = castValue(mValues[slot]);
+                mValues[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        mKeys[slot] = key;
+        mValues[slot] = value;
+
+        if (++mSize > mResizeThreshold) {
+            resize(mKeys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return the value which was removed, or null if there was no value for {@code key}.
+     */
+    public V remove(int key) {
+        final int mask = mKeys.length - 1;
+
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final Object value = mValues[slot];
+            if (value == null) {
+                return null;
+            } else if (mKeys[slot] == key) {
+                removeSlot(slot);
+                return castValue(value);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public int capacity() {
+        return mKeys.length;
+    }
+
+    public int keyAt(int slot) {
+        return mKeys[slot];
+    }
+
+    public V valueAt(int slot) {
+        return castValue(mValues[slot]);
+    }
+
+    private void removeSlot(int slot) {
+        final int mask = mKeys.length - 1;
+
+        // Shift back any following entries in the same run so that probing still finds them
+        int gap = slot;
+        for (int next = (gap + 1) & mask; mValues[next] != null; next = (next + 1) & mask) {
+            final int ideal = hash(mKeys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                mKeys[gap] = mKeys[next];
+                mValues[gap] = mValues[next];
+                gap = next;
+            }
+        }
+
+        mValues[gap] = null;
+        mSize--;
+    }
+
+    private void resize(int newCapacity) {
+        final int[] oldKeys = mKeys;
+        final Object[] oldValues = mValues;
+
+        allocate(newCapacity);
+
+        final int mask = newCapacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (mValues[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                mKeys[slot] = oldKeys[i];
+                mValues[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new int[capacity];
+        mValues = new Object[capacity];
+        mResizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V castValue(Object value) {
+        return (V) value;
+    }
+
+    private static int hash(int key) {
+        // Sequential ids cluster badly with linear probing, so spread them out (murmur3 fmix)
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int tableSizeFor(int size) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+}
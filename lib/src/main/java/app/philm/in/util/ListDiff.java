@@ -0,0 +1,333 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The difference between two versions of a list, worked out from each item's stable id and
+ * version. Items with the same id are the same item, and an item whose version has changed
+ * needs to be bound again.
+ * <p>
+ * Moves are found from the longest run of items which kept their relative order, so moving one
+ * item only reports that item as moved.
+ */
+public final class ListDiff {
+
+    public interface KeyProvider<T> {
+        /**
+         * @return an id for {@code item} which is the same in every version of the list
+         */
+        long getStableId(T item);
+
+        /**
+         * @return a value which changes whenever {@code item}'s content changes
+         */
+        int getVersion(T item);
+    }
+
+    /**
+     * The ids and versions of a list's items at a point in time. Taking a snapshot means that
+     * items which are changed in place can still be diffed against their previous version.
+     */
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(new long[0], new int[0]);
+
+        private final long[] mIds;
+        private final int[] mVersions;
+
+        private Snapshot(long[] ids, int[] versions) {
+            mIds = ids;
+            mVersions = versions;
+        }
+
+        public static <T> Snapshot of(List<T> items, KeyProvider<T> keyProvider) {
+            Preconditions.checkNotNull(keyProvider, "keyProvider cannot be null");
+
+            if (PhilmCollections.isEmpty(items)) {
+                return EMPTY;
+            }
+
+            final int size = items.size();
+            final long[] ids = new long[size];
+            final int[] versions = new int[size];
+            for (int i = 0; i < size; i++) {
+                final T item = items.get(i);
+                ids[i] = keyProvider.getStableId(item);
+                versions[i] = keyProvider.getVersion(item);
+            }
+            return new Snapshot(ids, versions);
+        }
+
+        public int size() {
+            return mIds.length;
+        }
+
+        public long getId(int position) {
+            return mIds[position];
+        }
+    }
+
+    private static final int[] EMPTY_POSITIONS = new int[0];
+
+    private final int[] mRemoved;
+    private final int[] mInserted;
+    private final int[] mMovedFrom;
+    private final int[] mMovedTo;
+    private final int[] mChanged;
+
+    private ListDiff(int[] removed, int[] inserted, int[] movedFrom, int[] movedTo,
+            int[] changed) {
+        mRemoved = removed;
+        mInserted = inserted;
+        mMovedFrom = movedFrom;
+        mMovedTo = movedTo;
+        mChanged = changed;
+    }
+
+    public static ListDiff between(Snapshot oldList, Snapshot newList) {
+        Preconditions.checkNotNull(oldList, "oldList cannot be null");
+        Preconditions.checkNotNull(newList, "newList cannot be null");
+
+        final int oldSize = oldList.size();
+        final int newSize = newList.size();
+
+        // Match each new item to its old position, if it has one
+        final LongIntMap oldPositions = new LongIntMap(oldSize);
+        for (int i = 0; i < oldSize; i++) {
+            oldPositions.putIfAbsent(oldList.mIds[i], i);
+        }
+
+        final boolean[] oldMatched = new boolean[oldSize];
+        final int[] newToOld = new int[newSize];
+        int inserted = 0;
+        int changed = 0;
+
+        for (int i = 0; i < newSize; i++) {
+            final int oldPosition = oldPositions.get(newList.mIds[i]);
+            if (oldPosition >= 0 && !oldMatched[oldPosition]) {
+                oldMatched[oldPosition] = true;
+                newToOld[i] = oldPosition;
+                if (oldList.mVersions[oldPosition] != newList.mVersions[i]) {
+                    changed++;
+                }
+            } else {
+                newToOld[i] = -1;
+                inserted++;
+            }
+        }
+
+        final boolean[] inOrder = findLongestIncreasingRun(newToOld);
+
+        final int[] removedPositions = new int[oldSize - (newSize - inserted)];
+        for (int i = 0, r = 0; i < oldSize; i++) {
+            if (!oldMatched[i]) {
+                removedPositions[r++] = i;
+            }
+        }
+
+        final int[] insertedPositions = new int[inserted];
+        final int[] changedPositions = new int[changed];
+        int moved = 0;
+        for (int i = 0, n = 0, c = 0; i < newSize; i++) {
+            final int oldPosition = newToOld[i];
+            if (oldPosition < 0) {
+                insertedPositions[n++] = i;
+            } else {
+                if (oldList.mVersions[oldPosition] != newList.mVersions[i]) {
+                    changedPositions[c++] = i;
+                }
+                if (!inOrder[i]) {
+                    moved++;
+                }
+            }
+        }
+
+        final int[] movedFrom = new int[moved];
+        final int[] movedTo = new int[moved];
+        for (int i = 0, m = 0; i < newSize; i++) {
+            if (newToOld[i] >= 0 && !inOrder[i]) {
+                movedFrom[m] = newToOld[i];
+                movedTo[m++] = i;
+            }
+        }
+
+        return new ListDiff(removedPositions, insertedPositions, movedFrom, movedTo,
+                changedPositions);
+    }
+
+    /**
+     * @return the positions in the old list which have been removed, in ascending order
+     */
+    public int[] getRemovedPositions() {
+        return mRemoved;
+    }
+
+    /**
+     * @return the positions in the new list which have been inserted, in ascending order
+     */
+    public int[] getInsertedPositions() {
+        return mInserted;
+    }
+
+    /**
+     * @return the old positions of items which have moved. The new position of each is at the
+     * same index in {@link #getMovedToPositions()}.
+     */
+    public int[] getMovedFromPositions() {
+        return mMovedFrom;
+    }
+
+    public int[] getMovedToPositions() {
+        return mMovedTo;
+    }
+
+    /**
+     * @return the positions in the new list of items whose content has changed, in ascending
+     * order
+     */
+    public int[] getChangedPositions() {
+        return mChanged;
+    }
+
+    /**
+     * @return true if any items have been inserted, removed or moved
+     */
+    public boolean isStructural() {
+        return mRemoved.length > 0 || mInserted.length > 0 || mMovedFrom.length > 0;
+    }
+
+    public boolean isEmpty() {
+        return !isStructural() && mChanged.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ListDiff{removed=" + Arrays.toString(mRemoved)
+                + ", inserted=" + Arrays.toString(mInserted)
+                + ", movedFrom=" + Arrays.toString(mMovedFrom)
+                + ", movedTo=" + Arrays.toString(mMovedTo)
+                + ", changed=" + Arrays.toString(mChanged) + "}";
+    }
+
+    /**
+     * Finds the longest increasing subsequence of the matched old positions, in O(n log n).
+     * Items outside of it are the ones which have moved.
+     *
+     * @return whether each new position is part of the sequence
+     */
+    private static boolean[] findLongestIncreasingRun(int[] newToOld) {
+        final int size = newToOld.length;
+        final boolean[] result = new boolean[size];
+        if (size == 0) {
+            return result;
+        }
+
+        // tails[k] is the new position which ends the best sequence of length k + 1
+        final int[] tails = new int[size];
+        final int[] previous = new int[size];
+        int length = 0;
+
+        for (int i = 0; i < size; i++) {
+            final int value = newToOld[i];
+            if (value < 0) {
+                continue;
+            }
+
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (newToOld[tails[mid]] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        if (length > 0) {
+            for (int i = tails[length - 1]; i >= 0; i = previous[i]) {
+                result[i] = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A minimal open addressing map from long ids to positions, to avoid boxing every id.
+     */
+    private static final class LongIntMap {
+        private final long[] mKeys;
+        private final int[] mValues;
+        private final boolean[] mUsed;
+        private final int mMask;
+
+        LongIntMap(int expectedSize) {
+            int capacity = 4;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            mKeys = new long[capacity];
+            mValues = new int[capacity];
+            mUsed = new boolean[capacity];
+            mMask = capacity - 1;
+        }
+
+        void putIfAbsent(long key, int value) {
+            int index = indexFor(key);
+            while (mUsed[index]) {
+                if (mKeys[index] == key) {
+                    return;
+                }
+                index = (index + 1) & mMask;
+            }
+            mUsed[index] = true;
+            mKeys[index] = key;
+            mValues[index] = value;
+        }
+
+        /**
+         * @return the value for {@code key}, or -1 if there isn't one
+         */
+        int get(long key) {
+            int index = indexFor(key);
+            while (mUsed[index]) {
+                if (mKeys[index] == key) {
+                    return mValues[index];
+                }
+                index = (index + 1) & mMask;
+            }
+            return -1;
+        }
+
+        private int indexFor(long key) {
+            final int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B1;
+            return (hash ^ (hash >>> 16)) & mMask;
+        }
+    }
+
+}
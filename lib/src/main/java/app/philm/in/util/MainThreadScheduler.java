@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+public interface MainThreadScheduler {
+
+    /**
+     * Runs {@code runnable} on the main thread, after the message currently being handled.
+     */
+    void post(Runnable runnable);
+
+    /**
+     * Runs {@code runnable} on the main thread, after {@code delayMillis} milliseconds.
+     */
+    void postDelayed(Runnable runnable, long delayMillis);
+
+    /**
+     * Removes any pending posts of {@code runnable}.
+     */
+    void cancel(Runnable runnable);
+
+}
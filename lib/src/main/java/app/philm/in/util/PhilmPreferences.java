@@ -27,4 +27,20 @@ public interface PhilmPreferences {
 
     public void setShownTraktLoginPrompt();
 
+    /**
+     * @return the Trakt time, in seconds, which the library of {@code username} has been synced
+     * up to, or 0 if it has not been synced
+     */
+    public long getLibrarySyncCursor(String username);
+
+    public void setLibrarySyncCursor(String username, long cursor);
+
+    /**
+     * @return the Trakt time, in seconds, which the watchlist of {@code username} has been
+     * synced up to, or 0 if it has not been synced
+     */
+    public long getWatchlistSyncCursor(String username);
+
+    public void setWatchlistSyncCursor(String username, long cursor);
+
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package app.philm.in.util;
+
+/**
+ * A handle to a task which has been given to a {@link BackgroundExecutor}.
+ */
+public interface TaskHandle {
+
+    /**
+     * Cancels the task. If it has not started it will not be run, and if it is running any
+     * network call it is making will be aborted where possible. Once cancelled, none of the
+     * task's result callbacks will be called.
+     */
+    public void cancel();
+
+    public boolean isCancelled();
+
+    /**
+     * @return true if the task's result has been delivered, or it has been dropped
+     */
+    public boolean isFinished();
+
+}
@@ -16,11 +16,32 @@
 
 package app.philm.in.util;
 
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
 public class TextUtils {
 
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
     public static boolean isEmpty(CharSequence text) {
         return null == text || text.length() == 0;
     }
 
+    /**
+     * Lower-cases {@code text}, strips accents and replaces punctuation with single spaces, so
+     * that search queries and titles can be compared loosely. For example, both
+     * {@code "Amélie "} and {@code "amelie"} become {@code "amelie"}.
+     */
+    public static String normaliseForSearch(String text) {
+        if (isEmpty(text)) {
+            return "";
+        }
+        String result = Normalizer.normalize(text, Normalizer.Form.NFD);
+        result = COMBINING_MARKS.matcher(result).replaceAll("");
+        result = NON_WORD.matcher(result).replaceAll(" ");
+        return result.trim().toLowerCase(Locale.US);
+    }
 
 }